@@ -1,45 +1,170 @@
 import model.*;
 import model.enums.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class Main {
+    // prices on planes built from a schedule file
+    private static final Map<FareClass, Double> SCHEDULE_PRICES = Map.of(
+            FareClass.FIRST, 700.0,
+            FareClass.BUSINESS, 350.0,
+            FareClass.ECONOMY, 150.0);
+
     public static void main(String[] args) {
+        // ticket ids keep counting up across runs
+        TicketIdAllocator.setDefault(TicketIdAllocator.persistent(Path.of("ticket-ids.mark")));
+
+        // Load the last snapshot if there is one, otherwise import schedule.csv or start from the sample schedule
+        Path snapshot = Path.of("airline.snapshot");
+        Path schedule = Path.of("schedule.csv");
+        boolean scheduleUpdated = false;
+        FlightRegistry registry;
+        CustomerDirectory customers;
+        List<Crew> crew;
+        List<Ticket> unseated = List.of();
+        ReservationJournal.Mark snapshotMark = null;
+        if (Files.exists(snapshot)) {
+            AirlineSnapshot.Contents contents = AirlineSnapshot.load(snapshot, Ledger.getDefault());
+            registry = contents.registry();
+            customers = contents.customers();
+            crew = new ArrayList<>(contents.crew());
+            snapshotMark = contents.journalMark();
+            unseated = contents.unseated();
+            for (int id : contents.refused()) {
+                System.out.println("Snapshot ticket " + id + " was not restored: its flight already has that ticket id.");
+            }
+            scheduleUpdated = isNewer(schedule, snapshot);
+        } else {
+            registry = new FlightRegistry();
+            customers = new CustomerDirectory();
+            crew = new ArrayList<>();
+            if (Files.exists(schedule)) importSchedule(schedule, registry);
+            else crew.addAll(buildSampleSchedule(registry));
+        }
+
+        // A schedule file newer than the snapshot updates the loaded flights in place. The journal
+        // does not record its adds and removes, so it is applied before the bookings made on top of it
+        if (scheduleUpdated) applySchedule(schedule, registry);
+
+        // Rebuild bookings made since the snapshot, then record new ones
+        ReservationJournal journal = ReservationJournal.open(Path.of("reservations.journal"));
+        ReservationJournal.Recovery recovery = journal.replay(registry, customers, Ledger.getDefault(), snapshotMark);
+        if (recovery.tickets() > 0) {
+            System.out.println("Restored " + recovery.tickets() + " ticket(s) from " + recovery.events() + " journal events.");
+        }
+        if (recovery.skipped() > 0) {
+            System.out.println("Skipped " + recovery.skipped() + " journal event(s) for flights or tickets that no longer exist.");
+        }
+        ReservationJournal.setDefault(journal);
+        Set<Ticket> toReseat = new LinkedHashSet<>(unseated);
+        toReseat.addAll(recovery.unseated());
+        for (Ticket t : toReseat) {
+            if (t.getStatus() != ReservationStatus.CANCELED && t.getSeatIndex() < 0) {
+                System.out.println("Ticket " + t.getTicketId() + " on flight " + t.getFlight().getFlightNumber()
+                        + " has no seat after recovery; please reseat it.");
+            }
+        }
+        // Save the updated schedule now, so a crash before exit cannot replay later bookings onto the old one
+        if (scheduleUpdated) {
+            AirlineSnapshot.write(snapshot, registry, customers, crew, Ledger.getDefault(), journal.mark());
+        }
+
+        // Start UI
+        AirportUI ui = new AirportUI(registry, customers);
+        ui.start();
+
+        // Save everything so the next start loads it instead of replaying every booking
+        AirlineSnapshot.writeAsync(snapshot, registry, customers, crew, Ledger.getDefault(), journal.mark()).join();
+        journal.close();
+    }
+
+    private static void importSchedule(Path file, FlightRegistry registry) {
+        ScheduleImporter.Result result = ScheduleImporter.csv(SCHEDULE_PRICES).importFile(file, registry, null);
+        System.out.println("Imported " + result.imported() + " flight(s) from " + file + " in "
+                + result.elapsed().toMillis() + " ms.");
+        printRejections(result.rejections(), result.rejected());
+    }
+
+    private static void applySchedule(Path file, FlightRegistry registry) {
+        ScheduleImporter.Changes changes = ScheduleImporter.csv(SCHEDULE_PRICES).applyFile(file, registry, null);
+        System.out.println("Schedule update from " + file + ": " + changes.added() + " added, "
+                + changes.removed() + " removed, " + changes.retimed() + " retimed, "
+                + changes.gatesChanged() + " gate change(s) in " + changes.elapsed().toMillis() + " ms.");
+        for (Flight f : changes.removedFlights()) {
+            if (f.getTicketCount() > 0) {
+                System.out.println("  removed " + f.getFlightNumber() + " " + f.getDepartureUTC()
+                        + " has " + f.getTicketCount() + " ticket(s) to rebook");
+            }
+        }
+        for (Flight f : changes.equipmentChanged()) {
+            System.out.println("  equipment change not applied: " + f.getFlightNumber() + " " + f.getDepartureUTC());
+        }
+        printRejections(changes.rejections(), changes.rejected());
+    }
+
+    private static void printRejections(List<ScheduleImporter.Rejection> rejections, long rejected) {
+        for (ScheduleImporter.Rejection r : rejections) {
+            System.out.println("  line " + r.line() + ": " + r.reason());
+        }
+        if (rejected > rejections.size()) {
+            System.out.println("  ... and " + (rejected - rejections.size()) + " more bad row(s)");
+        }
+    }
+
+    private static boolean isNewer(Path file, Path than) {
+        try {
+            return Files.exists(file) && Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(than)) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Returns the whole crew roster, so it is saved with the snapshot
+    private static List<Crew> buildSampleSchedule(FlightRegistry registry) {
         List<Flight> flights = new ArrayList<>();
 
-        // Planes
-        Plane p1 = new Plane("PL001", PlaneType.A320, PlaneType.A320.getTypicalSeats(), 200.0, 100.0);
-        Plane p2 = new Plane("PL002", PlaneType.B737, PlaneType.B737.getTypicalSeats(), 200.0, 100.0);
-        Plane p3 = new Plane("PL003", PlaneType.A320, PlaneType.A320.getTypicalSeats(), 200.0, 100.0);
-        Plane p4 = new Plane("PL004", PlaneType.B737, PlaneType.B737.getTypicalSeats(), 200.0, 100.0);
-        Plane p5 = new Plane("PL005", PlaneType.A320, PlaneType.A320.getTypicalSeats(), 200.0, 100.0);
+        // Planes: three cabins, split per PlaneType defaults
+        Map<FareClass, Double> prices = Map.of(
+                FareClass.FIRST, 700.0,
+                FareClass.BUSINESS, 350.0,
+                FareClass.ECONOMY, 150.0);
+        Plane p1 = new Plane("PL001", PlaneType.A320, PlaneType.A320.getTypicalSeats(), prices);
+        Plane p2 = new Plane("PL002", PlaneType.B737, PlaneType.B737.getTypicalSeats(), prices);
+        Plane p3 = new Plane("PL003", PlaneType.A320, PlaneType.A320.getTypicalSeats(), prices);
+        Plane p4 = new Plane("PL004", PlaneType.B737, PlaneType.B737.getTypicalSeats(), prices);
+        Plane p5 = new Plane("PL005", PlaneType.A320, PlaneType.A320.getTypicalSeats(), prices);
 
         // Flights
-        flights.add(new Flight("AA001", "American Airlines", "New York", "Los Angeles",
+        flights.add(registry.create("AA001", "American Airlines", "New York", "Los Angeles",
                 LocalDateTime.of(2025, 10, 1, 14, 30),
                 LocalDateTime.of(2025, 10, 1, 17, 45),
                 p1, 2));
 
-        flights.add(new Flight("DL002", "Delta", "Chicago", "Miami",
+        flights.add(registry.create("DL002", "Delta", "Chicago", "Miami",
                 LocalDateTime.of(2025, 10, 2, 9, 15),
                 LocalDateTime.of(2025, 10, 2, 13, 0),
                 p2, 2));
 
-        flights.add(new Flight("UA003", "United", "San Francisco", "Seattle",
+        flights.add(registry.create("UA003", "United", "San Francisco", "Seattle",
                 LocalDateTime.of(2025, 10, 3, 16, 0),
                 LocalDateTime.of(2025, 10, 3, 18, 15),
                 p3, 2));
 
-        flights.add(new Flight("SW004", "Southwest", "Dallas", "Houston",
+        flights.add(registry.create("SW004", "Southwest", "Dallas", "Houston",
                 LocalDateTime.of(2025, 10, 4, 12, 0),
                 LocalDateTime.of(2025, 10, 4, 13, 15),
                 p4, 2));
 
-        flights.add(new Flight("BA005", "British Airways", "London", "New York",
+        flights.add(registry.create("BA005", "British Airways", "London", "New York",
                 LocalDateTime.of(2025, 10, 5, 8, 0),
                 LocalDateTime.of(2025, 10, 5, 11, 30),
                 p5, 3));
@@ -122,8 +247,8 @@ public class Main {
         flight5.addAttendant(fa10);
         flight5.addAttendant(fa11);
 
-        // Start UI
-        AirportUI ui = new AirportUI(flights);
-        ui.start();
+        return List.of(captain1, firstOfficer1, fa1, fa2, captain2, firstOfficer2, fa3, fa4,
+                captain3, firstOfficer3, fa5, fa6, captain4, firstOfficer4, fa7, fa8,
+                captain5, firstOfficer5, fa9, fa10, fa11);
     }
 }
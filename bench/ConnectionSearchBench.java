@@ -0,0 +1,163 @@
+package bench;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import model.ConnectionSearch;
+import model.Flight;
+import model.FlightRegistry;
+import model.Plane;
+import model.enums.FareClass;
+import model.enums.PlaneType;
+
+/**
+ * Benchmark and checks for {@link ConnectionSearch}.
+ * <p>
+ * On a small random network every result is compared with a brute-force search over
+ * all flights: the same itineraries, no more and no fewer. On a large one (50k flights,
+ * 200 airports, 30 days) it runs 20k random two-stop queries with a 50 ms budget and
+ * reports latency percentiles per pass, then the same queries through
+ * {@link ConnectionSearch#searchAll}.
+ * </p>
+ * Usage: {@code java -cp out bench.ConnectionSearchBench}.
+ */
+public class ConnectionSearchBench {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final Duration BUDGET = Duration.ofMillis(50);
+    private static final Plane PLANE = new Plane("P", PlaneType.A320, 150, Map.of(FareClass.ECONOMY, 100.0));
+
+    public static void main(String[] args) {
+        checkAgainstBruteForce();
+        time();
+        System.out.println("OK: itineraries match a brute-force search");
+    }
+
+    private static void checkAgainstBruteForce() {
+        Random rnd = new Random(7);
+        FlightRegistry registry = new FlightRegistry();
+        ConnectionSearch search = new ConnectionSearch();
+        registry.addListener(search);
+        String[] airports = airports(25);
+        List<Flight> flights = network(registry, rnd, airports, 3_000, 5);
+
+        int itineraries = 0;
+        for (int i = 0; i < 300; i++) {
+            ConnectionSearch.Query q = query(rnd, airports, 4);
+            ConnectionSearch.Result result = search.search(q, Duration.ofSeconds(10));
+            check(result.complete(), "a small search ran out of time");
+            Set<List<Flight>> found = new HashSet<>();
+            for (ConnectionSearch.Itinerary it : result.itineraries()) {
+                check(found.add(it.legs()), "itinerary returned twice: " + it.legs());
+            }
+            Set<List<Flight>> expected = bruteForce(flights, q);
+            check(found.equals(expected), "query " + q + ": found " + found.size() + ", brute force " + expected.size());
+            itineraries += found.size();
+        }
+        System.out.printf("brute-force check: 300 queries, %d itineraries, all matching%n", itineraries);
+    }
+
+    private static void time() {
+        Random rnd = new Random(1);
+        FlightRegistry registry = new FlightRegistry(50_000);
+        ConnectionSearch search = new ConnectionSearch();
+        registry.addListener(search);
+        String[] airports = airports(200);
+        network(registry, rnd, airports, 50_000, 30);
+        List<ConnectionSearch.Query> queries = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) queries.add(query(rnd, airports, 25));
+
+        for (int pass = 0; pass < 3; pass++) {
+            long[] latency = new long[queries.size()];
+            long itineraries = 0;
+            int incomplete = 0;
+            for (int i = 0; i < queries.size(); i++) {
+                long start = System.nanoTime();
+                ConnectionSearch.Result r = search.search(queries.get(i), BUDGET);
+                latency[i] = System.nanoTime() - start;
+                itineraries += r.itineraries().size();
+                if (!r.complete()) incomplete++;
+            }
+            Arrays.sort(latency);
+            System.out.printf("pass %d: p50 %.1f us, p99 %.1f us, max %.1f us; %.1f itineraries/query, %d incomplete%n",
+                    pass + 1, latency[latency.length / 2] / 1e3, latency[latency.length * 99 / 100] / 1e3,
+                    latency[latency.length - 1] / 1e3, itineraries / (double) queries.size(), incomplete);
+        }
+        long start = System.nanoTime();
+        List<ConnectionSearch.Result> all = search.searchAll(queries, BUDGET);
+        System.out.printf("searchAll: %d queries in %d ms%n", all.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Every itinerary the search rules allow, found by trying all flights at every step
+    private static Set<List<Flight>> bruteForce(List<Flight> flights, ConnectionSearch.Query q) {
+        Set<List<Flight>> out = new HashSet<>();
+        LocalDateTime dayStart = q.date().atStartOfDay();
+        for (Flight first : flights) {
+            if (!first.getOrigin().equals(q.origin())) continue;
+            if (first.getDepartureUTC().isBefore(dayStart) || !first.getDepartureUTC().isBefore(dayStart.plusDays(1))) continue;
+            String x = first.getDestination();
+            if (x.equals(q.destination())) {
+                out.add(List.of(first));
+                continue;
+            }
+            if (q.maxStops() < 1 || x.equals(q.origin())) continue;
+            for (Flight second : flights) {
+                if (!second.getOrigin().equals(x) || !connects(first, second)) continue;
+                String y = second.getDestination();
+                if (y.equals(q.destination())) {
+                    out.add(List.of(first, second));
+                    continue;
+                }
+                if (q.maxStops() < 2 || y.equals(q.origin()) || y.equals(x)) continue;
+                for (Flight last : flights) {
+                    if (last.getOrigin().equals(y) && last.getDestination().equals(q.destination()) && connects(second, last)) {
+                        out.add(List.of(first, second, last));
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private static boolean connects(Flight in, Flight out) {
+        LocalDateTime earliest = in.getArrivalUTC().plus(ConnectionSearch.DEFAULT_MIN_CONNECTION);
+        LocalDateTime latest = in.getArrivalUTC().plus(ConnectionSearch.DEFAULT_MAX_CONNECTION);
+        return !out.getDepartureUTC().isBefore(earliest) && !out.getDepartureUTC().isAfter(latest);
+    }
+
+    private static List<Flight> network(FlightRegistry registry, Random rnd, String[] airports, int count, int days) {
+        List<Flight> flights = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int o = rnd.nextInt(airports.length);
+            int d = (o + 1 + rnd.nextInt(airports.length - 1)) % airports.length;
+            LocalDateTime departure = START.plusMinutes(rnd.nextInt(days * 24 * 60));
+            flights.add(registry.create("F" + i, "X", airports[o], airports[d], departure,
+                    departure.plusMinutes(60 + rnd.nextInt(300)), PLANE, 1));
+        }
+        return flights;
+    }
+
+    private static ConnectionSearch.Query query(Random rnd, String[] airports, int days) {
+        int o = rnd.nextInt(airports.length);
+        int d = (o + 1 + rnd.nextInt(airports.length - 1)) % airports.length;
+        LocalDate date = START.toLocalDate().plusDays(1 + rnd.nextInt(days - 1));
+        return new ConnectionSearch.Query(airports[o], airports[d], date, FareClass.ECONOMY, 1, 2);
+    }
+
+    private static String[] airports(int count) {
+        String[] airports = new String[count];
+        for (int i = 0; i < count; i++) airports[i] = "A" + i;
+        return airports;
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,144 @@
+package bench;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.Customer;
+import model.Flight;
+import model.Plane;
+import model.Ticket;
+import model.enums.FareClass;
+import model.enums.PlaneType;
+
+/**
+ * Benchmark and checks for {@link Flight#bookGroup}.
+ * <p>
+ * First the all-or-nothing rules: a group too big for its cabin, and a mixed-class group
+ * with one cabin short, must book nothing and leave every seat free. Then threads race
+ * to book groups on one flight until it fills: every group must be booked whole or not
+ * at all, and the seats sold must be exactly the groups booked times their size. Last,
+ * it times a 40-passenger group booked in one step against the same 40 tickets added
+ * one at a time.
+ * </p>
+ * Usage: {@code java -cp out bench.GroupBookingBench [threads]} (default 4).
+ */
+public class GroupBookingBench {
+    private static final Map<FareClass, Double> PRICES =
+            Map.of(FareClass.FIRST, 700.0, FareClass.BUSINESS, 350.0, FareClass.ECONOMY, 150.0);
+    private static final int GROUP = 40;
+    private static final int ROUNDS = 5;
+    private static final int REPEATS = 50_000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        List<Customer> group = customers("c", GROUP);
+        checkAllOrNothing(group);
+        checkRace(threads);
+        time(group);
+        System.out.println("OK: groups booked whole or not at all");
+    }
+
+    private static void checkAllOrNothing(List<Customer> group) {
+        Flight small = flight("S1", new Plane("S", PlaneType.E175, 10, PRICES));
+        try {
+            small.bookGroup(group, FareClass.ECONOMY);
+            throw new IllegalStateException("a group larger than the plane was booked");
+        } catch (IllegalArgumentException expected) {
+            check(small.getAvailableSeats() == 10 && small.getTickets().isEmpty(), "a refused group kept seats");
+        }
+
+        Flight mixed = flight("M1", new Plane("M", PlaneType.B777, 350, PRICES));
+        int first = mixed.getPlane().getSeats(FareClass.FIRST);
+        Map<Customer, FareClass> passengers = new LinkedHashMap<>();
+        List<Customer> many = customers("m", first + 5);
+        for (int i = 0; i < many.size(); i++) passengers.put(many.get(i), i < 5 ? FareClass.ECONOMY : FareClass.FIRST);
+        passengers.put(new Customer("extra", "1", "extra@x"), FareClass.FIRST);
+        try {
+            mixed.bookGroup(passengers);
+            throw new IllegalStateException("a group with too many first class passengers was booked");
+        } catch (IllegalArgumentException expected) {
+            check(mixed.getAvailableSeats() == 350 && mixed.getTickets().isEmpty(), "a refused mixed group kept seats");
+        }
+    }
+
+    private static void checkRace(int threads) throws Exception {
+        Flight flight = flight("R1", new Plane("R", PlaneType.B777, 350, PRICES));
+        int economy = flight.getPlane().getSeats(FareClass.ECONOMY);
+        int size = 7;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> booked = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "t" + t + "-";
+            booked.add(pool.submit(() -> {
+                int groups = 0;
+                for (int g = 0; g * size < economy; g++) {
+                    try {
+                        List<Ticket> tickets = flight.bookGroup(customers(prefix + g + "-", size), FareClass.ECONOMY);
+                        check(tickets.size() == size, "a group was booked in part");
+                        groups++;
+                    } catch (IllegalArgumentException full) {
+                        // another thread got there first
+                    }
+                }
+                return groups;
+            }));
+        }
+        int groups = 0;
+        for (Future<Integer> f : booked) groups += f.get();
+        pool.shutdown();
+        int sold = economy - flight.getPlane().getAvailableSeats(FareClass.ECONOMY);
+        check(sold == groups * size, "sold " + sold + " economy seats for " + groups + " groups of " + size);
+        check(flight.getTickets().size() == sold, "manifest has " + flight.getTickets().size() + " tickets for " + sold + " seats");
+        check(economy - sold < size, "the cabin stopped filling with " + (economy - sold) + " seats left");
+        System.out.printf("race, %d threads: %d groups of %d booked, %d economy seats left%n",
+                threads, groups, size, economy - sold);
+    }
+
+    private static void time(List<Customer> group) {
+        Flight flight = flight("F1", new Plane("P", PlaneType.B777, 350, PRICES));
+        for (int round = 0; round < ROUNDS; round++) {
+            long grouped = 0;
+            long single = 0;
+            for (int i = 0; i < REPEATS; i++) {
+                long start = System.nanoTime();
+                List<Ticket> tickets = flight.bookGroup(group, FareClass.ECONOMY);
+                grouped += System.nanoTime() - start;
+                for (Ticket t : tickets) flight.removeTicket(t);
+
+                tickets = new ArrayList<>(GROUP);
+                start = System.nanoTime();
+                for (Customer c : group) {
+                    Ticket t = new Ticket(FareClass.ECONOMY, flight, c);
+                    flight.addTicket(t);
+                    tickets.add(t);
+                }
+                single += System.nanoTime() - start;
+                for (Ticket t : tickets) flight.removeTicket(t);
+            }
+            System.out.printf("%d passengers: bookGroup %.0f ns, %d x addTicket %.0f ns%n",
+                    GROUP, (double) grouped / REPEATS, GROUP, (double) single / REPEATS);
+        }
+        check(flight.getAvailableSeats() == 350, "seats were lost while timing");
+    }
+
+    private static Flight flight(String number, Plane plane) {
+        LocalDateTime departure = LocalDateTime.of(2025, 1, 1, 8, 0);
+        return new Flight(number, "X", "AAA", "BBB", departure, departure.plusHours(5), plane, 1);
+    }
+
+    private static List<Customer> customers(String prefix, int n) {
+        List<Customer> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) list.add(new Customer(prefix + i, String.valueOf(i), prefix + i + "@x"));
+        return list;
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new IllegalStateException(message);
+    }
+}
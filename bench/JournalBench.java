@@ -0,0 +1,251 @@
+package bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.Customer;
+import model.CustomerDirectory;
+import model.Flight;
+import model.FlightRegistry;
+import model.Ledger;
+import model.Plane;
+import model.ReservationJournal;
+import model.Ticket;
+import model.enums.FareClass;
+import model.enums.PlaneType;
+
+/**
+ * Benchmark and checks for {@link ReservationJournal}.
+ * <p>
+ * First threads book tickets and each calls {@link ReservationJournal#sync()} before
+ * going on, as a confirmed booking does, to show how far group commit carries one fsync.
+ * Then one thread books, cancels and upgrades tickets with the background flusher alone
+ * forcing the file, and the event rate is reported. That journal is replayed onto a fresh
+ * schedule, directory and ledger: every flight's free seats and manifest, every
+ * customer's balance and ticket count, and the ledger totals must come out the same.
+ * Last, the final record of a small journal is corrupted: replay must stop before it and
+ * keep everything earlier.
+ * </p>
+ * Usage: {@code java -cp out bench.JournalBench [bookings]} (default 1,000,000).
+ * The journals go to a temporary directory that is removed at the end.
+ */
+public class JournalBench {
+    private static final Map<FareClass, Double> PRICES = Map.of(FareClass.ECONOMY, 150.0, FareClass.FIRST, 700.0);
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final int FLIGHTS = 1_000;
+    private static final int SEATS = 3_000;
+    private static final int CUSTOMERS = 100_000;
+    private static final int SYNC_THREADS = 4;
+    private static final int SYNCED_PER_THREAD = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        int bookings = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = Files.createTempDirectory("journal-bench");
+        try {
+            timeSyncedBookings(dir.resolve("synced.journal"));
+            checkReplay(dir.resolve("batched.journal"), bookings);
+            checkTornTail(dir.resolve("torn.journal"));
+        } finally {
+            ReservationJournal.setDefault(null);
+            Ledger.setDefault(new Ledger());
+            try (var files = Files.list(dir)) {
+                for (Path p : files.toList()) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+        System.out.println("OK: replay rebuilds the recorded state");
+    }
+
+    private static void timeSyncedBookings(Path file) throws Exception {
+        FlightRegistry registry = schedule();
+        List<Flight> flights = new ArrayList<>(registry.getFlights());
+        CustomerDirectory customers = new CustomerDirectory();
+        Ledger.setDefault(new Ledger());
+        ReservationJournal journal = ReservationJournal.open(file);
+        ReservationJournal.setDefault(journal);
+
+        ExecutorService pool = Executors.newFixedThreadPool(SYNC_THREADS);
+        List<Future<?>> work = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < SYNC_THREADS; t++) {
+            int thread = t;
+            work.add(pool.submit(() -> {
+                for (int i = 0; i < SYNCED_PER_THREAD; i++) {
+                    Customer c = customers.findOrCreate("Synced " + thread, "", "s" + thread + "-" + i % 500 + "@x");
+                    book(flights.get((i * 7 + thread) % FLIGHTS), c);
+                    journal.sync();
+                }
+            }));
+        }
+        for (Future<?> f : work) f.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        ReservationJournal.setDefault(null);
+        System.out.printf("sync per booking, %d threads: %.0f bookings/s, %.0f events/s%n", SYNC_THREADS,
+                SYNC_THREADS * SYNCED_PER_THREAD / seconds, journal.size() / seconds);
+        journal.close();
+    }
+
+    private static void checkReplay(Path file, int bookings) throws IOException {
+        FlightRegistry registry = schedule();
+        List<Flight> flights = new ArrayList<>(registry.getFlights());
+        CustomerDirectory customers = new CustomerDirectory(CUSTOMERS);
+        Customer[] byIndex = new Customer[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) byIndex[i] = customers.findOrCreate("Customer " + i, "", "c" + i + "@x");
+        Ledger.setDefault(new Ledger());
+        ReservationJournal journal = ReservationJournal.open(file);
+        ReservationJournal.setDefault(journal);
+
+        long start = System.nanoTime();
+        // cancels and upgrades report to the console; keep that out of the output
+        quietly(() -> {
+            for (int i = 0; i < bookings; i++) {
+                Flight f = flights.get(i % FLIGHTS);
+                Customer c = byIndex[i % CUSTOMERS];
+                Ticket t = book(f, c);
+                if (i % 4 == 0) {
+                    c.cancelTicket(t);
+                } else if (i % 1000 == 1 && f.getPlane().getAvailableSeats(FareClass.FIRST) > 0) {
+                    t.upgradeTicket(FareClass.FIRST);
+                }
+            }
+        });
+        journal.sync();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long events = journal.size();
+        ReservationJournal.setDefault(null);
+        journal.close();
+        System.out.printf("batched, 1 thread: %d events in %.2f s = %.0f events/s, %d MB on disk%n",
+                events, seconds, events / seconds, Files.size(file) >> 20);
+
+        Map<String, Long> flightState = flightState(registry);
+        Map<String, Long> customerState = customerState(customers);
+        long charged = Ledger.getDefault().totalChargedCents();
+        long refunded = Ledger.getDefault().totalRefundedCents();
+
+        FlightRegistry replayedFlights = schedule();
+        CustomerDirectory replayedCustomers = new CustomerDirectory(CUSTOMERS);
+        Ledger replayedLedger = new Ledger();
+        Ledger.setDefault(replayedLedger);
+        ReservationJournal reopened = ReservationJournal.open(file);
+        ReservationJournal.Recovery recovery = reopened.replay(replayedFlights, replayedCustomers, replayedLedger);
+        reopened.close();
+        check(recovery.events() == events, "replayed " + recovery.events() + " of " + events + " events");
+        check(recovery.skipped() == 0 && recovery.unseated().isEmpty(),
+                recovery.skipped() + " events skipped, " + recovery.unseated().size() + " tickets unseated");
+        check(flightState(replayedFlights).equals(flightState), "replayed seats or manifests differ");
+        check(customerState(replayedCustomers).equals(customerState), "replayed customers, tickets or balances differ");
+        check(replayedLedger.totalChargedCents() == charged && replayedLedger.totalRefundedCents() == refunded,
+                "replayed ledger totals differ");
+        System.out.printf("replay: %d events, %d tickets in %d ms, state matches%n",
+                recovery.events(), recovery.tickets(), recovery.elapsed().toMillis());
+    }
+
+    private static void checkTornTail(Path file) throws IOException {
+        LocalDateTime departure = START.plusHours(8);
+        FlightRegistry registry = new FlightRegistry();
+        Flight flight = registry.create("T1", "X", "AAA", "BBB", departure, departure.plusHours(2),
+                new Plane("T", PlaneType.A320, 100, PRICES), 1);
+        CustomerDirectory customers = new CustomerDirectory();
+        Customer c = customers.findOrCreate("Torn", "", "torn@x");
+        Ledger.setDefault(new Ledger());
+        // small segments, so the log spans several of them
+        ReservationJournal journal = ReservationJournal.open(file, 4096, Duration.ofMillis(5));
+        ReservationJournal.setDefault(journal);
+        for (int i = 0; i < 60; i++) book(flight, c);
+        quietly(() -> flight.delayByMinutes(30));
+        long events = journal.size();
+        ReservationJournal.setDefault(null);
+        journal.close();
+
+        // the retime is the last record; flip its last byte so its checksum fails
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate((int) ch.size());
+            ch.read(bytes, 0);
+            int last = bytes.capacity() - 1;
+            while (bytes.get(last) == 0) last--;
+            ch.write(ByteBuffer.wrap(new byte[]{(byte) (bytes.get(last) ^ 0x55)}), last);
+        }
+
+        FlightRegistry replayed = new FlightRegistry();
+        Flight fresh = replayed.create("T1", "X", "AAA", "BBB", departure, departure.plusHours(2),
+                new Plane("T", PlaneType.A320, 100, PRICES), 1);
+        Ledger replayedLedger = new Ledger();
+        Ledger.setDefault(replayedLedger);
+        ReservationJournal reopened = ReservationJournal.open(file, 4096, Duration.ofMillis(5));
+        ReservationJournal.Recovery recovery = reopened.replay(replayed, new CustomerDirectory(), replayedLedger);
+        reopened.close();
+        check(recovery.events() == events - 1, "replayed " + recovery.events() + " events of " + events + ", expected all but the torn one");
+        check(fresh.getDepartureUTC().equals(departure), "the torn retime was applied");
+        check(fresh.getTicketCount() == 60 && fresh.getAvailableSeats() == 40, "bookings before the torn record were lost");
+        System.out.printf("torn tail: %d of %d events kept, the corrupt retime dropped%n", recovery.events(), events);
+    }
+
+    // Seat, file and charge one economy ticket, each step journaled
+    private static Ticket book(Flight flight, Customer customer) {
+        Ticket t = new Ticket(FareClass.ECONOMY, flight, customer);
+        flight.addTicket(t);
+        customer.addTicket(t);
+        Ledger.getDefault().charge(t);
+        return t;
+    }
+
+    private static FlightRegistry schedule() {
+        FlightRegistry registry = new FlightRegistry(FLIGHTS);
+        for (int i = 0; i < FLIGHTS; i++) {
+            LocalDateTime departure = START.plusHours(i);
+            registry.create("F" + i, "X", "AAA", "BBB", departure, departure.plusHours(2),
+                    new Plane("P" + i, PlaneType.A320, SEATS, PRICES), 1);
+        }
+        return registry;
+    }
+
+    private static Map<String, Long> flightState(FlightRegistry registry) {
+        Map<String, Long> state = new HashMap<>();
+        for (Flight f : registry.getFlights()) {
+            state.put(f.getFlightNumber() + " free", (long) f.getAvailableSeats());
+            state.put(f.getFlightNumber() + " first", (long) f.getPlane().getAvailableSeats(FareClass.FIRST));
+            state.put(f.getFlightNumber() + " tickets", (long) f.getTicketCount());
+        }
+        return state;
+    }
+
+    private static Map<String, Long> customerState(CustomerDirectory customers) {
+        Map<String, Long> state = new HashMap<>();
+        for (Customer c : customers.getCustomers()) {
+            if (c.getTicketList().isEmpty() && c.getBalanceCents() == 0) continue;
+            state.put(c.getEmail() + " balance", c.getBalanceCents());
+            state.put(c.getEmail() + " tickets", (long) c.getTicketList().size());
+        }
+        return state;
+    }
+
+    private static void quietly(Runnable work) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            work.run();
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new IllegalStateException(message);
+    }
+}
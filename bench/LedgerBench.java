@@ -0,0 +1,133 @@
+package bench;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.Customer;
+import model.Flight;
+import model.Ledger;
+import model.Plane;
+import model.Ticket;
+import model.enums.FareClass;
+import model.enums.PlaneType;
+
+/**
+ * Benchmark and checks for {@link Ledger}.
+ * <p>
+ * First the exactly-once rules on one ticket: a second booking charge, a repeated
+ * upgrade revision and a second refund post nothing, and the refund returns exactly
+ * what was charged. Then threads post every booking charge twice across 1,000
+ * customers; the ledger total and the customers' balances must both come to exactly
+ * one charge per ticket, and the rate is reported. Last, one thread refunds tickets
+ * while another upgrades the same tickets: once a ticket is refunded nothing may stay
+ * charged on it.
+ * </p>
+ * Usage: {@code java -cp out bench.LedgerBench [threads]} (default 4).
+ */
+public class LedgerBench {
+    private static final Map<FareClass, Double> PRICES = Map.of(FareClass.ECONOMY, 0.10, FareClass.FIRST, 0.70);
+    private static final int CUSTOMERS = 1_000;
+    private static final int TICKETS = 2_000_000;
+    private static final int RACED = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        Flight flight = flight();
+        checkExactlyOnce(flight);
+        time(flight, threads);
+        checkRefundAgainstUpgrade(flight);
+        System.out.println("OK: every posting applied exactly once");
+    }
+
+    private static void checkExactlyOnce(Flight flight) {
+        Ledger ledger = new Ledger();
+        Customer c = new Customer("once", "1", "once@x");
+        Ticket t = new Ticket(FareClass.ECONOMY, flight, c);
+        check(ledger.charge(t) != null && ledger.charge(t) == null, "a booking was charged twice");
+        check(ledger.chargeUpgrade(t, 1, 60) != null && ledger.chargeUpgrade(t, 1, 60) == null,
+                "an upgrade revision was charged twice");
+        check(ledger.netCents(t) == 70 && c.getBalanceCents() == 70, "charged " + ledger.netCents(t) + " cents, expected 70");
+        Ledger.Entry refund = ledger.refund(t);
+        check(refund != null && refund.cents() == -70, "the refund did not return what was charged: " + refund);
+        check(ledger.refund(t) == null, "a ticket was refunded twice");
+        check(ledger.chargeUpgrade(t, 2, 60) == null, "a refunded ticket was charged for an upgrade");
+        check(ledger.netCents(t) == 0 && c.getBalanceCents() == 0, "a refunded ticket still owes " + ledger.netCents(t));
+        check(ledger.size() == 3, ledger.size() + " entries posted, expected 3");
+    }
+
+    private static void time(Flight flight, int threads) throws Exception {
+        Ledger ledger = new Ledger();
+        Customer[] customers = new Customer[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) customers[i] = new Customer("c" + i, String.valueOf(i), "c" + i + "@x");
+        Ticket[] tickets = new Ticket[TICKETS];
+        for (int i = 0; i < TICKETS; i++) tickets[i] = new Ticket(FareClass.ECONOMY, flight, customers[i % CUSTOMERS]);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> work = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            work.add(pool.submit(() -> {
+                // every booking is posted twice, as a retried request would
+                for (int i = first; i < TICKETS; i += threads) {
+                    ledger.charge(tickets[i]);
+                    ledger.charge(tickets[i]);
+                }
+            }));
+        }
+        for (Future<?> f : work) f.get();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        long expected = TICKETS * tickets[0].getPriceCents();
+        long balances = 0;
+        for (Customer c : customers) balances += c.getBalanceCents();
+        check(ledger.totalChargedCents() == expected, "ledger charged " + ledger.totalChargedCents() + " cents, expected " + expected);
+        check(balances == expected, "customers owe " + balances + " cents, expected " + expected);
+        check(ledger.size() == TICKETS, ledger.size() + " entries for " + TICKETS + " bookings");
+        System.out.printf("threads=%d: %.0fk postings/s (each booking posted twice), total %d cents%n",
+                threads, TICKETS / (elapsed / 1e6), expected);
+    }
+
+    private static void checkRefundAgainstUpgrade(Flight flight) throws Exception {
+        Ledger ledger = new Ledger();
+        Customer c = new Customer("race", "2", "race@x");
+        Ticket[] tickets = new Ticket[RACED];
+        for (int i = 0; i < RACED; i++) {
+            tickets[i] = new Ticket(FareClass.ECONOMY, flight, c);
+            ledger.charge(tickets[i]);
+        }
+        Thread upgrades = new Thread(() -> {
+            for (Ticket t : tickets) ledger.chargeUpgrade(t, 1, 60);
+        });
+        Thread refunds = new Thread(() -> {
+            for (Ticket t : tickets) ledger.refund(t);
+        });
+        upgrades.start();
+        refunds.start();
+        upgrades.join();
+        refunds.join();
+
+        int charged = 0;
+        for (Ticket t : tickets) if (ledger.netCents(t) != 0) charged++;
+        check(charged == 0, charged + " tickets still charged after their refund");
+        check(c.getBalanceCents() == 0, "balance " + c.getBalanceCents() + " cents after refunding everything");
+        check(ledger.totalChargedCents() == ledger.totalRefundedCents(), "charges and refunds do not cancel out");
+        System.out.printf("refund against upgrade: %d tickets, none left charged%n", RACED);
+    }
+
+    private static Flight flight() {
+        LocalDateTime departure = LocalDateTime.of(2025, 1, 1, 8, 0);
+        return new Flight("L1", "X", "AAA", "BBB", departure, departure.plusHours(2),
+                new Plane("P", PlaneType.A320, 150, PRICES), 0);
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new IllegalStateException(message);
+    }
+}
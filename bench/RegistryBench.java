@@ -0,0 +1,130 @@
+package bench;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.Flight;
+import model.FlightRegistry;
+import model.Plane;
+import model.enums.FareClass;
+import model.enums.PlaneType;
+
+/**
+ * Benchmark and checks for {@link FlightRegistry}.
+ * <p>
+ * Registers {@code n} flights and reports the heap they take (after GC, including both
+ * LocalDateTimes, the key and the map node) and the time per registration, either with
+ * every flight sharing one plane or each with its own A320. Then it checks the registry
+ * under concurrency: threads registering disjoint flights must all land, threads racing
+ * on one key must leave exactly one winner, and a delay must re-key a flight while a
+ * retime onto a taken key is refused without moving it.
+ * </p>
+ * Usage: {@code java -cp out bench.RegistryBench [n] [own]} (default 1,000,000, shared plane).
+ */
+public class RegistryBench {
+    private static final Map<FareClass, Double> PRICES =
+            Map.of(FareClass.FIRST, 700.0, FareClass.BUSINESS, 350.0, FareClass.ECONOMY, 150.0);
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        boolean ownPlanes = args.length > 1 && args[1].equals("own");
+        measure(n, ownPlanes);
+        checkConcurrentRegistration(4, 50_000);
+        checkRetimes();
+        System.out.println("OK: registry consistent");
+    }
+
+    private static void measure(int n, boolean ownPlanes) {
+        Plane shared = new Plane("P", PlaneType.A320, 150, PRICES);
+        String[] numbers = numbers(5_000);
+        long before = usedHeap();
+        FlightRegistry registry = new FlightRegistry(n);
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            LocalDateTime departure = BASE.plusMinutes(i / numbers.length * 60L + i % 60);
+            Plane plane = ownPlanes ? new Plane("P" + i, PlaneType.A320, 150, PRICES) : shared;
+            registry.create(numbers[i % numbers.length], "X", "AAA", "BBB", departure, departure.plusHours(2), plane, 1);
+        }
+        long elapsed = System.nanoTime() - start;
+        long after = usedHeap();
+        check(registry.size() == n, "registered " + registry.size() + " of " + n);
+        System.out.printf("%s: %d flights, %.0f bytes/flight, %.0f ns/registration%n",
+                ownPlanes ? "own plane" : "shared plane", n, (after - before) / (double) n, elapsed / (double) n);
+    }
+
+    private static void checkConcurrentRegistration(int threads, int perThread) throws Exception {
+        FlightRegistry registry = new FlightRegistry();
+        Plane plane = new Plane("P", PlaneType.A320, 150, PRICES);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "T" + t + "-";
+            results.add(pool.submit(() -> {
+                int clashes = 0;
+                for (int i = 0; i < perThread; i++) {
+                    LocalDateTime departure = BASE.plusMinutes(i);
+                    registry.create(prefix + (i % 100), "X", "AAA", "BBB", departure, departure.plusHours(1), plane, 1);
+                    // every thread also races for the same shared key
+                    try {
+                        registry.create("SHARED", "X", "AAA", "BBB", departure, departure.plusHours(1), plane, 1);
+                    } catch (IllegalStateException taken) {
+                        clashes++;
+                    }
+                }
+                return clashes;
+            }));
+        }
+        int clashes = 0;
+        for (Future<Integer> f : results) clashes += f.get();
+        pool.shutdown();
+        check(clashes == (threads - 1) * perThread, clashes + " clashes on the shared key, expected " + (threads - 1) * perThread);
+        check(registry.size() == (threads + 1) * perThread,
+                "registry has " + registry.size() + " flights, expected " + (threads + 1) * perThread);
+        System.out.printf("concurrent registration, %d threads: %d flights, one winner per shared key%n",
+                threads, registry.size());
+    }
+
+    private static void checkRetimes() {
+        FlightRegistry registry = new FlightRegistry();
+        Plane plane = new Plane("P", PlaneType.A320, 150, PRICES);
+        LocalDateTime d = BASE.plusHours(10);
+        Flight first = registry.create("X1", "X", "SFO", "LAX", d, d.plusHours(1), plane, 1);
+        Flight second = registry.create("X1", "X", "SFO", "LAX", d.plusHours(1), d.plusHours(2), plane, 1);
+        try {
+            first.reschedule(d.plusHours(1), d.plusHours(2));
+            throw new IllegalStateException("a retime onto a taken key was accepted");
+        } catch (IllegalStateException refused) {
+            check(first.getDepartureUTC().equals(d), "a refused retime moved the flight");
+        }
+        check(registry.contains(first) && registry.contains(second), "a refused retime changed the registry");
+
+        first.reschedule(d, d.plusHours(3));
+        check(registry.contains(first), "a retime keeping the departure dropped the flight");
+        first.delayByMinutes(30);
+        check(registry.contains(first) && registry.get("X1", d) == null, "a delay did not re-key the flight");
+        check(registry.get("X1", d.plusMinutes(30)) == first, "the delayed flight is not under its new key");
+        check(registry.remove(first) && registry.size() == 1, "removing the delayed flight failed");
+    }
+
+    private static String[] numbers(int count) {
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) numbers[i] = "XX" + i;
+        return numbers;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,138 @@
+package bench;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import model.Crew;
+import model.DutyTimeEngine;
+import model.Flight;
+import model.FlightAttendant;
+import model.Pilot;
+import model.Plane;
+import model.RosterSolver;
+import model.enums.FAPosition;
+import model.enums.FareClass;
+import model.enums.PilotRank;
+import model.enums.PlaneType;
+
+/**
+ * Benchmark and checks for {@link RosterSolver}.
+ * <p>
+ * Builds a week of 2,500 round trips out of 8 hubs to 32 outstations on four plane
+ * types, and 2,000 crew based at the hubs, each rated on two types. It solves the whole
+ * schedule several times and reports the solve time and how many flights stay short of
+ * crew. The last roster is then checked leg by leg: every crew member is rated for the
+ * plane, starts from their base, flies a chain where each flight leaves from where the
+ * last one landed with at least the minimum turn in between, and stays within the duty
+ * limits when their flights are replayed through a fresh {@link DutyTimeEngine}. Last it
+ * is applied and the fully crewed flights counted.
+ * </p>
+ * Usage: {@code java -cp out bench.RosterBench [solves]} (default 5).
+ */
+public class RosterBench {
+    private static final int AIRPORTS = 40;
+    private static final int HUBS = 8;
+    private static final int ROUND_TRIPS = 2_500;
+    private static final int CREW = 2_000;
+    private static final PlaneType[] TYPES = {PlaneType.A320, PlaneType.B737, PlaneType.E175, PlaneType.B787};
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 5, 0);
+
+    public static void main(String[] args) {
+        int solves = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Random rnd = new Random(5);
+        String[] airports = new String[AIRPORTS];
+        for (int i = 0; i < AIRPORTS; i++) airports[i] = "A" + i;
+        List<Flight> flights = schedule(rnd, airports);
+        List<Crew> crew = crew(rnd, airports);
+
+        RosterSolver solver = new RosterSolver();
+        RosterSolver.Roster roster = null;
+        for (int i = 0; i < solves; i++) {
+            roster = solver.solve(flights, crew);
+            System.out.printf("solve %d: %d ms, %d assignments, %d of %d flights understaffed%n", i + 1,
+                    roster.solveTime().toMillis(), roster.assignments().size(), roster.understaffed().size(), flights.size());
+        }
+        check(roster != null, "no solve was run");
+        validate(roster, solver);
+        roster.apply();
+        int full = 0;
+        for (Flight f : flights) if (f.hasRequiredCrew()) full++;
+        System.out.printf("fully crewed after apply: %d of %d flights%n", full, flights.size());
+        System.out.println("OK: every crew chain is legal");
+    }
+
+    private static void validate(RosterSolver.Roster roster, RosterSolver solver) {
+        Map<Crew, List<Flight>> byCrew = new HashMap<>();
+        for (RosterSolver.Assignment a : roster.assignments()) {
+            check(a.crew().canOperate(a.flight().getPlaneType()),
+                    a.crew().getEmployeeId() + " is not rated for " + a.flight().getPlaneType());
+            byCrew.computeIfAbsent(a.crew(), k -> new ArrayList<>()).add(a.flight());
+        }
+        for (Map.Entry<Crew, List<Flight>> e : byCrew.entrySet()) {
+            Crew c = e.getKey();
+            List<Flight> legs = e.getValue();
+            legs.sort(Comparator.comparing(Flight::getDepartureUTC));
+            check(legs.get(0).getOrigin().equals(c.getBaseAirport()),
+                    c.getEmployeeId() + " starts at " + legs.get(0).getOrigin() + ", away from base " + c.getBaseAirport());
+            for (int i = 1; i < legs.size(); i++) {
+                Flight prev = legs.get(i - 1);
+                Flight next = legs.get(i);
+                check(!prev.getArrivalUTC().plus(solver.getMinTurn()).isAfter(next.getDepartureUTC()),
+                        c.getEmployeeId() + " turns " + prev.getFlightNumber() + " into " + next.getFlightNumber() + " too fast");
+                check(prev.getDestination().equals(next.getOrigin()),
+                        c.getEmployeeId() + " lands at " + prev.getDestination() + " but leaves from " + next.getOrigin());
+            }
+            DutyTimeEngine duty = new DutyTimeEngine();
+            for (Flight f : legs) {
+                check(duty.canTake(c, f), c.getEmployeeId() + " on " + f.getFlightNumber() + ": " + duty.check(c, f));
+                duty.record(c, f);
+            }
+        }
+        System.out.printf("validated %d crew chains%n", byCrew.size());
+    }
+
+    // Round trips from a hub to an outstation and back on the same plane, 45-105 minutes on the ground
+    private static List<Flight> schedule(Random rnd, String[] airports) {
+        Map<FareClass, Double> prices = Map.of(FareClass.ECONOMY, 100.0);
+        List<Flight> flights = new ArrayList<>(2 * ROUND_TRIPS);
+        for (int i = 0; i < ROUND_TRIPS; i++) {
+            String hub = airports[rnd.nextInt(HUBS)];
+            String outstation = airports[HUBS + rnd.nextInt(AIRPORTS - HUBS)];
+            Plane plane = new Plane("P" + i, TYPES[rnd.nextInt(TYPES.length)], 100, prices);
+            LocalDateTime out = START.plusDays(rnd.nextInt(7)).plusMinutes(rnd.nextInt(16 * 60));
+            int minutes = 60 + rnd.nextInt(240);
+            flights.add(new Flight("X" + i, "X", hub, outstation, out, out.plusMinutes(minutes), plane, 2));
+            LocalDateTime back = out.plusMinutes(minutes + 45 + rnd.nextInt(60));
+            flights.add(new Flight("Y" + i, "X", outstation, hub, back, back.plusMinutes(minutes), plane, 2));
+        }
+        return flights;
+    }
+
+    // A quarter captains, a quarter first officers, half attendants (one in five a lead)
+    private static List<Crew> crew(Random rnd, String[] airports) {
+        LocalDate hired = LocalDate.of(2020, 1, 1);
+        List<Crew> crew = new ArrayList<>(CREW);
+        for (int i = 0; i < CREW; i++) {
+            String base = airports[rnd.nextInt(HUBS)];
+            List<PlaneType> ratings = List.of(TYPES[rnd.nextInt(TYPES.length)], TYPES[rnd.nextInt(TYPES.length)]);
+            if (i < CREW / 4) {
+                crew.add(new Pilot("C" + i, "c", hired, base, PilotRank.CAPTAIN, ratings, 1000));
+            } else if (i < CREW / 2) {
+                crew.add(new Pilot("F" + i, "f", hired, base, PilotRank.FIRST_OFFICER, ratings, 500));
+            } else {
+                crew.add(new FlightAttendant("A" + i, "a", hired, base, i % 5 == 0 ? FAPosition.LEAD : FAPosition.JUNIOR, ratings));
+            }
+        }
+        return crew;
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new IllegalStateException(message);
+    }
+}
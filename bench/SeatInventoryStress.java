@@ -0,0 +1,154 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.Plane;
+import model.enums.FareClass;
+import model.enums.PlaneType;
+
+/**
+ * Stress test for the lock-free seat inventory in {@link Plane}.
+ * <p>
+ * Threads book and cancel seats at random on a shared set of planes: single seats by
+ * class, specific seats by code, and all-or-nothing groups across cabins. Every seat a
+ * plane hands out is claimed in an ownership table, so a seat given to two bookings at
+ * once is caught the moment it happens. When the threads stop, each plane must agree
+ * with what they did: no cabin below zero, every taken seat owned by exactly one
+ * booking and every owned seat taken (no oversell, no lost seat), and the cabin counts
+ * summing to the total. Then everything is cancelled and every plane must be empty.
+ * </p>
+ * Usage: {@code java -cp out bench.SeatInventoryStress [threads ...]} (default 1 2 4 8).
+ * Exits with an exception on the first inconsistency.
+ */
+public class SeatInventoryStress {
+    private static final int PLANES = 2_000;
+    private static final int OPERATIONS = 400_000;
+    private static final Map<FareClass, Integer> CABINS =
+            Map.of(FareClass.FIRST, 12, FareClass.BUSINESS, 24, FareClass.ECONOMY, 114);
+    private static final Map<FareClass, Double> PRICES =
+            Map.of(FareClass.FIRST, 700.0, FareClass.BUSINESS, 350.0, FareClass.ECONOMY, 150.0);
+    private static final FareClass[] SOLD = {FareClass.FIRST, FareClass.BUSINESS, FareClass.ECONOMY};
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = args.length == 0 ? new int[]{1, 2, 4, 8} : parse(args);
+        for (int threads : threadCounts) run(threads);
+        System.out.println("OK: no oversold or lost seats");
+    }
+
+    private static void run(int threads) throws Exception {
+        Plane[] planes = new Plane[PLANES];
+        for (int i = 0; i < PLANES; i++) planes[i] = new Plane("P" + i, PlaneType.A320, CABINS, PRICES);
+        int capacity = planes[0].getCapacity();
+        // 1 while a booking holds the seat, per plane * capacity + seat
+        AtomicIntegerArray owned = new AtomicIntegerArray(PLANES * capacity);
+        LongAdder attempts = new LongAdder();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<List<long[]>>> work = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            work.add(pool.submit(() -> book(planes, owned, attempts)));
+        }
+        List<long[]> held = new ArrayList<>();
+        for (Future<List<long[]>> f : work) held.addAll(f.get());
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        for (int p = 0; p < PLANES; p++) verify(planes[p], owned, p * capacity);
+        System.out.printf("threads=%d: %.1fM seat operations/s, %d seats held at the end%n",
+                threads, attempts.sum() / (elapsed / 1e9) / 1e6, held.size());
+
+        // give everything back: every plane must be empty again
+        for (long[] h : held) release(planes, owned, capacity, (int) h[0], (int) h[1]);
+        for (int p = 0; p < PLANES; p++) {
+            verify(planes[p], owned, p * capacity);
+            check(planes[p].getAvailableSeats() == capacity, "plane " + p + " lost seats after releasing everything");
+        }
+    }
+
+    // One thread: 70% bookings of the three kinds, 30% cancels of its own bookings; returns what it still holds
+    private static List<long[]> book(Plane[] planes, AtomicIntegerArray owned, LongAdder attempts) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int capacity = planes[0].getCapacity();
+        List<long[]> held = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int kind = rnd.nextInt(10);
+            if (kind < 3 && !held.isEmpty()) {
+                int k = rnd.nextInt(held.size());
+                long[] h = held.get(k);
+                held.set(k, held.get(held.size() - 1));
+                held.remove(held.size() - 1);
+                release(planes, owned, capacity, (int) h[0], (int) h[1]);
+                continue;
+            }
+            int p = rnd.nextInt(PLANES);
+            Plane plane = planes[p];
+            if (kind < 7) {
+                int seat = plane.reserveSeat(SOLD[rnd.nextInt(SOLD.length)]);
+                if (seat >= 0) take(owned, p * capacity, seat, held, p);
+            } else if (kind < 9) {
+                int seat = rnd.nextInt(capacity);
+                if (plane.reserveSeatByCode(plane.seatCode(seat)) >= 0) take(owned, p * capacity, seat, held, p);
+            } else {
+                int[] counts = new int[FareClass.count()];
+                counts[FareClass.BUSINESS.ordinal()] = rnd.nextInt(3);
+                counts[FareClass.ECONOMY.ordinal()] = 1 + rnd.nextInt(6);
+                int[] seats = plane.reserveSeats(counts);
+                if (seats != null) {
+                    for (int seat : seats) take(owned, p * capacity, seat, held, p);
+                }
+            }
+            attempts.increment();
+        }
+        return held;
+    }
+
+    private static void take(AtomicIntegerArray owned, int base, int seat, List<long[]> held, int plane) {
+        check(owned.compareAndSet(base + seat, 0, 1), "seat " + seat + " of plane " + plane + " handed out twice");
+        held.add(new long[]{plane, seat});
+    }
+
+    // The seat is disowned before the plane gets it back, so whoever is handed it next can claim it
+    private static void release(Plane[] planes, AtomicIntegerArray owned, int capacity, int plane, int seat) {
+        check(owned.compareAndSet(plane * capacity + seat, 1, 0), "seat " + seat + " of plane " + plane + " released twice");
+        planes[plane].releaseSeat(seat);
+    }
+
+    private static void verify(Plane plane, AtomicIntegerArray owned, int base) {
+        int[] heldPerCabin = new int[FareClass.count()];
+        for (int seat = 0; seat < plane.getCapacity(); seat++) {
+            boolean mine = owned.get(base + seat) == 1;
+            check(mine == plane.isSeatTaken(seat), plane.getPlaneId() + " seat " + seat
+                    + (mine ? " is booked but shown free" : " is taken but nobody booked it"));
+            if (mine) heldPerCabin[plane.fareClassOf(seat).ordinal()]++;
+        }
+        int total = 0;
+        for (FareClass fc : FareClass.values()) {
+            int free = plane.getAvailableSeats(fc);
+            check(free >= 0, plane.getPlaneId() + " " + fc.getLabel() + " oversold: " + free);
+            check(free + heldPerCabin[fc.ordinal()] == plane.getSeats(fc),
+                    plane.getPlaneId() + " " + fc.getLabel() + ": " + free + " free + " + heldPerCabin[fc.ordinal()]
+                            + " held != " + plane.getSeats(fc) + " seats");
+            total += free;
+        }
+        check(total == plane.getAvailableSeats(), plane.getPlaneId() + " cabin counts do not add up to the total");
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new IllegalStateException(message);
+    }
+
+    private static int[] parse(String[] args) {
+        int[] n = new int[args.length];
+        for (int i = 0; i < args.length; i++) n[i] = Integer.parseInt(args[i]);
+        return n;
+    }
+}
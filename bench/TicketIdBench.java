@@ -0,0 +1,99 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.TicketIdAllocator;
+
+/**
+ * Benchmark and checks for {@link TicketIdAllocator}.
+ * <p>
+ * First the restart rules on a persistent allocator: the mark on disk must always be
+ * ahead of every id handed out, a second allocator on the same file must start past
+ * everything the first one handed out, and {@link TicketIdAllocator#advancePast} must
+ * skip ahead. Then threads draw ids as fast as they can from one persistent allocator;
+ * every id drawn must be unique, and the rate is reported per thread count.
+ * </p>
+ * Usage: {@code java -cp out bench.TicketIdBench [threads ...]} (default 1 4).
+ * The mark files go to a temporary directory that is removed at the end.
+ */
+public class TicketIdBench {
+    private static final int IDS_PER_THREAD = 5_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = args.length == 0 ? new int[]{1, 4} : parse(args);
+        Path dir = Files.createTempDirectory("ticket-ids");
+        try {
+            checkRestart(dir.resolve("restart"));
+            for (int threads : threadCounts) time(dir.resolve("threads-" + threads), threads);
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : files.toList()) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+        System.out.println("OK: ids unique across threads and restarts");
+    }
+
+    private static void checkRestart(Path mark) throws IOException {
+        TicketIdAllocator first = TicketIdAllocator.persistent(mark);
+        int highest = 0;
+        for (int i = 0; i < 100_000; i++) {
+            int id = first.next();
+            check(id > highest, "id " + id + " after " + highest);
+            highest = id;
+            if (i % 10_000 == 0) check(storedMark(mark) > id, "id " + id + " is not below the stored mark " + storedMark(mark));
+        }
+        TicketIdAllocator second = TicketIdAllocator.persistent(mark);
+        int resumed = second.next();
+        check(resumed > highest, "after a restart id " + resumed + " repeats the range up to " + highest);
+
+        second.advancePast(resumed + 1_000_000L);
+        TicketIdAllocator third = TicketIdAllocator.persistent(mark);
+        check(third.next() > resumed + 1_000_000L, "an advance was not stored in the mark");
+        System.out.printf("restart: first allocator reached %d, the next resumed at %d%n", highest, resumed);
+    }
+
+    private static void time(Path mark, int threads) throws Exception {
+        TicketIdAllocator allocator = TicketIdAllocator.persistent(mark);
+        int[] ids = new int[IDS_PER_THREAD * threads];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> work = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int base = t * IDS_PER_THREAD;
+            work.add(pool.submit(() -> {
+                for (int i = 0; i < IDS_PER_THREAD; i++) ids[base + i] = allocator.next();
+            }));
+        }
+        for (Future<?> f : work) f.get();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        Arrays.sort(ids);
+        for (int i = 1; i < ids.length; i++) check(ids[i] != ids[i - 1], "id " + ids[i] + " handed out twice");
+        check(storedMark(mark) > ids[ids.length - 1], "the stored mark is behind the ids handed out");
+        System.out.printf("threads=%d: %.1fM ids/s, all %d unique%n", threads, ids.length / (elapsed / 1e3), ids.length);
+    }
+
+    private static long storedMark(Path mark) throws IOException {
+        return Long.parseLong(Files.readString(mark).trim());
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new IllegalStateException(message);
+    }
+
+    private static int[] parse(String[] args) {
+        int[] n = new int[args.length];
+        for (int i = 0; i < args.length; i++) n[i] = Integer.parseInt(args[i]);
+        return n;
+    }
+}
@@ -0,0 +1,609 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import model.enums.CrewStatus;
+import model.enums.FAPosition;
+import model.enums.FareClass;
+import model.enums.PilotRank;
+import model.enums.PlaneType;
+import model.enums.ReservationStatus;
+
+/**
+ * Binary snapshot of the whole airline: planes, crew, customers, flights with their crew
+ * assignments, and every ticket on a flight manifest with its ledger state.
+ * <p>
+ * <b>Format (version 3):</b> a 128-byte header with section offsets and counts, then the
+ * flights (each followed by its tickets), planes, crew, customers and finally a string
+ * table. Every string (airports, airlines, names, ...) is stored once and referenced by
+ * its index, and flights and tickets refer to planes, crew and customers by their index
+ * in those sections, so identical values load as one shared object.
+ * </p>
+ * <b>Loading</b> maps the file and builds objects through package-private restore paths:
+ * no listener calls, no journaling, no re-validation of assignments and no seat search
+ * (each ticket takes back its own seat). Planes with the same cabin configuration share
+ * their seat and price arrays, and their {@link SeatLayout}.
+ * <p>
+ * <b>Writing</b> runs on a background thread ({@link #writeAsync}) into a temporary file
+ * that is forced and then moved over the old snapshot, so a crash leaves the previous
+ * snapshot intact. The snapshot stores the {@link ReservationJournal#mark()} taken before
+ * it started; after loading, replay the journal from that mark. Bookings may continue
+ * while a snapshot is written: replaying an event the snapshot already reflects changes
+ * nothing, so the result converges. The ledger keeps balances and posting keys across a
+ * snapshot, but its entry history restarts; its totals are rebuilt from the tickets so
+ * they agree with the balances.
+ * </p>
+ * Customer ticket lists are restored in flight order rather than booking order.
+ */
+public final class AirlineSnapshot {
+    /**
+     * What {@link #load} rebuilt. {@code journalMark} is null if no journal was given when writing.
+     *
+     * @param unseated tickets put back without their seat because another ticket in the snapshot
+     *                 already held it (a fuzzy snapshot can catch a seat both before it was given
+     *                 up and after it was rebooked; replaying the journal usually settles which)
+     * @param refused  ids of tickets left out because their flight already had a ticket with that id
+     */
+    public record Contents(FlightRegistry registry, CustomerDirectory customers, List<Crew> crew,
+                           ReservationJournal.Mark journalMark, long tickets,
+                           List<Ticket> unseated, List<Integer> refused) { }
+
+    private static final int MAGIC = 0x41534E31; // "ASN1"
+    private static final int VERSION = 3;
+    private static final int HEADER = 128;
+    private static final int NONE = -1;
+
+    private static final byte PILOT = 0;
+    private static final byte ATTENDANT = 1;
+
+    private static final byte FILED = 1;
+    private static final byte BOOKED = 2;
+    private static final byte REFUNDED = 4;
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "airline-snapshot-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private AirlineSnapshot() { }
+
+    /**
+     * Write a snapshot on the background writer thread. Snapshots are written one at a time.
+     *
+     * @param crew extra crew to include besides those assigned to flights (e.g. reserves); may be empty
+     * @param mark the journal position the snapshot covers, or null
+     * @return completes with {@code file} once it is on disk
+     */
+    public static CompletableFuture<Path> writeAsync(Path file, FlightRegistry registry, CustomerDirectory customers,
+                                                     Collection<? extends Crew> crew, Ledger ledger,
+                                                     ReservationJournal.Mark mark) {
+        return CompletableFuture.supplyAsync(() -> write(file, registry, customers, crew, ledger, mark), WRITER);
+    }
+
+    /**
+     * Write a snapshot on the calling thread.
+     *
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public static Path write(Path file, FlightRegistry registry, CustomerDirectory customers,
+                             Collection<? extends Crew> crew, Ledger ledger, ReservationJournal.Mark mark) {
+        Objects.requireNonNull(file, "file");
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                new Writer(ch, ledger).write(registry, customers, crew, mark);
+                ch.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + file, e);
+        }
+        return file;
+    }
+
+    /**
+     * Load a snapshot into new objects. Ledger state of the tickets is restored into
+     * {@code ledger}; journaling is not involved.
+     *
+     * @throws UncheckedIOException  if the file cannot be read
+     * @throws IllegalStateException if the file is not a snapshot this version can read
+     */
+    public static Contents load(Path file, Ledger ledger) {
+        Objects.requireNonNull(ledger, "ledger");
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Reader(new In(ch), ledger).read(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot " + file, e);
+        }
+    }
+
+    // ---- Writing ----
+
+    private static final class Writer {
+        private final Out out;
+        private final Ledger ledger;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final List<String> stringList = new ArrayList<>();
+        private final Map<Plane, Integer> planes = new IdentityHashMap<>();
+        private final Map<Crew, Integer> crew = new IdentityHashMap<>();
+        private final Map<Customer, Integer> customers = new IdentityHashMap<>();
+        private final List<Plane> planeList = new ArrayList<>();
+        private final List<Crew> crewList = new ArrayList<>();
+        private final List<Customer> customerList = new ArrayList<>();
+
+        Writer(FileChannel ch, Ledger ledger) {
+            this.out = new Out(ch);
+            this.ledger = ledger;
+        }
+
+        void write(FlightRegistry registry, CustomerDirectory directory, Collection<? extends Crew> extraCrew,
+                   ReservationJournal.Mark mark) throws IOException {
+            for (Customer c : directory.getCustomers()) ref(customers, customerList, c);
+            for (Crew c : extraCrew) ref(crew, crewList, c);
+
+            out.skip(HEADER);
+            long flightsOffset = out.position();
+            int flightCount = 0;
+            long ticketCount = 0;
+            for (Flight f : registry.getFlights()) {
+                ticketCount += flight(f);
+                flightCount++;
+            }
+            long planesOffset = out.position();
+            for (Plane p : planeList) plane(p);
+            long crewOffset = out.position();
+            for (Crew c : crewList) crew(c);
+            long customersOffset = out.position();
+            for (Customer c : customerList) customer(c, directory);
+            long stringsOffset = out.position();
+            out.putInt(stringList.size());
+            for (String s : stringList) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                if (b.length > 0xFFFF) throw new IllegalArgumentException("String too long for a snapshot: " + b.length + " bytes");
+                out.putShort(b.length);
+                out.put(b);
+            }
+            out.flush();
+
+            ByteBuffer h = ByteBuffer.allocate(HEADER);
+            h.putInt(MAGIC).putInt(VERSION)
+                    .putLong(mark == null ? 0 : mark.journalId()).putLong(mark == null ? 0 : mark.records())
+                    .putLong(System.currentTimeMillis())
+                    .putLong(flightsOffset).putLong(planesOffset).putLong(crewOffset)
+                    .putLong(customersOffset).putLong(stringsOffset)
+                    .putInt(flightCount).putInt(planeList.size()).putInt(crewList.size()).putInt(customerList.size())
+                    .putLong(ticketCount).putInt(FareClass.count());
+            h.clear();
+            out.writeAt(h, 0);
+        }
+
+        private long flight(Flight f) throws IOException {
+            str(f.getFlightNumber());
+            str(f.getAirline());
+            str(f.getOrigin());
+            str(f.getDestination());
+            out.putLong(epochSecond(f.getDepartureUTC()));
+            out.putLong(epochSecond(f.getArrivalUTC()));
+            str(f.getGate());
+            str(f.getArrivalGate());
+            out.putInt(ref(planes, planeList, f.getPlane()));
+            out.putInt(f.getMinAttendants());
+            out.putInt(crewRef(f.getCaptain()));
+            out.putInt(crewRef(f.getFirstOfficer()));
+            List<FlightAttendant> attendants = f.getAttendants();
+            out.putInt(attendants.size());
+            for (FlightAttendant fa : attendants) out.putInt(crewRef(fa));
+
+            List<Ticket> tickets = f.getTickets();
+            out.putInt(tickets.size());
+            for (Ticket t : tickets) ticket(t);
+            return tickets.size();
+        }
+
+        // The ticket's fields and its postings are read under the ticket lock, and the postings
+        // in one step under the account lock, so a posting in flight is either saved whole or
+        // left for the journal to replay
+        private void ticket(Ticket t) throws IOException {
+            Customer c = t.getCustomer();
+            synchronized (t) {
+                Ledger.Postings posted = ledger.postings(t);
+                int flags = 0;
+                if (c != null && c.hasTicket(t)) flags |= FILED;
+                if (posted.booked()) flags |= BOOKED;
+                if (posted.refunded()) flags |= REFUNDED;
+                out.putInt(t.getTicketId());
+                out.putInt(c == null ? NONE : ref(customers, customerList, c));
+                out.put((byte) t.getFareClass().ordinal());
+                out.put((byte) t.getStatus().ordinal());
+                out.put((byte) flags);
+                out.putInt(t.getSeatIndex());
+                out.putLong(t.getPriceCents());
+                out.putLong(t.getCreatedAt().toEpochMilli());
+                out.putInt(t.getRevision());
+                out.putInt(posted.upgrades());
+                out.putLong(posted.netCents());
+                out.putLong(posted.chargedCents());
+            }
+        }
+
+        private void plane(Plane p) throws IOException {
+            str(p.getPlaneId());
+            out.put((byte) p.getPlaneType().ordinal());
+            for (int seats : p.cabinSeatArray()) out.putInt(seats);
+            for (double price : p.priceArray()) out.putDouble(price);
+        }
+
+        private void crew(Crew c) throws IOException {
+            out.put(c instanceof Pilot ? PILOT : ATTENDANT);
+            str(c.getEmployeeId());
+            str(c.getFullName());
+            out.putLong(c.getHiredOn() == null ? Long.MIN_VALUE : c.getHiredOn().toEpochDay());
+            out.put((byte) c.getStatus().ordinal());
+            str(c.getBaseAirport());
+            if (c instanceof Pilot p) {
+                out.put((byte) p.getRank().ordinal());
+                out.putInt(p.getTotalFlightHours());
+            } else {
+                out.put((byte) ((FlightAttendant) c).getPosition().ordinal());
+                out.putInt(0);
+            }
+            out.putLong(typeMask(c.getQualifiedTypes()));
+        }
+
+        private void customer(Customer c, CustomerDirectory directory) throws IOException {
+            out.putInt(c.getCustomerId());
+            str(c.getName());
+            str(c.getPhoneNumber());
+            str(c.getEmail());
+            out.put((byte) (directory.get(c.getCustomerId()) == c ? 1 : 0));
+        }
+
+        private int crewRef(Crew c) {
+            return c == null ? NONE : ref(crew, crewList, c);
+        }
+
+        private void str(String s) throws IOException {
+            if (s == null) {
+                out.putInt(NONE);
+                return;
+            }
+            Integer id = strings.get(s);
+            if (id == null) {
+                id = stringList.size();
+                strings.put(s, id);
+                stringList.add(s);
+            }
+            out.putInt(id);
+        }
+
+        private static <T> int ref(Map<T, Integer> refs, List<T> list, T value) {
+            Integer id = refs.get(value);
+            if (id == null) {
+                id = list.size();
+                refs.put(value, id);
+                list.add(value);
+            }
+            return id;
+        }
+    }
+
+    // ---- Reading ----
+
+    private static final class Reader {
+        private final In in;
+        private final Ledger ledger;
+        private final FareClass[] fares = FareClass.values();
+        private final ReservationStatus[] statuses = ReservationStatus.values();
+        private final PlaneType[] types = PlaneType.values();
+        private final CrewStatus[] crewStatuses = CrewStatus.values();
+        private final PilotRank[] ranks = PilotRank.values();
+        private final FAPosition[] positions = FAPosition.values();
+        private String[] strings;
+        private final List<Ticket> unseated = new ArrayList<>();
+        private final List<Integer> refused = new ArrayList<>();
+
+        Reader(In in, Ledger ledger) {
+            this.in = in;
+            this.ledger = ledger;
+        }
+
+        Contents read(Path file) throws IOException {
+            if (in.size() < HEADER || in.getInt() != MAGIC) throw new IllegalStateException(file + " is not an airline snapshot");
+            int version = in.getInt();
+            if (version != VERSION) throw new IllegalStateException(file + " is snapshot version " + version + ", expected " + VERSION);
+            long journalId = in.getLong();
+            long journalRecords = in.getLong();
+            in.getLong(); // written at
+            long flightsOffset = in.getLong();
+            long planesOffset = in.getLong();
+            long crewOffset = in.getLong();
+            long customersOffset = in.getLong();
+            long stringsOffset = in.getLong();
+            int flightCount = in.getInt();
+            int planeCount = in.getInt();
+            int crewCount = in.getInt();
+            int customerCount = in.getInt();
+            long ticketCount = in.getLong();
+            if (in.getInt() != FareClass.count()) throw new IllegalStateException(file + " was written with different fare classes");
+
+            in.seek(stringsOffset);
+            strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++) strings[i] = in.getString();
+
+            in.seek(planesOffset);
+            Plane[] planes = new Plane[planeCount];
+            Map<CabinConfig, CabinConfig> configs = new HashMap<>();
+            for (int i = 0; i < planeCount; i++) planes[i] = plane(configs);
+
+            in.seek(crewOffset);
+            Crew[] crew = new Crew[crewCount];
+            for (int i = 0; i < crewCount; i++) crew[i] = crew();
+
+            in.seek(customersOffset);
+            CustomerDirectory directory = new CustomerDirectory(customerCount);
+            Customer[] customers = new Customer[customerCount];
+            for (int i = 0; i < customerCount; i++) {
+                int id = in.getInt();
+                Customer c = new Customer(str(), str(), str());
+                c.setCustomerId(id);
+                if (in.get() == 1) directory.restore(c);
+                customers[i] = c;
+            }
+
+            in.seek(flightsOffset);
+            FlightRegistry registry = new FlightRegistry(flightCount);
+            for (int i = 0; i < flightCount; i++) registry.register(flight(planes, crew, customers));
+
+            ReservationJournal.Mark mark = journalId == 0 ? null : new ReservationJournal.Mark(journalId, journalRecords);
+            return new Contents(registry, directory, List.of(crew), mark, ticketCount,
+                    List.copyOf(unseated), List.copyOf(refused));
+        }
+
+        private Flight flight(Plane[] planes, Crew[] crew, Customer[] customers) {
+            String number = str(), airline = str(), origin = str(), destination = str();
+            LocalDateTime departure = fromEpochSecond(in.getLong());
+            LocalDateTime arrival = fromEpochSecond(in.getLong());
+            String gate = str(), arrivalGate = str();
+            Flight f = new Flight(number, airline, origin, destination, departure, arrival, planes[in.getInt()], in.getInt());
+            if (gate != null) f.setGate(gate);
+            if (arrivalGate != null) f.setArrivalGate(arrivalGate);
+            Pilot captain = (Pilot) crewAt(crew, in.getInt());
+            Pilot firstOfficer = (Pilot) crewAt(crew, in.getInt());
+            int n = in.getInt();
+            List<FlightAttendant> attendants = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) attendants.add((FlightAttendant) crewAt(crew, in.getInt()));
+            f.restoreCrew(captain, firstOfficer, attendants);
+
+            int tickets = in.getInt();
+            for (int i = 0; i < tickets; i++) ticket(f, customers);
+            return f;
+        }
+
+        private void ticket(Flight f, Customer[] customers) {
+            int id = in.getInt();
+            int customerRef = in.getInt();
+            FareClass fare = fares[in.get()];
+            ReservationStatus status = statuses[in.get()];
+            int flags = in.get();
+            int seat = in.getInt();
+            long priceCents = in.getLong();
+            Instant createdAt = Instant.ofEpochMilli(in.getLong());
+            int revision = in.getInt();
+            int upgrades = in.getInt();
+            long net = in.getLong();
+            long charged = in.getLong();
+            Customer c = customerRef == NONE ? null : customers[customerRef];
+            Ticket t = Ticket.restore(id, fare, f, c, status, createdAt, priceCents, seat);
+            t.restoreRevision(revision);
+            if (!f.restoreTicket(t)) {
+                // its seat is taken: keep the ticket without one
+                t.setSeatIndex(-1);
+                if (!f.restoreTicket(t)) {
+                    refused.add(id);
+                    return;
+                }
+                unseated.add(t);
+            }
+            if (c != null && (flags & FILED) != 0) c.restoreTicket(t);
+            ledger.restoreAccount(t, net, charged, (flags & BOOKED) != 0, upgrades, (flags & REFUNDED) != 0);
+        }
+
+        private Plane plane(Map<CabinConfig, CabinConfig> configs) {
+            String id = str();
+            PlaneType type = types[in.get()];
+            int[] seats = new int[FareClass.count()];
+            double[] prices = new double[FareClass.count()];
+            for (int i = 0; i < seats.length; i++) seats[i] = in.getInt();
+            for (int i = 0; i < prices.length; i++) prices[i] = in.getDouble();
+            CabinConfig config = configs.computeIfAbsent(new CabinConfig(type, seats, prices), k -> k);
+            if (config.layout == null) config.layout = SeatLayout.of(type, Arrays.stream(seats).sum(), seats);
+            return new Plane(id, type, config.seats, config.prices, config.layout);
+        }
+
+        private Crew crew() {
+            byte role = in.get();
+            String id = str(), name = str();
+            long day = in.getLong();
+            LocalDate hiredOn = day == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(day);
+            CrewStatus status = crewStatuses[in.get()];
+            String base = str();
+            int grade = in.get();
+            int hours = in.getInt();
+            Set<PlaneType> quals = types(in.getLong());
+            Crew c = role == PILOT
+                    ? new Pilot(id, name, hiredOn, base, ranks[grade], quals, hours)
+                    : new FlightAttendant(id, name, hiredOn, base, positions[grade], quals);
+            c.setStatus(status);
+            return c;
+        }
+
+        private Set<PlaneType> types(long mask) {
+            Set<PlaneType> set = EnumSet.noneOf(PlaneType.class);
+            for (PlaneType t : types) {
+                if ((mask & (1L << t.ordinal())) != 0) set.add(t);
+            }
+            return set;
+        }
+
+        private static Crew crewAt(Crew[] crew, int ref) {
+            return ref == NONE ? null : crew[ref];
+        }
+
+        private String str() {
+            int ref = in.getInt();
+            return ref == NONE ? null : strings[ref];
+        }
+    }
+
+    // Planes of one type with the same seats and prices share their arrays and layout
+    private static final class CabinConfig {
+        final PlaneType type;
+        final int[] seats;
+        final double[] prices;
+        SeatLayout layout;
+
+        CabinConfig(PlaneType type, int[] seats, double[] prices) {
+            this.type = type;
+            this.seats = seats;
+            this.prices = prices;
+        }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof CabinConfig c && type == c.type && Arrays.equals(seats, c.seats) && Arrays.equals(prices, c.prices);
+        }
+        @Override public int hashCode() { return (31 * type.hashCode() + Arrays.hashCode(seats)) * 31 + Arrays.hashCode(prices); }
+    }
+
+    // ---- Buffered channel output and windowed mapped input ----
+
+    private static final class Out {
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+        private long flushed;
+
+        Out(FileChannel ch) { this.ch = ch; }
+
+        long position() { return flushed + buf.position(); }
+        void put(byte b) throws IOException { need(1); buf.put(b); }
+        void putShort(int v) throws IOException { need(2); buf.putShort((short) v); }
+        void putInt(int v) throws IOException { need(4); buf.putInt(v); }
+        void putLong(long v) throws IOException { need(8); buf.putLong(v); }
+        void putDouble(double v) throws IOException { need(8); buf.putDouble(v); }
+
+        void put(byte[] b) throws IOException {
+            need(b.length);
+            buf.put(b);
+        }
+
+        void skip(int n) throws IOException {
+            need(n);
+            buf.position(buf.position() + n);
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) flushed += ch.write(buf);
+            buf.clear();
+        }
+
+        void writeAt(ByteBuffer b, long pos) throws IOException {
+            while (b.hasRemaining()) pos += ch.write(b, pos);
+        }
+
+        private void need(int n) throws IOException {
+            if (buf.remaining() < n) flush();
+        }
+    }
+
+    // Maps the file in one piece when it fits, otherwise in 1 GB windows
+    private static final class In {
+        private static final long WINDOW = 1L << 30;
+        private final FileChannel ch;
+        private final long size;
+        private MappedByteBuffer buf;
+        private long base;
+
+        In(FileChannel ch) throws IOException {
+            this.ch = ch;
+            this.size = ch.size();
+            map(0);
+        }
+
+        long size() { return size; }
+
+        void seek(long pos) {
+            if (pos >= base && pos - base <= buf.capacity()) buf.position((int) (pos - base));
+            else map(pos);
+        }
+
+        byte get() { need(1); return buf.get(); }
+        int getInt() { need(4); return buf.getInt(); }
+        long getLong() { need(8); return buf.getLong(); }
+        double getDouble() { need(8); return buf.getDouble(); }
+
+        String getString() {
+            need(2);
+            int len = Short.toUnsignedInt(buf.getShort());
+            need(len);
+            byte[] b = new byte[len];
+            buf.get(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        private void need(int n) {
+            if (buf.remaining() < n) {
+                long pos = base + buf.position();
+                if (pos + n > size) throw new IllegalStateException("Snapshot is truncated at byte " + pos);
+                map(pos);
+            }
+        }
+
+        private void map(long pos) {
+            try {
+                buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, size - pos));
+                base = pos;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // ---- Helpers ----
+
+    private static long typeMask(Set<PlaneType> types) {
+        long mask = 0;
+        for (PlaneType t : types) mask |= 1L << t.ordinal();
+        return mask;
+    }
+
+    private static long epochSecond(LocalDateTime t) { return t.toEpochSecond(ZoneOffset.UTC); }
+    private static LocalDateTime fromEpochSecond(long s) { return LocalDateTime.ofEpochSecond(s, 0, ZoneOffset.UTC); }
+}
@@ -1,112 +1,365 @@
 package model;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Airport with a per-gate occupancy index.
+ * <p>
+ * A flight occupies its gate for a window around its time at this airport:
+ * departures from {@code departure - turnaround} to departure, arrivals from arrival
+ * to {@code arrival + turnaround}. Each gate keeps its windows in a TreeMap keyed by
+ * start time; windows on one gate never overlap, so "is gate G free during [t1, t2)"
+ * is a single {@code lowerEntry} lookup, O(log n).
+ * </p>
+ * Departures are also kept in a time-ordered index, so day, range and "next N" queries
+ * return presorted slices without scanning or sorting.
+ * Scheduled flights are watched through {@link FlightListener}, so delays move their
+ * windows and departure slots, and external gate changes drop stale entries. A flight
+ * keeps separate gates at its origin and destination; this airport only reads and writes
+ * its own ({@link Flight#getGateAt}), and sets it after releasing the airport lock, so
+ * listeners on the other airport never run under this one's lock.
+ * <p>
+ * Gates release themselves: every window queues a release event at its end time, and
+ * due events are drained (O(k log n) for k due gates) from the airport's {@link Clock}
+ * on every gate operation or an explicit {@link #releaseDueGates()}. Inject a
+ * {@link model.core.SimulatedClock} to replay a day faster than real time.
+ * </p>
+ */
+public class Airport implements FlightListener {
+    /** Default gate buffer before a departure / after an arrival. */
+    public static final Duration DEFAULT_TURNAROUND = Duration.ofMinutes(45);
 
-public class Airport {
     private final String airportId;
     private final String airportName;
     private final List<String> terminals;
     private final Set<String> gates;
-    private final Set<Flight> scheduledFlights = new HashSet<>();
+    private final Duration turnaround;
+    private final Clock clock;
+    private final Map<FlightKey, Flight> scheduledFlights = new HashMap<>();
+    // gate -> (window start -> window), gates iterated in name order
+    private final NavigableMap<String, TreeMap<LocalDateTime, GateWindow>> gateIndex = new TreeMap<>();
+    private final Map<Flight, GateWindow> windowByFlight = new IdentityHashMap<>();
+    // end of each gate's last window (MIN while it has none), and gates grouped by it, so a gate
+    // that is idle from a given time on is one floorEntry away
+    private final Map<String, LocalDateTime> lastEnd = new HashMap<>();
+    private final NavigableMap<LocalDateTime, NavigableSet<String>> idleFrom = new TreeMap<>();
+    // flights departing from here, in departure order (ties by flight number)
+    private final NavigableMap<FlightKey, Flight> departures = new TreeMap<>(DEPARTURE_ORDER);
+
+    private static final Comparator<FlightKey> DEPARTURE_ORDER =
+            Comparator.comparing(FlightKey::departureUTC).thenComparing(FlightKey::flightNumber);
+
+    // release events by window end; entries whose window was moved or dropped are skipped when polled
+    private final PriorityQueue<GateWindow> releases = new PriorityQueue<>(Comparator.comparing(GateWindow::end));
+
+    /** One flight's hold on one gate, [start, end). */
+    private record GateWindow(String gate, LocalDateTime start, LocalDateTime end, Flight flight) { }
 
     public Airport (String airportId, String airportName, List<String> terminals, Set<String> gates){
+        this(airportId, airportName, terminals, gates, DEFAULT_TURNAROUND);
+    }
+
+    public Airport (String airportId, String airportName, List<String> terminals, Set<String> gates, Duration turnaround){
+        this(airportId, airportName, terminals, gates, turnaround, Clock.systemUTC());
+    }
+
+    /**
+     * @param turnaround gate buffer before a departure / after an arrival
+     * @param clock      time source for automatic gate release; flight times are read as UTC
+     */
+    public Airport (String airportId, String airportName, List<String> terminals, Set<String> gates,
+                    Duration turnaround, Clock clock){
+        this.clock = Objects.requireNonNull(clock);
         this.airportId = Objects.requireNonNull(airportId);
         this.airportName = Objects.requireNonNull(airportName);
         this.terminals = new ArrayList<>(Objects.requireNonNull(terminals));
         this.gates = new HashSet<>(Objects.requireNonNull(gates));
+        this.turnaround = Objects.requireNonNull(turnaround);
+        if (turnaround.isNegative() || turnaround.isZero()) {
+            throw new IllegalArgumentException("Turnaround must be positive: " + turnaround);
+        }
+        for (String gate : this.gates) {
+            gateIndex.put(gate, new TreeMap<>());
+            lastEnd.put(gate, LocalDateTime.MIN);
+            idleFrom.computeIfAbsent(LocalDateTime.MIN, k -> new TreeSet<>()).add(gate);
+        }
     }
 
     public String getAirportId() { return airportId; }
     public String getAirportName() { return airportName; }
     public List<String> getTerminals() { return Collections.unmodifiableList(terminals); }
     public Set<String> getGates() { return Collections.unmodifiableSet(gates); }
+    public Duration getTurnaround() { return turnaround; }
+    public Collection<Flight> getScheduledFlights() { return Collections.unmodifiableCollection(scheduledFlights.values()); }
 
     // ====== Core operations ======
 
     /** Register a flight that involves this airport (origin or destination). */
-    public void scheduleFlight(Flight flight) {
+    public synchronized void scheduleFlight(Flight flight) {
+        Objects.requireNonNull(flight, "flight");
+        if (scheduledFlights.putIfAbsent(flight.getKey(), flight) == null) { // key naturally prevents duplicates
+            if (departsHere(flight)) departures.put(flight.getKey(), flight);
+            flight.addListener(this);
+        }
+    }
+
+    /** Drop a flight from this airport, freeing its gate window. */
+    public synchronized boolean unscheduleFlight(Flight flight) {
         Objects.requireNonNull(flight, "flight");
-        scheduledFlights.add(flight); // Set naturally prevents duplicates
+        if (scheduledFlights.get(flight.getKey()) != flight) return false;
+        scheduledFlights.remove(flight.getKey());
+        departures.remove(flight.getKey());
+        flight.removeListener(this);
+        removeWindow(flight);
+        return true;
     }
 
     /**
      * Assign a gate to the given flight at this airport.
-     * Throws if the gate is unknown or the time window overlaps with another flight using the same gate.
+     * Throws if the gate is unknown or the flight's occupancy window overlaps another flight using the same gate.
      */
     public void assignGate(Flight flight, String gate) {
         Objects.requireNonNull(flight, "flight");
         if (!gates.contains(gate)) {
             throw new IllegalArgumentException("Unknown gate: " + gate);
         }
-        LocalDateTime dep = flight.getDepartureUTC();
-
-        for (Flight f : scheduledFlights) {
-            if (gate.equals(f.getGate()) && sameMinute(dep, f.getDepartureUTC())) {
-                throw new IllegalStateException("Gate " + gate + " is already used at " + dep + " by flight " + f.getFlightNumber());
+        scheduleFlight(flight);
+        releaseDueGates();
+        synchronized (this) {
+            LocalDateTime start = windowStart(flight), end = windowEnd(flight);
+            GateWindow clash = conflict(gate, start, end, flight);
+            if (clash != null) {
+                throw new IllegalStateException("Gate " + gate + " is already used from " + clash.start() + " to " + clash.end()
+                        + " by flight " + clash.flight().getFlightNumber());
             }
+            removeWindow(flight);
+            addWindow(new GateWindow(gate, start, end, flight));
         }
-        flight.setGate(gate);
+        flight.setGateAt(airportId, gate);
     }
 
     /**
      * Release a gate by clearing the gate of flights whose departure is strictly before 'time'.
-     * (Very naive cleanup: once departure time has passed, free the gate.)
+     * (Once departure time has passed, free the gate.)
      */
     public void releaseGate(String gate, LocalDateTime time) {
-        for (Flight f : scheduledFlights) {
-            if (gate.equals(f.getGate()) && f.getDepartureUTC().isBefore(time)) {
-                f.setGate(null);
+        List<GateWindow> released = new ArrayList<>();
+        synchronized (this) {
+            TreeMap<LocalDateTime, GateWindow> windows = gateIndex.get(gate);
+            if (windows == null) return;
+            // a window starts no later than its flight departs, so only windows starting before time qualify
+            for (GateWindow w : windows.headMap(time, false).values()) {
+                if (w.flight().getDepartureUTC().isBefore(time)) released.add(w);
+            }
+            for (GateWindow w : released) removeWindow(w.flight());
+        }
+        clearGates(released);
+    }
+
+    /**
+     * Release every gate whose occupancy window has ended by the clock's current time.
+     * Called automatically by gate operations; call it directly after advancing a simulated clock.
+     *
+     * @return number of gates released
+     */
+    public int releaseDueGates() {
+        LocalDateTime now = LocalDateTime.ofInstant(clock.instant(), ZoneOffset.UTC);
+        List<GateWindow> released = new ArrayList<>();
+        synchronized (this) {
+            while (!releases.isEmpty() && !releases.peek().end().isAfter(now)) {
+                GateWindow w = releases.poll();
+                if (windowByFlight.get(w.flight()) != w) continue; // moved or already released
+                removeWindow(w.flight());
+                released.add(w);
             }
         }
+        clearGates(released);
+        return released.size();
     }
 
     /** Return flights that DEPART from this airport on the specified date, sorted by departure time. */
     public List<Flight> flightsDepartingOn(LocalDate date) {
-        List<Flight> result = new ArrayList<>();
-        for (Flight f : scheduledFlights) {
-            if (airportId.equals(f.getOrigin()) && f.getDepartureUTC().toLocalDate().equals(date)) {
-                result.add(f);
-            }
+        return flightsDepartingBetween(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    /** Flights departing from this airport on any day in [first, last], sorted by departure time. */
+    public List<Flight> flightsDepartingOn(LocalDate first, LocalDate last) {
+        return flightsDepartingBetween(first.atStartOfDay(), last.plusDays(1).atStartOfDay());
+    }
+
+    /** Flights departing from this airport in [from, to), sorted by departure time. */
+    public synchronized List<Flight> flightsDepartingBetween(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) return List.of();
+        // "" sorts before every flight number, so these bounds cover whole instants
+        return List.copyOf(departures.subMap(new FlightKey("", from), true, new FlightKey("", to), false).values());
+    }
+
+    /** The next {@code n} flights departing from this airport strictly after {@code time}. */
+    public synchronized List<Flight> nextDepartures(LocalDateTime time, int n) {
+        List<Flight> result = new ArrayList<>(Math.min(n, departures.size()));
+        for (Flight f : departures.tailMap(new FlightKey("", time.plusNanos(1)), true).values()) {
+            if (result.size() >= n) break;
+            result.add(f);
         }
-        result.sort(Comparator.comparing(Flight::getDepartureUTC));
         return result;
     }
 
+    /** @return true if no flight occupies {@code gate} at any time in [from, to). O(log n). */
+    public boolean isGateFree(String gate, LocalDateTime from, LocalDateTime to) {
+        if (!gates.contains(gate)) throw new IllegalArgumentException("Unknown gate: " + gate);
+        releaseDueGates();
+        synchronized (this) {
+            return conflict(gate, from, to, null) == null;
+        }
+    }
+
     /**
-     * Find the first available gate at the given minute.
-     * A gate is available if no scheduled flight uses it at that exact minute.
+     * Find an available gate at the given minute.
+     * A gate is available if no flight's occupancy window covers that minute.
      */
     public Optional<String> findAvailableGate(LocalDateTime minute) {
-        for (String gate : gates) {
-            boolean busy = false;
-            for (Flight f : scheduledFlights) {
-                if (gate.equals(f.getGate()) && sameMinute(minute, f.getDepartureUTC())) {
-                    busy = true;
-                    break;
-                }
+        return findAvailableGate(minute, minute.plusMinutes(1));
+    }
+
+    /**
+     * A gate free for the whole of [from, to). Gates idle from {@code from} on are found in
+     * O(log n), preferring the one freed most recently so long-idle gates stay open for
+     * longer windows; only if none is idle are the gaps between windows searched, gate by
+     * gate in name order.
+     */
+    public Optional<String> findAvailableGate(LocalDateTime from, LocalDateTime to) {
+        releaseDueGates();
+        synchronized (this) {
+            return Optional.ofNullable(freeGate(from, to));
+        }
+    }
+
+    /** The window a flight would hold a gate for at this airport. */
+    public LocalDateTime windowStart(Flight flight) {
+        return departsHere(flight) ? flight.getDepartureUTC().minus(turnaround) : flight.getArrivalUTC();
+    }
+
+    public LocalDateTime windowEnd(Flight flight) {
+        return departsHere(flight) ? flight.getDepartureUTC() : flight.getArrivalUTC().plus(turnaround);
+    }
+
+    // ---- FlightListener ----
+
+    @Override
+    public void onRetimed(Flight flight, LocalDateTime oldDeparture, LocalDateTime oldArrival) {
+        GateWindow old;
+        String gate;
+        synchronized (this) {
+            FlightKey oldKey = new FlightKey(flight.getFlightNumber(), oldDeparture);
+            if (scheduledFlights.remove(oldKey) != flight) return;
+            scheduledFlights.put(flight.getKey(), flight);
+            if (departures.remove(oldKey) != null) departures.put(flight.getKey(), flight);
+
+            old = windowByFlight.get(flight);
+            if (old == null) return;
+            removeWindow(flight);
+            LocalDateTime start = windowStart(flight), end = windowEnd(flight);
+            gate = old.gate();
+            if (conflict(gate, start, end, flight) != null) {
+                // the delay collides with the next user of the gate: move to any free gate, else unassign
+                gate = freeGate(start, end);
             }
-            if (!busy) return Optional.of(gate);
+            if (gate != null) addWindow(new GateWindow(gate, start, end, flight));
+        }
+        // the flight is told after the lock is released, see the class comment
+        if (gate == null) {
+            flight.compareAndSetGate(airportId, old.gate(), null);
+        } else if (!gate.equals(old.gate())) {
+            flight.changeGateAt(airportId, gate);
         }
-        return Optional.empty();
+    }
+
+    @Override
+    public synchronized void onGateChanged(Flight flight, String airportId, String oldGate) {
+        // only this airport's gate matters; gates set outside assignGate are not checked,
+        // so just drop the stale window
+        if (!this.airportId.equals(airportId)) return;
+        GateWindow w = windowByFlight.get(flight);
+        if (w != null && !w.gate().equals(flight.getGateAt(airportId))) removeWindow(flight);
     }
 
     // ---- Helpers ----
 
-    /** Two datetimes are considered the same "slot" if year, month, day, hour, and minute are all equal. */
-    private static boolean sameMinute(LocalDateTime a, LocalDateTime b) {
-        Objects.requireNonNull(a, "a");
-        Objects.requireNonNull(b, "b");
-        return a.truncatedTo(ChronoUnit.MINUTES)
-            .equals(b.truncatedTo(ChronoUnit.MINUTES));
+    private boolean departsHere(Flight flight) {
+        return airportId.equals(flight.getOrigin());
+    }
+
+    // Window on 'gate' overlapping [from, to), ignoring 'self'; windows on a gate are disjoint,
+    // so the one with the latest start before 'to' is the only candidate.
+    private GateWindow conflict(String gate, LocalDateTime from, LocalDateTime to, Flight self) {
+        TreeMap<LocalDateTime, GateWindow> windows = gateIndex.get(gate);
+        Map.Entry<LocalDateTime, GateWindow> e = windows.lowerEntry(to);
+        while (e != null && e.getValue().flight() == self) e = windows.lowerEntry(e.getKey());
+        if (e == null || !e.getValue().end().isAfter(from)) return null;
+        return e.getValue();
+    }
+
+    // Gate free for [from, to): an idle gate if there is one, else the first gap in name order
+    private String freeGate(LocalDateTime from, LocalDateTime to) {
+        Map.Entry<LocalDateTime, NavigableSet<String>> idle = idleFrom.floorEntry(from);
+        if (idle != null) return idle.getValue().first();
+        for (String gate : gateIndex.keySet()) {
+            if (conflict(gate, from, to, null) == null) return gate;
+        }
+        return null;
+    }
+
+    // Clear the gate of flights whose windows were released, unless it was changed meanwhile;
+    // called without the airport lock
+    private void clearGates(List<GateWindow> released) {
+        for (GateWindow w : released) w.flight().compareAndSetGate(airportId, w.gate(), null);
+    }
+
+    private void addWindow(GateWindow w) {
+        gateIndex.get(w.gate()).put(w.start(), w);
+        windowByFlight.put(w.flight(), w);
+        releases.add(w);
+        reindexIdle(w.gate());
+    }
+
+    private void removeWindow(Flight flight) {
+        GateWindow w = windowByFlight.remove(flight);
+        if (w != null) {
+            gateIndex.get(w.gate()).remove(w.start());
+            reindexIdle(w.gate());
+        }
+    }
+
+    // windows on a gate are disjoint, so the one starting last also ends last
+    private void reindexIdle(String gate) {
+        TreeMap<LocalDateTime, GateWindow> windows = gateIndex.get(gate);
+        LocalDateTime end = windows.isEmpty() ? LocalDateTime.MIN : windows.lastEntry().getValue().end();
+        LocalDateTime old = lastEnd.put(gate, end);
+        if (end.equals(old)) return;
+        NavigableSet<String> was = idleFrom.get(old);
+        was.remove(gate);
+        if (was.isEmpty()) idleFrom.remove(old);
+        idleFrom.computeIfAbsent(end, k -> new TreeSet<>()).add(gate);
     }
 
     @Override public boolean equals(Object o) {
@@ -1,20 +1,38 @@
 package model;
 
-import model.enums.ReservationStatus;
+import model.enums.FareClass;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Scanner;
 
 public class AirportUI {
-    private List<Flight> flights;
-    private List<Customer> customers = new ArrayList<>();
+    private final FlightRegistry registry;
+    private final FlightSearchIndex searchIndex = new FlightSearchIndex();
+    private final FlightNumberIndex numberIndex = new FlightNumberIndex();
+    private final CustomerDirectory customers;
     private Scanner scanner = new Scanner(System.in);
 
     public AirportUI(List<Flight> flights) {
-        this.flights = flights != null ? flights : new ArrayList<>();
+        this(new FlightRegistry());
+        if (flights != null) {
+            for (Flight f : flights) registry.register(f);
+        }
+    }
+
+    public AirportUI(FlightRegistry registry) {
+        this(registry, new CustomerDirectory());
+    }
+
+    public AirportUI(FlightRegistry registry, CustomerDirectory customers) {
+        this.registry = Objects.requireNonNull(registry);
+        this.customers = Objects.requireNonNull(customers);
+        registry.addListener(searchIndex);
+        registry.addListener(numberIndex);
     }
 
     public void start() {
@@ -57,14 +75,7 @@ public class AirportUI {
             System.out.print("Enter arrival airport (code/name): ");
             String destination = scanner.nextLine().trim();
 
-            List<Flight> matches = new ArrayList<>();
-            for (Flight f : flights) {
-                if (f.getOrigin().equalsIgnoreCase(origin)
-                        && f.getDestination().equalsIgnoreCase(destination)
-                        && f.getDepartureUTC().toLocalDate().equals(date)) {
-                    matches.add(f);
-                }
-            }
+            List<Flight> matches = searchIndex.find(origin, destination, date);
 
             if (matches.isEmpty()) {
                 System.out.println("No flights found for that date and route.");
@@ -106,22 +117,19 @@ public class AirportUI {
             String email = scanner.nextLine().trim();
 
             Customer customer = findOrCreateCustomer(name, phone, email);
+            if (customer == null) return;
 
             // Seat Selection
-            System.out.print("Enter seat class (Economy / Business / First): ");
-            String seatClass = scanner.nextLine().trim();
-            double price = priceForClass(seatClass);
+            System.out.print("Enter seat class (" + fareClassPrompt(flight.getPlane()) + "): ");
+            FareClass seatClass = FareClass.fromLabel(scanner.nextLine());
+            double price = flight.getPlane().getPrice(seatClass);
 
             // Final availability check
             Ticket ticket = new Ticket(seatClass, flight, customer);
             try {
-                // throw if full
-                flight.addTicket(ticket);
-
-                // add to customer and update balance
-                customer.getTicketList().add(ticket);
-                customer.setBalance(customer.getBalance() + price);
-                ticket.setStatus(ReservationStatus.CONFIRMED);
+                // seat, file and charge the booking once; throws if full
+                ticket.issue();
+                ReservationJournal.getDefault().sync();
 
                 System.out.println("Booking confirmed! Ticket details:");
                 System.out.println("- Flight: " + flight.getFlightNumber());
@@ -161,9 +169,9 @@ public class AirportUI {
         if (sel <= 0 || sel > tickets.size()) return;
 
         Ticket t = tickets.get(sel - 1);
+        // cancel() gives the seat back; removing it from the manifest does not release it again
         t.cancel();
-        Flight flight = t.getFlight();
-        flight.removeTicket(t);
+        t.getFlight().removeTicket(t);
 
         System.out.println("Ticket canceled successfully.");
     }
@@ -173,19 +181,34 @@ public class AirportUI {
         System.out.print("Enter flight number: ");
         String number = scanner.nextLine().trim();
 
-        Flight flight = null;
-        for (Flight f : flights) {
-            if (f.getFlightNumber().equalsIgnoreCase(number)) {
-                flight = f;
-                break;
-            }
-        }
-
-        if (flight == null) {
+        List<Flight> instances = numberIndex.find(number);
+        if (instances.isEmpty()) {
+            List<String> suggestions = numberIndex.complete(number, 5);
             System.out.println("Flight not found.");
+            if (!suggestions.isEmpty()) System.out.println("Did you mean: " + String.join(", ", suggestions));
             return;
         }
 
+        Flight flight = instances.get(0);
+        if (instances.size() > 1) {
+            System.out.println("Flight " + flight.getFlightNumber() + " operates on several dates:");
+            for (int i = 0; i < instances.size(); i++) {
+                System.out.println((i + 1) + ". Departs " + instances.get(i).getDepartureUTC());
+            }
+            System.out.print("Select a date (press Enter for the next departure): ");
+            String pick = scanner.nextLine().trim();
+            if (pick.isEmpty()) {
+                flight = numberIndex.findNearest(number, LocalDateTime.now());
+            } else {
+                try {
+                    flight = instances.get(Integer.parseInt(pick) - 1);
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    System.out.println("Invalid selection.");
+                    return;
+                }
+            }
+        }
+
         LocalDateTime now = LocalDateTime.now();
         String status = now.isAfter(flight.getDepartureUTC()) ? "Departed" : "Scheduled";
         System.out.println("Flight " + flight.getFlightNumber() + " | " + flight.getOrigin() + " -> " + flight.getDestination());
@@ -196,6 +219,8 @@ public class AirportUI {
 
     private void seeAvailableFlights() {
         System.out.println("All flights:");
+        List<Flight> flights = new ArrayList<>(registry.getFlights());
+        flights.sort(Comparator.comparing(Flight::getDepartureUTC));
         for (Flight f : flights) {
             System.out.printf("%s | %s | %s -> %s | Departs: %s | Arrives: %s | Seats left: %d\n",
                     f.getFlightNumber(), f.getAirline(), f.getOrigin(), f.getDestination(),
@@ -224,17 +249,14 @@ public class AirportUI {
     }
 
 
+    // null, with a message, if the email or phone is on file under another name
     private Customer findOrCreateCustomer(String name, String phone, String email) {
-        for (Customer c : customers) {
-            if (c.getName().equalsIgnoreCase(name)
-                    && c.getPhoneNumber().equals(phone)
-                    && c.getEmail().equalsIgnoreCase(email)) {
-                return c;
-            }
+        try {
+            return customers.findOrCreate(name, phone, email);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Cannot book: " + e.getMessage() + ".");
+            return null;
         }
-        Customer newCust = new Customer(name, phone, email);
-        customers.add(newCust);
-        return newCust;
     }
 
     private Customer findCustomerPrompt() {
@@ -245,21 +267,18 @@ public class AirportUI {
         System.out.print("Enter your email: ");
         String email = scanner.nextLine().trim();
 
-        for (Customer c : customers) {
-            if (c.getName().equalsIgnoreCase(name)
-                    && c.getPhoneNumber().equals(phone)
-                    && c.getEmail().equalsIgnoreCase(email)) {
-                return c;
-            }
-        }
-        return null;
+        Customer c = customers.find(phone, email);
+        // the name still has to match the record found by email/phone
+        return c != null && c.getName().equalsIgnoreCase(name) ? c : null;
     }
 
-    private double priceForClass(String seatClass) {
-        if (seatClass == null) return 150.0;
-        String s = seatClass.trim().toLowerCase();
-        if (s.startsWith("f")) return 700.0;       // First
-        if (s.startsWith("b")) return 350.0;       // Business
-        return 150.0;                              // Economy default
+    // e.g. "First / Business / Economy", front to back
+    private String fareClassPrompt(Plane plane) {
+        StringBuilder sb = new StringBuilder();
+        for (FareClass fc : plane.getFareClasses()) {
+            if (sb.length() > 0) sb.append(" / ");
+            sb.append(fc.getLabel());
+        }
+        return sb.toString();
     }
 }
@@ -0,0 +1,191 @@
+package model;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import model.enums.FareClass;
+
+/**
+ * Itinerary search with up to two stops over a time-expanded flight graph.
+ * <p>
+ * Every flight is a departure node at its origin, ordered by time. A connection edge
+ * runs from a flight's arrival to every departure at that airport between
+ * {@code arrival + minConnection} and {@code arrival + maxConnection}; these edges are
+ * not stored but read as a range of the airport's departure index. A second index by
+ * route (origin, destination) answers the final leg of a connection with one range
+ * lookup instead of scanning every departure at the connecting airport.
+ * </p>
+ * Both indexes are concurrent skip lists updated incrementally from a
+ * {@link FlightRegistry}, so any number of queries can run in parallel with schedule
+ * changes. Each query has a latency budget; when it runs out the result is returned
+ * as incomplete rather than late.
+ */
+public class ConnectionSearch implements FlightRegistry.Listener {
+    public static final Duration DEFAULT_MIN_CONNECTION = Duration.ofMinutes(45);
+    public static final Duration DEFAULT_MAX_CONNECTION = Duration.ofHours(6);
+    private static final int MAX_STOPS = 2;
+
+    private static final Comparator<FlightKey> DEPARTURE_ORDER =
+            Comparator.comparing(FlightKey::departureUTC).thenComparing(FlightKey::flightNumber);
+
+    private final Duration minConnection;
+    private final Duration maxConnection;
+    // airport -> departures in time order
+    private final ConcurrentMap<String, NavigableMap<FlightKey, Flight>> byOrigin = new ConcurrentHashMap<>();
+    // "ORIGIN>DEST" -> departures on that route in time order
+    private final ConcurrentMap<String, NavigableMap<FlightKey, Flight>> byRoute = new ConcurrentHashMap<>();
+
+    /** What to search for; {@code fareClass} may be null for "any class". */
+    public record Query(String origin, String destination, LocalDate date, FareClass fareClass, int seats, int maxStops) {
+        public Query {
+            Objects.requireNonNull(origin, "origin");
+            Objects.requireNonNull(destination, "destination");
+            Objects.requireNonNull(date, "date");
+            if (seats < 1) throw new IllegalArgumentException("Seats must be at least 1: " + seats);
+            if (maxStops < 0 || maxStops > MAX_STOPS) throw new IllegalArgumentException("maxStops must be 0.." + MAX_STOPS);
+        }
+    }
+
+    /** One way to get there: 1 to 3 legs in order. */
+    public record Itinerary(List<Flight> legs) {
+        public Itinerary { legs = List.copyOf(legs); }
+        public int stops() { return legs.size() - 1; }
+        public LocalDateTime departure() { return legs.get(0).getDepartureUTC(); }
+        public LocalDateTime arrival() { return legs.get(legs.size() - 1).getArrivalUTC(); }
+        public Duration duration() { return Duration.between(departure(), arrival()); }
+    }
+
+    /**
+     * @param itineraries sorted by arrival, then number of stops
+     * @param complete    false if the latency budget ran out before the search finished
+     */
+    public record Result(List<Itinerary> itineraries, boolean complete) { }
+
+    public ConnectionSearch() {
+        this(DEFAULT_MIN_CONNECTION, DEFAULT_MAX_CONNECTION);
+    }
+
+    public ConnectionSearch(Duration minConnection, Duration maxConnection) {
+        this.minConnection = Objects.requireNonNull(minConnection);
+        this.maxConnection = Objects.requireNonNull(maxConnection);
+        if (minConnection.isNegative() || maxConnection.compareTo(minConnection) < 0) {
+            throw new IllegalArgumentException("Need 0 <= minConnection <= maxConnection");
+        }
+    }
+
+    /**
+     * Search itineraries leaving {@code origin} on the query date.
+     *
+     * @param budget give up after this long and return what was found so far
+     */
+    public Result search(Query q, Duration budget) {
+        long deadline = System.nanoTime() + budget.toNanos();
+        String origin = FlightSearchIndex.normalize(q.origin());
+        String destination = FlightSearchIndex.normalize(q.destination());
+        List<Itinerary> found = new ArrayList<>();
+        boolean complete = true;
+
+        LocalDateTime dayStart = q.date().atStartOfDay();
+        outer:
+        for (Flight first : window(byOrigin.get(origin), dayStart, dayStart.plusDays(1))) {
+            if (System.nanoTime() > deadline) { complete = false; break; }
+            if (!hasSeats(first, q)) continue;
+            String x = FlightSearchIndex.normalize(first.getDestination());
+            if (x.equals(destination)) {
+                found.add(new Itinerary(List.of(first)));
+                continue;
+            }
+            if (q.maxStops() < 1 || x.equals(origin)) continue;
+
+            LocalDateTime arr1 = first.getArrivalUTC();
+            // 1 stop: final leg straight from the route index
+            for (Flight last : connections(byRoute.get(route(x, destination)), arr1)) {
+                if (hasSeats(last, q)) found.add(new Itinerary(List.of(first, last)));
+            }
+            if (q.maxStops() < 2) continue;
+
+            // 2 stops: any onward leg from x, then the route index from y
+            for (Flight second : connections(byOrigin.get(x), arr1)) {
+                if (System.nanoTime() > deadline) { complete = false; break outer; }
+                String y = FlightSearchIndex.normalize(second.getDestination());
+                if (y.equals(origin) || y.equals(destination) || y.equals(x) || !hasSeats(second, q)) continue;
+                for (Flight last : connections(byRoute.get(route(y, destination)), second.getArrivalUTC())) {
+                    if (hasSeats(last, q)) found.add(new Itinerary(List.of(first, second, last)));
+                }
+            }
+        }
+        found.sort(Comparator.comparing(Itinerary::arrival).thenComparingInt(Itinerary::stops));
+        return new Result(found, complete);
+    }
+
+    /** Run independent queries in parallel on the common fork-join pool; results keep query order. */
+    public List<Result> searchAll(List<Query> queries, Duration budgetPerQuery) {
+        return queries.parallelStream().map(q -> search(q, budgetPerQuery)).toList();
+    }
+
+    // ---- FlightRegistry.Listener ----
+
+    @Override
+    public void onRegistered(Flight flight) {
+        FlightKey key = flight.getKey();
+        index(byOrigin, FlightSearchIndex.normalize(flight.getOrigin())).put(key, flight);
+        index(byRoute, route(flight)).put(key, flight);
+    }
+
+    @Override
+    public void onRemoved(Flight flight) {
+        unindex(flight, flight.getKey());
+    }
+
+    @Override
+    public void onRetimed(Flight flight, LocalDateTime oldDeparture, LocalDateTime oldArrival) {
+        unindex(flight, new FlightKey(flight.getFlightNumber(), oldDeparture));
+        onRegistered(flight);
+    }
+
+    // ---- Helpers ----
+
+    private Iterable<Flight> connections(NavigableMap<FlightKey, Flight> departures, LocalDateTime arrival) {
+        return window(departures, arrival.plus(minConnection), arrival.plus(maxConnection).plusNanos(1));
+    }
+
+    // departures in [from, to)
+    private static Iterable<Flight> window(NavigableMap<FlightKey, Flight> departures, LocalDateTime from, LocalDateTime to) {
+        if (departures == null) return List.of();
+        return departures.subMap(new FlightKey("", from), true, new FlightKey("", to), false).values();
+    }
+
+    private static boolean hasSeats(Flight f, Query q) {
+        int left = q.fareClass() == null ? f.getAvailableSeats() : f.getPlane().getAvailableSeats(q.fareClass());
+        return left >= q.seats();
+    }
+
+    private void unindex(Flight flight, FlightKey key) {
+        NavigableMap<FlightKey, Flight> o = byOrigin.get(FlightSearchIndex.normalize(flight.getOrigin()));
+        if (o != null) o.remove(key, flight);
+        NavigableMap<FlightKey, Flight> r = byRoute.get(route(flight));
+        if (r != null) r.remove(key, flight);
+    }
+
+    private static NavigableMap<FlightKey, Flight> index(Map<String, NavigableMap<FlightKey, Flight>> map, String key) {
+        return map.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>(DEPARTURE_ORDER));
+    }
+
+    private static String route(Flight f) {
+        return route(FlightSearchIndex.normalize(f.getOrigin()), FlightSearchIndex.normalize(f.getDestination()));
+    }
+
+    private static String route(String origin, String destination) {
+        return origin + '>' + destination;
+    }
+}
@@ -1,5 +1,9 @@
 package model;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import model.enums.CrewStatus;
 import model.enums.PlaneType;
@@ -11,6 +15,7 @@ public abstract class Crew {
     private final LocalDate hiredOn;
     private CrewStatus status = CrewStatus.AVAILABLE;
     private String baseAirport;
+    private final List<CrewListener> listeners = new CopyOnWriteArrayList<>();
 
     protected Crew(String employeeId, String fullName, LocalDate hiredOn, String baseAirport) {
         this.employeeId = employeeId;
@@ -23,11 +28,33 @@ public abstract class Crew {
     public String getFullName() { return fullName; }
     public LocalDate getHiredOn() { return hiredOn; }
     public CrewStatus getStatus() { return status; }
-    public void setStatus(CrewStatus status) { this.status = status; }
+    public void setStatus(CrewStatus status) {
+        CrewStatus old = this.status;
+        this.status = status;
+        if (old != status) {
+            for (CrewListener l : listeners) l.onStatusChanged(this, old);
+        }
+    }
     public String getBaseAirport() { return baseAirport; }
-    public void setBaseAirport(String baseAirport) { this.baseAirport = baseAirport; }
+    public void setBaseAirport(String baseAirport) {
+        boolean changed = !Objects.equals(this.baseAirport, baseAirport);
+        this.baseAirport = baseAirport;
+        if (changed) fireChanged();
+    }
     public abstract Role getRole();
 
+    // Aircraft types this crew member is rated/qualified for
+    public abstract Set<PlaneType> getQualifiedTypes();
+
+    // Indexes holding this crew member register here to follow changes
+    public void addListener(CrewListener listener) { listeners.add(Objects.requireNonNull(listener)); }
+    public void removeListener(CrewListener listener) { listeners.remove(listener); }
+
+    // Subclasses call this after changing anything an index may be keyed on
+    protected void fireChanged() {
+        for (CrewListener l : listeners) l.onCrewChanged(this);
+    }
+
     // Is crew member licensed to operate given plane type?
     public abstract boolean canOperate(PlaneType type);
 
@@ -0,0 +1,149 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Reverse index from each crew member to the flights they are assigned to, in departure
+ * order.
+ * <p>
+ * Fed by a {@link FlightRegistry}: registration, removal, retimes and every captain /
+ * first officer / attendant change on a registered flight are relayed here, so "which
+ * flights is this pilot on after 14:00" is a tail-map lookup instead of a scan over the
+ * whole schedule. Flights are also kept by arrival airport in arrival order, so the crew
+ * who landed somewhere in a time window are found without a scan either.
+ * </p>
+ */
+public class CrewAssignmentIndex implements FlightRegistry.Listener {
+    private static final Comparator<FlightKey> DEPARTURE_ORDER =
+            Comparator.comparing(FlightKey::departureUTC).thenComparing(FlightKey::flightNumber);
+
+    private static final Comparator<Landing> ARRIVAL_ORDER =
+            Comparator.comparing(Landing::arrivalUTC).thenComparing(Landing::flight, DEPARTURE_ORDER);
+    // sorts before every flight landing at the same time
+    private static final FlightKey FIRST = new FlightKey("", LocalDateTime.MIN);
+
+    private final Map<Crew, NavigableMap<FlightKey, Flight>> byCrew = new HashMap<>();
+    // registered flights by normalized destination, in arrival order
+    private final Map<String, NavigableMap<Landing, Flight>> byArrival = new HashMap<>();
+
+    private record Landing(LocalDateTime arrivalUTC, FlightKey flight) { }
+
+    /** Every flight {@code crew} is assigned to, by departure. */
+    public synchronized List<Flight> flightsOf(Crew crew) {
+        NavigableMap<FlightKey, Flight> line = byCrew.get(crew);
+        return line == null ? List.of() : List.copyOf(line.values());
+    }
+
+    /** Flights {@code crew} is assigned to departing at or after {@code from}, by departure. */
+    public synchronized List<Flight> flightsOf(Crew crew, LocalDateTime from) {
+        NavigableMap<FlightKey, Flight> line = byCrew.get(crew);
+        return line == null ? List.of() : List.copyOf(line.tailMap(new FlightKey("", from), true).values());
+    }
+
+    /** The last flight of {@code crew} departing before {@code time}, or null. */
+    public synchronized Flight previous(Crew crew, LocalDateTime time) {
+        NavigableMap<FlightKey, Flight> line = byCrew.get(crew);
+        Map.Entry<FlightKey, Flight> e = line == null ? null : line.lowerEntry(new FlightKey("", time));
+        return e == null ? null : e.getValue();
+    }
+
+    /** The first flight of {@code crew} departing at or after {@code time}, or null. */
+    public synchronized Flight next(Crew crew, LocalDateTime time) {
+        NavigableMap<FlightKey, Flight> line = byCrew.get(crew);
+        Map.Entry<FlightKey, Flight> e = line == null ? null : line.ceilingEntry(new FlightKey("", time));
+        return e == null ? null : e.getValue();
+    }
+
+    /**
+     * Crew on the flights landing at {@code airport} from {@code from} (inclusive) to
+     * {@code to} (exclusive), latest landing first. Where they are now depends on their
+     * later flights; callers check that.
+     */
+    public synchronized Set<Crew> landedAt(String airport, LocalDateTime from, LocalDateTime to) {
+        NavigableMap<Landing, Flight> arrivals = byArrival.get(FlightSearchIndex.normalize(airport));
+        if (arrivals == null) return Set.of();
+        Set<Crew> crew = new LinkedHashSet<>();
+        for (Flight f : arrivals.subMap(new Landing(from, FIRST), true, new Landing(to, FIRST), false)
+                .descendingMap().values()) {
+            crew.addAll(crewOf(f));
+        }
+        return crew;
+    }
+
+    // ---- FlightRegistry.Listener ----
+
+    @Override
+    public synchronized void onRegistered(Flight flight) {
+        for (Crew c : crewOf(flight)) put(c, flight.getKey(), flight);
+        land(flight, flight.getArrivalUTC(), flight.getKey());
+    }
+
+    @Override
+    public synchronized void onRemoved(Flight flight) {
+        for (Crew c : crewOf(flight)) remove(c, flight.getKey(), flight);
+        unland(flight, flight.getArrivalUTC(), flight.getKey());
+    }
+
+    @Override
+    public synchronized void onRetimed(Flight flight, LocalDateTime oldDeparture, LocalDateTime oldArrival) {
+        FlightKey old = new FlightKey(flight.getFlightNumber(), oldDeparture);
+        for (Crew c : crewOf(flight)) {
+            remove(c, old, flight);
+            put(c, flight.getKey(), flight);
+        }
+        unland(flight, oldArrival, old);
+        land(flight, flight.getArrivalUTC(), flight.getKey());
+    }
+
+    @Override
+    public synchronized void onCrewAssigned(Flight flight, Crew crew) {
+        put(crew, flight.getKey(), flight);
+    }
+
+    @Override
+    public synchronized void onCrewRemoved(Flight flight, Crew crew) {
+        remove(crew, flight.getKey(), flight);
+    }
+
+    // ---- Helpers ----
+
+    private void put(Crew crew, FlightKey key, Flight flight) {
+        byCrew.computeIfAbsent(crew, c -> new TreeMap<>(DEPARTURE_ORDER)).put(key, flight);
+    }
+
+    private void remove(Crew crew, FlightKey key, Flight flight) {
+        NavigableMap<FlightKey, Flight> line = byCrew.get(crew);
+        if (line == null) return;
+        line.remove(key, flight);
+        if (line.isEmpty()) byCrew.remove(crew);
+    }
+
+    private void land(Flight flight, LocalDateTime arrival, FlightKey key) {
+        byArrival.computeIfAbsent(FlightSearchIndex.normalize(flight.getDestination()), a -> new TreeMap<>(ARRIVAL_ORDER))
+                .put(new Landing(arrival, key), flight);
+    }
+
+    private void unland(Flight flight, LocalDateTime arrival, FlightKey key) {
+        String airport = FlightSearchIndex.normalize(flight.getDestination());
+        NavigableMap<Landing, Flight> arrivals = byArrival.get(airport);
+        if (arrivals == null) return;
+        arrivals.remove(new Landing(arrival, key), flight);
+        if (arrivals.isEmpty()) byArrival.remove(airport);
+    }
+
+    private static List<Crew> crewOf(Flight flight) {
+        List<Crew> crew = new ArrayList<>(flight.getAttendants());
+        if (flight.getCaptain() != null) crew.add(flight.getCaptain());
+        if (flight.getFirstOfficer() != null) crew.add(flight.getFirstOfficer());
+        return crew;
+    }
+}
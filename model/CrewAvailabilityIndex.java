@@ -0,0 +1,107 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import model.enums.CrewStatus;
+import model.enums.FAPosition;
+import model.enums.PilotRank;
+import model.enums.PlaneType;
+import model.enums.Role;
+
+/**
+ * AVAILABLE crew bucketed by (role, rank or position, aircraft type, base airport).
+ * <p>
+ * A crew member sits in one bucket per type they are qualified for, and only while their
+ * status is AVAILABLE, so "who can fly this A350 out of JFK as captain" is one hash
+ * lookup returning a ready set. The index registers itself as a {@link CrewListener} on
+ * every crew member it holds and re-files them whenever their status, rank/position,
+ * base or qualifications change.
+ * </p>
+ * Buckets are concurrent sets, so lookups never lock; updates to the index are
+ * serialized. Base airports are normalized like route keys (trimmed, upper-cased).
+ */
+public class CrewAvailabilityIndex implements CrewListener {
+    private final Map<Key, Set<Crew>> buckets = new ConcurrentHashMap<>();
+    // where each crew member is filed now, so a change can take them out again
+    private final Map<Crew, List<Key>> filed = new ConcurrentHashMap<>();
+
+    // grade is the PilotRank or FAPosition
+    private record Key(Role role, Enum<?> grade, PlaneType type, String base) { }
+
+    /** Start tracking {@code crew}; no-op if already tracked. */
+    public synchronized void add(Crew crew) {
+        if (filed.containsKey(crew)) return;
+        crew.addListener(this);
+        file(crew);
+    }
+
+    /** Stop tracking {@code crew}. */
+    public synchronized void remove(Crew crew) {
+        crew.removeListener(this);
+        unfile(crew);
+    }
+
+    public void addAll(Iterable<? extends Crew> crew) {
+        for (Crew c : crew) add(c);
+    }
+
+    /** Available pilots of {@code rank} rated on {@code type} and based at {@code base}; never null. */
+    public Set<Crew> pilots(PilotRank rank, PlaneType type, String base) {
+        return bucket(new Key(Role.PILOT, rank, type, FlightSearchIndex.normalize(base)));
+    }
+
+    /** Available attendants in {@code position} qualified on {@code type} and based at {@code base}; never null. */
+    public Set<Crew> attendants(FAPosition position, PlaneType type, String base) {
+        return bucket(new Key(Role.FLIGHT_ATTENDANT, position, type, FlightSearchIndex.normalize(base)));
+    }
+
+    public boolean isTracked(Crew crew) { return filed.containsKey(crew); }
+
+    // ---- CrewListener ----
+
+    @Override
+    public synchronized void onCrewChanged(Crew crew) {
+        if (!filed.containsKey(crew)) return;
+        unfile(crew);
+        file(crew);
+    }
+
+    // ---- Helpers ----
+
+    private Set<Crew> bucket(Key key) {
+        Set<Crew> hits = buckets.get(key);
+        return hits != null ? Collections.unmodifiableSet(hits) : Set.of();
+    }
+
+    private void file(Crew crew) {
+        Enum<?> grade = gradeOf(crew);
+        if (crew.getStatus() != CrewStatus.AVAILABLE || grade == null) {
+            filed.put(crew, List.of());
+            return;
+        }
+        String base = FlightSearchIndex.normalize(crew.getBaseAirport());
+        Key[] keys = crew.getQualifiedTypes().stream()
+                .map(t -> new Key(crew.getRole(), grade, t, base)).toArray(Key[]::new);
+        for (Key k : keys) buckets.computeIfAbsent(k, x -> ConcurrentHashMap.newKeySet()).add(crew);
+        filed.put(crew, List.of(keys));
+    }
+
+    private void unfile(Crew crew) {
+        List<Key> keys = filed.remove(crew);
+        if (keys == null) return;
+        for (Key k : keys) {
+            Set<Crew> set = buckets.get(k);
+            if (set != null) set.remove(crew);
+        }
+    }
+
+    private static Enum<?> gradeOf(Crew crew) {
+        if (crew instanceof Pilot p) return p.getRank();
+        if (crew instanceof FlightAttendant fa) return fa.getPosition();
+        return null;
+    }
+}
@@ -0,0 +1,15 @@
+package model;
+
+import model.enums.CrewStatus;
+
+/**
+ * Callback for indexes that must follow changes to a {@link Crew} member they hold.
+ * Both methods are no-ops by default; listeners are called synchronously, after the change.
+ */
+public interface CrewListener {
+    /** Rank/position, base airport or qualifications changed. */
+    default void onCrewChanged(Crew crew) { }
+
+    /** Status changed; {@code oldStatus} is what it was before. Defaults to {@link #onCrewChanged(Crew)}. */
+    default void onStatusChanged(Crew crew, CrewStatus oldStatus) { onCrewChanged(crew); }
+}
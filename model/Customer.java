@@ -1,23 +1,24 @@
 package model;
+import model.enums.FareClass;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Customer{
     private int customerId;
     private String name;
     private String phoneNumber;
     private String email;
-    // List of tickets a customer has
-    private List<Ticket> ticketList;
-    private double balance;
+    // Tickets a customer has, by ticket id in booking order; guarded by its own monitor, like Flight's manifest
+    private final TicketManifest ticketList;
+    // amount owed in cents; only the Ledger changes it
+    private final AtomicLong balanceCents = new AtomicLong();
 
     // constructors
     public Customer(String name, String phoneNumber, String email){
         this.name = name;
         this.phoneNumber = phoneNumber;
         this.email = email;
-        this.ticketList = new ArrayList<>();
-        this.balance = 0.0;
+        this.ticketList = new TicketManifest();
     }
 
     // getters
@@ -25,26 +26,28 @@ public class Customer{
     public String getName() { return name; }
     public String getPhoneNumber() { return phoneNumber; }
     public String getEmail() { return email; }
-    public List<Ticket> getTicketList() {return ticketList; }
-    public double getBalance() { return balance; }
+    public List<Ticket> getTicketList() {
+        synchronized (ticketList) {
+            return ticketList.toList();
+        }
+    }
+    public double getBalance() { return balanceCents.get() / 100.0; }
+    public long getBalanceCents() { return balanceCents.get(); }
 
     // setters
     public void setCustomerId(int customerId) { this.customerId = customerId; }
     public void setName(String name) { this.name = name; }
     public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
     public void setEmail(String email) { this.email = email; }
-    public void setBalance(double balance) { this.balance = balance; }
 
 
     public void bookTicket(Flight flight){
         // first check if the flight's plane is operable and there are seats
         // on the plane
         if (flight.getPlane().isOperable() && flight.getPlane().getCapacity() > 0) {
-            double price = flight.getPlane().getPrice("Economy");
-            Ticket ticket = new Ticket("Economy", flight, this);
-            ticketList.add(ticket);
-            balance += price;
-            flight.getPlane().decrementCapacity();
+            Ticket ticket = new Ticket(FareClass.ECONOMY, flight, this);
+            // reserves an economy seat, files and charges it; throws if the cabin is full
+            ticket.issue();
             System.out.println("Ticket booked successfully for flight " + flight.getFlightNumber());
         }
         // if the conditions are not satisfied alert the flyer
@@ -53,25 +56,64 @@ public class Customer{
         }
     }
 
+    // record a ticket booked elsewhere (e.g. at the counter); false if already on file
+    public boolean addTicket(Ticket ticket){
+        synchronized (ticketList) {
+            if (!ticketList.add(ticket)) return false;
+        }
+        ReservationJournal.getDefault().filed(ticket);
+        return true;
+    }
+
+    public boolean hasTicket(Ticket ticket){
+        if (ticket == null) return false;
+        synchronized (ticketList) {
+            return ticketList.get(ticket.getTicketId()) == ticket;
+        }
+    }
+
+    // loaded from a snapshot: on file again, without journaling it
+    void restoreTicket(Ticket ticket){
+        synchronized (ticketList) {
+            ticketList.add(ticket);
+        }
+    }
+
+    // replayed from the journal; the refund is replayed as its own posting
+    void restoreRemove(Ticket ticket){
+        synchronized (ticketList) {
+            ticketList.remove(ticket.getTicketId());
+        }
+    }
+
+    // applied by the Ledger for each posting
+    void post(long cents){
+        balanceCents.addAndGet(cents);
+    }
+
     public void cancelTicket(Ticket ticket){
         // remove the ticket from the list of tickets
         // remove the price of the ticket from the flyer's balance
-        ticketList.remove(ticket);
-        balance -= ticket.getPrice();
+        synchronized (ticketList) {
+            if (ticketList.remove(ticket.getTicketId()) == null) return;
+        }
+        ReservationJournal.getDefault().unfiled(ticket);
+        Ledger.getDefault().refund(ticket);
         System.out.println("Ticket cancelled.");
     }
 
     public void seeTickets() {
         // if the ticket list is empty, alert the flyer there are no
         // tickets in their name
-        if (ticketList.isEmpty()) {
+        List<Ticket> tickets = getTicketList();
+        if (tickets.isEmpty()) {
             System.out.println("No tickets found for " + name);
         }
         // print the tickets the flyer has under their name,
         // including flight number, seat type, price, and status
         else {
             System.out.println("Tickets for " + name + ":");
-            for (Ticket ticket : ticketList) {
+            for (Ticket ticket : tickets) {
                 System.out.println("- Flight: " + ticket.getFlight().getFlightNumber() +
                         ", Seat Type: " + ticket.getSeatType() +
                         ", Price: " + ticket.getPrice() +
@@ -0,0 +1,131 @@
+package model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * All known customers, by normalized email, phone and id.
+ * <p>
+ * A customer's identity is their email (trimmed, lower-cased); customers who gave no
+ * email are identified by phone (digits only). {@link #findOrCreate} runs under
+ * {@code ConcurrentHashMap.computeIfAbsent} on that key, so two sessions racing to
+ * register the same person get the same {@link Customer} and exactly one id is used.
+ * The name must match the customer found, so nobody books on another person's account.
+ * Lookups are a single hash probe however many customers there are.
+ * </p>
+ * The phone index points at the first customer registered with that number.
+ */
+public class CustomerDirectory {
+    private final ConcurrentMap<String, Customer> byEmail;
+    private final ConcurrentMap<String, Customer> byPhone;
+    private final ConcurrentMap<Integer, Customer> byId;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    public CustomerDirectory() {
+        this(16);
+    }
+
+    /** @param expectedCustomers sizing hint, e.g. the loyalty member count */
+    public CustomerDirectory(int expectedCustomers) {
+        byEmail = new ConcurrentHashMap<>(expectedCustomers);
+        byPhone = new ConcurrentHashMap<>(expectedCustomers);
+        byId = new ConcurrentHashMap<>(expectedCustomers);
+    }
+
+    /**
+     * The customer with this email (or this phone, if the email is blank), created with
+     * a fresh id if there is none yet. A new email given with the phone of a customer who
+     * has no email on file is linked to that customer rather than starting a second one.
+     *
+     * @throws IllegalArgumentException if both email and phone are blank, or if the
+     *         customer found has a different name
+     */
+    public Customer findOrCreate(String name, String phone, String email) {
+        String emailKey = normalizeEmail(email);
+        String phoneKey = normalizePhone(phone);
+        if (emailKey.isEmpty() && phoneKey.isEmpty()) {
+            throw new IllegalArgumentException("A customer needs an email or a phone number");
+        }
+        Customer customer = emailKey.isEmpty()
+                ? byPhone.computeIfAbsent(phoneKey, k -> create(name, phone, email))
+                : byEmail.computeIfAbsent(emailKey, k -> {
+                    Customer known = phoneKey.isEmpty() ? null : byPhone.get(phoneKey);
+                    return known != null && sameName(known, name) && linkEmail(known, email)
+                            ? known : create(name, phone, email);
+                });
+        if (!sameName(customer, name)) {
+            throw new IllegalArgumentException("That email or phone number belongs to another customer");
+        }
+        if (!phoneKey.isEmpty()) byPhone.putIfAbsent(phoneKey, customer);
+        return customer;
+    }
+
+    private Customer create(String name, String phone, String email) {
+        Customer c = new Customer(name, phone, email);
+        c.setCustomerId(nextId.getAndIncrement());
+        byId.put(c.getCustomerId(), c);
+        return c;
+    }
+
+    // Give a customer registered by phone alone their first email; false if they already have one
+    private static boolean linkEmail(Customer c, String email) {
+        synchronized (c) {
+            if (!normalizeEmail(c.getEmail()).isEmpty()) return false;
+            c.setEmail(email);
+            return true;
+        }
+    }
+
+    private static boolean sameName(Customer c, String name) {
+        return c.getName() != null && name != null && c.getName().trim().equalsIgnoreCase(name.trim());
+    }
+
+    /** Put back a customer loaded from an {@link AirlineSnapshot}, keeping its id. */
+    void restore(Customer c) {
+        String emailKey = normalizeEmail(c.getEmail());
+        String phoneKey = normalizePhone(c.getPhoneNumber());
+        if (!emailKey.isEmpty()) byEmail.putIfAbsent(emailKey, c);
+        if (!phoneKey.isEmpty()) byPhone.putIfAbsent(phoneKey, c);
+        byId.put(c.getCustomerId(), c);
+        nextId.accumulateAndGet(c.getCustomerId() + 1, Math::max);
+    }
+
+    /** Look up by email, falling back to phone; null if neither is known. */
+    public Customer find(String phone, String email) {
+        String emailKey = normalizeEmail(email);
+        if (!emailKey.isEmpty()) {
+            Customer c = byEmail.get(emailKey);
+            if (c != null) return c;
+        }
+        String phoneKey = normalizePhone(phone);
+        return phoneKey.isEmpty() ? null : byPhone.get(phoneKey);
+    }
+
+    public Customer findByEmail(String email) { return byEmail.get(normalizeEmail(email)); }
+    public Customer findByPhone(String phone) { return byPhone.get(normalizePhone(phone)); }
+    public Customer get(int customerId) { return byId.get(customerId); }
+    public int size() { return byId.size(); }
+
+    /** Live, weakly consistent view of all customers (no order). */
+    public Collection<Customer> getCustomers() { return Collections.unmodifiableCollection(byId.values()); }
+
+    /** Trimmed and lower-cased. */
+    public static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Digits only, so "(408) 555-0100" and "408.555.0100" match. */
+    public static String normalizePhone(String phone) {
+        if (phone == null) return "";
+        StringBuilder sb = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char ch = phone.charAt(i);
+            if (ch >= '0' && ch <= '9') sb.append(ch);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,232 @@
+package model;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import model.RosterSolver.Slot;
+import model.enums.CrewStatus;
+import model.enums.FAPosition;
+import model.enums.PilotRank;
+
+/**
+ * Local crew repair when someone drops out.
+ * <p>
+ * Watches crew members' status; when one goes ON_LEAVE or SUSPENDED it takes them off
+ * every flight they are on that has not departed yet (found through the
+ * {@link CrewAssignmentIndex}, not a schedule scan) and fills each slot with a
+ * replacement. Candidates come straight from the {@link CrewAvailabilityIndex} bucket for
+ * the slot's rank/position, aircraft type and the flight's origin, plus available crew of
+ * any base who landed at the origin within {@link #OUTSTATION_LOOKBACK} (found through
+ * the {@link CrewAssignmentIndex}). They must pass the same rules as {@link RosterSolver}:
+ * no overlap within {@code minTurn}, location continuity with their previous and next
+ * flights, and {@link DutyTimeEngine} legality, including against their next assigned
+ * flight when the duty history does not have it yet. Among those, whoever has flown
+ * least in the last 28 days is picked. A slot with no legal candidate is left open.
+ * </p>
+ * <p>
+ * Each repair returns, and hands to every registered listener, the list of changed
+ * assignments. Duty history of the crew member taken off is kept (it errs on the strict
+ * side); replacements' new flights are recorded.
+ * </p>
+ * <b>Locking:</b> a repair runs on the thread that changed the crew member's status, under
+ * this object's lock. {@link CrewAvailabilityIndex} lookups take no lock (its buckets are
+ * concurrent sets). While holding its own lock, a repair takes the
+ * {@link CrewAssignmentIndex} lock for outstation and neighbouring-flight lookups, and
+ * through the flights' listeners when it changes assignments. That index does not call
+ * out while holding its lock, so the order is always repair, then index. Listeners of
+ * this class and of those flights must not wait on another thread that changes crew
+ * status.
+ */
+public class DisruptionRepair implements CrewListener {
+    /** How far back a landing at the origin makes crew from other bases candidates. */
+    public static final Duration OUTSTATION_LOOKBACK = Duration.ofHours(48);
+
+    /** One slot on one flight: who left it and who took it (null if it stays open). */
+    public record Change(Flight flight, Slot slot, Crew removed, Crew replacement) { }
+
+    private final CrewAssignmentIndex assignments;
+    private final CrewAvailabilityIndex available;
+    private final DutyTimeEngine duty;
+    private final Duration minTurn;
+    private final Clock clock;
+    private final List<Consumer<List<Change>>> listeners = new CopyOnWriteArrayList<>();
+
+    public DisruptionRepair(CrewAssignmentIndex assignments, CrewAvailabilityIndex available, DutyTimeEngine duty) {
+        this(assignments, available, duty, RosterSolver.DEFAULT_MIN_TURN, Clock.systemUTC());
+    }
+
+    /**
+     * @param clock decides which flights are still in the future (UTC)
+     */
+    public DisruptionRepair(CrewAssignmentIndex assignments, CrewAvailabilityIndex available, DutyTimeEngine duty,
+                            Duration minTurn, Clock clock) {
+        this.assignments = Objects.requireNonNull(assignments, "assignments");
+        this.available = Objects.requireNonNull(available, "available");
+        this.duty = Objects.requireNonNull(duty, "duty");
+        this.minTurn = Objects.requireNonNull(minTurn, "minTurn");
+        this.clock = Objects.requireNonNull(clock, "clock");
+    }
+
+    /** Repair automatically when {@code crew} stops being AVAILABLE. */
+    public void watch(Crew crew) {
+        crew.addListener(this);
+    }
+
+    public void watchAll(Iterable<? extends Crew> crew) {
+        for (Crew c : crew) watch(c);
+    }
+
+    public void unwatch(Crew crew) {
+        crew.removeListener(this);
+    }
+
+    /** Called with the changes of every repair that changed anything. */
+    public void addListener(Consumer<List<Change>> listener) { listeners.add(Objects.requireNonNull(listener)); }
+    public void removeListener(Consumer<List<Change>> listener) { listeners.remove(listener); }
+
+    @Override
+    public void onStatusChanged(Crew crew, CrewStatus oldStatus) {
+        if (oldStatus == CrewStatus.AVAILABLE && crew.getStatus() != CrewStatus.AVAILABLE) repair(crew);
+    }
+
+    /**
+     * Take {@code crew} off all their future flights and re-staff those slots.
+     *
+     * @return the changed assignments, in departure order
+     */
+    public synchronized List<Change> repair(Crew crew) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<Change> changes = new ArrayList<>();
+        for (Flight f : assignments.flightsOf(crew, now)) {
+            Slot slot = slotOf(f, crew);
+            if (slot == null) continue;
+            unassign(f, slot, crew);
+            Crew replacement = findReplacement(f, slot, crew);
+            if (replacement != null) {
+                assign(f, slot, replacement);
+                duty.record(replacement, f);
+            }
+            changes.add(new Change(f, slot, crew, replacement));
+        }
+        if (!changes.isEmpty()) {
+            List<Change> result = List.copyOf(changes);
+            for (Consumer<List<Change>> l : listeners) l.accept(result);
+            return result;
+        }
+        return List.of();
+    }
+
+    // ---- Helpers ----
+
+    private Crew findReplacement(Flight f, Slot slot, Crew leaving) {
+        Crew best = null;
+        long bestMinutes = Long.MAX_VALUE;
+        for (Crew c : candidates(f, slot, leaving)) {
+            if (c.equals(leaving) || isOn(f, c) || !c.canOperate(f.getPlaneType())) continue;
+            if (!fits(c, f) || !legal(c, f)) continue;
+            long minutes = duty.flightMinutes28d(c, f.getDepartureUTC());
+            if (minutes < bestMinutes) {
+                best = c;
+                bestMinutes = minutes;
+            }
+        }
+        return best;
+    }
+
+    // Available crew based at the origin, then crew standing there after an earlier leg
+    private Set<Crew> candidates(Flight f, Slot slot, Crew leaving) {
+        Set<Crew> all = new LinkedHashSet<>(based(f, slot, leaving));
+        LocalDateTime dep = f.getDepartureUTC();
+        for (Crew c : assignments.landedAt(f.getOrigin(), dep.minus(OUTSTATION_LOOKBACK), dep)) {
+            if (c.getStatus() == CrewStatus.AVAILABLE && fillsSlot(c, slot)) all.add(c);
+        }
+        return all;
+    }
+
+    private Set<Crew> based(Flight f, Slot slot, Crew leaving) {
+        String origin = f.getOrigin();
+        return switch (slot) {
+            case CAPTAIN -> available.pilots(PilotRank.CAPTAIN, f.getPlaneType(), origin);
+            case FIRST_OFFICER -> available.pilots(PilotRank.FIRST_OFFICER, f.getPlaneType(), origin);
+            case ATTENDANT -> {
+                // same position first, then the other
+                FAPosition first = leaving instanceof FlightAttendant fa ? fa.getPosition() : FAPosition.JUNIOR;
+                Set<Crew> all = new LinkedHashSet<>(available.attendants(first, f.getPlaneType(), origin));
+                for (FAPosition p : FAPosition.values()) {
+                    if (p != first) all.addAll(available.attendants(p, f.getPlaneType(), origin));
+                }
+                yield all;
+            }
+        };
+    }
+
+    // No overlap with their other flights, they are standing at the origin, and their next flight leaves from where f lands
+    private boolean fits(Crew c, Flight f) {
+        LocalDateTime dep = f.getDepartureUTC();
+        Flight before = assignments.previous(c, dep);
+        Flight after = assignments.next(c, dep);
+        if (before != null && before.getArrivalUTC().plus(minTurn).isAfter(dep)) return false;
+        if (after != null && f.getArrivalUTC().plus(minTurn).isAfter(after.getDepartureUTC())) return false;
+
+        String standing = before != null ? before.getDestination() : c.getBaseAirport();
+        if (!sameAirport(standing, f.getOrigin())) return false;
+        return after == null || sameAirport(after.getOrigin(), f.getDestination());
+    }
+
+    // Legal on top of the duty history, and their next flight stays legal after f even if it was never recorded
+    private boolean legal(Crew c, Flight f) {
+        if (!duty.canTake(c, f)) return false;
+        Flight after = assignments.next(c, f.getDepartureUTC());
+        if (after == null || duty.hasRecorded(c, after)) return true;
+        DutyTimeEngine trial = duty.fork();
+        trial.record(c, f);
+        return trial.canTake(c, after);
+    }
+
+    private static boolean fillsSlot(Crew c, Slot slot) {
+        return switch (slot) {
+            case CAPTAIN -> c instanceof Pilot p && p.getRank() == PilotRank.CAPTAIN;
+            case FIRST_OFFICER -> c instanceof Pilot p && p.getRank() == PilotRank.FIRST_OFFICER;
+            case ATTENDANT -> c instanceof FlightAttendant;
+        };
+    }
+
+    private static boolean sameAirport(String a, String b) {
+        return FlightSearchIndex.normalize(a).equals(FlightSearchIndex.normalize(b));
+    }
+
+    private static boolean isOn(Flight f, Crew c) {
+        return c.equals(f.getCaptain()) || c.equals(f.getFirstOfficer()) || f.getAttendants().contains(c);
+    }
+
+    private static Slot slotOf(Flight f, Crew c) {
+        if (c.equals(f.getCaptain())) return Slot.CAPTAIN;
+        if (c.equals(f.getFirstOfficer())) return Slot.FIRST_OFFICER;
+        if (c instanceof FlightAttendant fa && f.getAttendants().contains(fa)) return Slot.ATTENDANT;
+        return null;
+    }
+
+    private static void unassign(Flight f, Slot slot, Crew c) {
+        switch (slot) {
+            case CAPTAIN -> f.setCaptain(null);
+            case FIRST_OFFICER -> f.setFirstOfficer(null);
+            case ATTENDANT -> f.removeAttendant((FlightAttendant) c);
+        }
+    }
+
+    private static void assign(Flight f, Slot slot, Crew c) {
+        switch (slot) {
+            case CAPTAIN -> f.assignCaptain((Pilot) c);
+            case FIRST_OFFICER -> f.assignFirstOfficer((Pilot) c);
+            case ATTENDANT -> f.addAttendant((FlightAttendant) c);
+        }
+    }
+}
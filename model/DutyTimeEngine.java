@@ -0,0 +1,381 @@
+package model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flight-time, duty-time and rest legality per crew member.
+ * <p>
+ * <b>Windows:</b> flight minutes over 24h, 28 days and 365 days, and duty minutes over 7
+ * days. A duty period runs from {@code report} before its first flight to {@code debrief}
+ * after its last; a gap shorter than {@code minRest} does not end it, so "too little rest"
+ * shows up as a duty period running past {@code maxDutyPeriod}. Flights need not be
+ * checked or recorded in time order: a flight joins the duty periods of its neighbours on
+ * either side, and every window it falls in is checked, the one ending at its own arrival
+ * and those ending at the crew member's later flights.
+ * </p>
+ * <p>
+ * <b>How:</b> each crew member keeps their flights and duty periods in TreeMaps keyed by
+ * start, so the neighbouring duty periods are two lookups. Each window is also a ring of
+ * fixed-size time buckets (15 min for 24h, 1h for 7 days, 1 day for 28 and 365 days) with
+ * a running total. Moving a window forward clears only the buckets that fall out, so a
+ * flight after everything recorded is checked and recorded in O(1) amortized, without
+ * re-summing history; a bucket straddling the window start counts whole, which errs on
+ * the strict side. A flight before the latest recorded one is checked exactly from the
+ * TreeMaps instead, with one sliding pass per window over the flights it could push over
+ * a limit.
+ * </p>
+ * {@link #fork()} gives a scratch engine for trial plans (e.g. {@link RosterSolver}): it
+ * reads through to this one and copies a crew member's history on first write.
+ */
+public class DutyTimeEngine {
+    /** Limits checked by {@link #check(Crew, Flight)}. */
+    public record Limits(Duration maxFlight24h, Duration maxDuty7d, Duration maxFlight28d, Duration maxFlight365d,
+                         Duration maxDutyPeriod, Duration minRest, Duration report, Duration debrief) {
+        public Limits {
+            Objects.requireNonNull(maxFlight24h);
+            Objects.requireNonNull(maxDuty7d);
+            Objects.requireNonNull(maxFlight28d);
+            Objects.requireNonNull(maxFlight365d);
+            Objects.requireNonNull(maxDutyPeriod);
+            Objects.requireNonNull(minRest);
+            Objects.requireNonNull(report);
+            Objects.requireNonNull(debrief);
+        }
+
+        /** Typical airline values: 9h/24h, 60h duty/7d, 100h/28d, 1000h/365d, 13h duty period, 10h rest. */
+        public static Limits defaults() {
+            return new Limits(Duration.ofHours(9), Duration.ofHours(60), Duration.ofHours(100), Duration.ofHours(1000),
+                    Duration.ofHours(13), Duration.ofHours(10), Duration.ofMinutes(60), Duration.ofMinutes(30));
+        }
+    }
+
+    /** The first limit a flight would break. */
+    public enum Violation { FLIGHT_24H, DUTY_7D, FLIGHT_28D, FLIGHT_365D, DUTY_PERIOD, REST }
+
+    // stands in for crew with no history; check() only reads it
+    private static final Tracker EMPTY = new Tracker();
+
+    private static final long DAY = 1440;
+    private static final long WEEK = 7 * DAY;
+    private static final long YEAR = 365 * DAY;
+
+    private final Limits limits;
+    private final DutyTimeEngine parent;
+    private final Map<Crew, Tracker> trackers = new ConcurrentHashMap<>();
+
+    public DutyTimeEngine() {
+        this(Limits.defaults());
+    }
+
+    public DutyTimeEngine(Limits limits) {
+        this(Objects.requireNonNull(limits, "limits"), null);
+    }
+
+    private DutyTimeEngine(Limits limits, DutyTimeEngine parent) {
+        this.limits = limits;
+        this.parent = parent;
+    }
+
+    public Limits getLimits() { return limits; }
+
+    /**
+     * A scratch copy for trial plans. Reads fall through to this engine until a crew
+     * member is first recorded in the fork; this engine must not change while the fork
+     * is in use.
+     */
+    public DutyTimeEngine fork() {
+        return new DutyTimeEngine(limits, this);
+    }
+
+    /** @return true if {@code crew} may legally take {@code flight} on top of what is recorded */
+    public boolean canTake(Crew crew, Flight flight) {
+        return check(crew, flight) == null;
+    }
+
+    /** @return the first limit {@code flight} would break for {@code crew}, or null if legal */
+    public Violation check(Crew crew, Flight flight) {
+        Tracker t = find(crew);
+        if (t == null) return check(EMPTY, flight);
+        synchronized (t) {
+            return check(t, flight);
+        }
+    }
+
+    /** Add {@code flight} to {@code crew}'s history (whether or not it was legal). */
+    public void record(Crew crew, Flight flight) {
+        Tracker t = trackers.computeIfAbsent(Objects.requireNonNull(crew), c -> {
+            Tracker inherited = parent == null ? null : parent.find(c);
+            if (inherited == null) return new Tracker();
+            synchronized (inherited) {
+                return inherited.copy();
+            }
+        });
+        synchronized (t) {
+            long dep = minutes(flight.getDepartureUTC());
+            long arr = minutes(flight.getArrivalUTC());
+            Duty d = duty(t, dep, arr);
+            t.flight24h.add(dep, arr);
+            t.flight28d.add(dep, arr);
+            t.flight365d.add(dep, arr);
+            t.duty7d.add(d.from, d.to);
+            t.flights.put(dep, arr);
+            t.lastArrival = Math.max(t.lastArrival, arr);
+            // the neighbours it joined become one duty period
+            t.periods.subMap(d.start, true, d.release, false).clear();
+            t.periods.put(d.start, d.release);
+            // nothing older than the longest window is ever looked at again
+            t.flights.headMap(t.lastArrival - YEAR - DAY).clear();
+            t.periods.headMap(t.lastArrival - YEAR - DAY).clear();
+        }
+    }
+
+    /** @return true if {@code flight} is in {@code crew}'s history (same departure and arrival) */
+    public boolean hasRecorded(Crew crew, Flight flight) {
+        Tracker t = find(crew);
+        if (t == null) return false;
+        synchronized (t) {
+            Long arr = t.flights.get(minutes(flight.getDepartureUTC()));
+            return arr != null && arr == minutes(flight.getArrivalUTC());
+        }
+    }
+
+    /** Flight minutes recorded for {@code crew} in the 28 days up to {@code at}. */
+    public long flightMinutes28d(Crew crew, LocalDateTime at) {
+        Tracker t = find(crew);
+        if (t == null) return 0;
+        synchronized (t) {
+            long end = minutes(at);
+            return sumIn(t.flights, end - 28 * DAY, end);
+        }
+    }
+
+    // ---- Helpers ----
+
+    private Tracker find(Crew crew) {
+        Tracker t = trackers.get(crew);
+        return t != null || parent == null ? t : parent.find(crew);
+    }
+
+    private Violation check(Tracker t, Flight flight) {
+        long dep = minutes(flight.getDepartureUTC());
+        long arr = minutes(flight.getArrivalUTC());
+        Duty d = duty(t, dep, arr);
+        if (d.release - d.start > limits.maxDutyPeriod().toMinutes()) {
+            return d.continuing ? Violation.REST : Violation.DUTY_PERIOD;
+        }
+        if (dep >= t.lastArrival) {
+            // after everything recorded: only the windows ending at this flight grow, and the rings hold them
+            if (t.flight24h.sumWith(dep, arr) > limits.maxFlight24h().toMinutes()) return Violation.FLIGHT_24H;
+            if (t.duty7d.sumWith(d.from, d.to) > limits.maxDuty7d().toMinutes()) return Violation.DUTY_7D;
+            if (t.flight28d.sumWith(dep, arr) > limits.maxFlight28d().toMinutes()) return Violation.FLIGHT_28D;
+            if (t.flight365d.sumWith(dep, arr) > limits.maxFlight365d().toMinutes()) return Violation.FLIGHT_365D;
+            return null;
+        }
+        // out of order: the windows ending at later flights may grow too, so sum them exactly
+        NavigableMap<Long, Long> flights = around(t.flights, dep - YEAR, arr + YEAR);
+        flights.put(dep, arr);
+        NavigableMap<Long, Long> periods = around(t.periods, d.start - WEEK, d.release + WEEK);
+        periods.subMap(d.start, true, d.release, false).clear();
+        periods.put(d.start, d.release);
+        if (maxWindow(flights, arr, DAY) > limits.maxFlight24h().toMinutes()) return Violation.FLIGHT_24H;
+        if (maxWindow(periods, d.release, WEEK) > limits.maxDuty7d().toMinutes()) return Violation.DUTY_7D;
+        if (maxWindow(flights, arr, 28 * DAY) > limits.maxFlight28d().toMinutes()) return Violation.FLIGHT_28D;
+        if (maxWindow(flights, arr, YEAR) > limits.maxFlight365d().toMinutes()) return Violation.FLIGHT_365D;
+        return null;
+    }
+
+    /**
+     * The duty period [start, release) this flight would fall in once it joins its
+     * neighbours, and the duty minutes it adds, [from, to): its own duty plus any rest gap
+     * to a neighbour that becomes duty. {@code continuing} if it joined a neighbour.
+     */
+    private record Duty(long start, long release, long from, long to, boolean continuing) { }
+
+    private Duty duty(Tracker t, long dep, long arr) {
+        long minRest = limits.minRest().toMinutes();
+        long start = dep - limits.report().toMinutes();
+        long release = arr + limits.debrief().toMinutes();
+        long from = start, to = release;
+        boolean continuing = false;
+        Map.Entry<Long, Long> before = t.periods.floorEntry(start);
+        if (before != null && start - before.getValue() < minRest) {
+            // sitting between flights of one duty period counts as duty
+            continuing = true;
+            from = before.getValue();
+            start = before.getKey();
+            release = Math.max(release, before.getValue());
+        }
+        Map.Entry<Long, Long> after = t.periods.higherEntry(start);
+        while (after != null && after.getKey() - release < minRest) {
+            if (!continuing || after.getKey() > from) to = Math.min(to, after.getKey());
+            continuing = true;
+            release = Math.max(release, after.getValue());
+            after = t.periods.higherEntry(after.getKey());
+        }
+        return new Duty(start, release, from, Math.max(from, to), continuing);
+    }
+
+    // Copy of the spans that reach into [from, to), for a what-if check
+    private static NavigableMap<Long, Long> around(NavigableMap<Long, Long> spans, long from, long to) {
+        Long first = spans.floorKey(from);
+        return new TreeMap<>(spans.subMap(first == null ? Long.MIN_VALUE : first, true, to, false));
+    }
+
+    // Minutes of 'spans' (start -> end, disjoint) inside [from, to)
+    private static long sumIn(NavigableMap<Long, Long> spans, long from, long to) {
+        long s = 0;
+        Map.Entry<Long, Long> first = spans.lowerEntry(from);
+        if (first != null && first.getValue() > from) s += Math.min(first.getValue(), to) - from;
+        for (Map.Entry<Long, Long> e : spans.subMap(from, true, to, false).entrySet()) {
+            s += Math.min(e.getValue(), to) - e.getKey();
+        }
+        return s;
+    }
+
+    /**
+     * Largest total of {@code spans} over a window of {@code length} minutes ending at
+     * {@code end} or at any later span end whose window still reaches back before {@code end}.
+     * One pass with two pointers; spans are disjoint, so their ends are sorted too.
+     */
+    private static long maxWindow(NavigableMap<Long, Long> spans, long end, long length) {
+        int n = spans.size();
+        long[] starts = new long[n], ends = new long[n], prefix = new long[n + 1];
+        int i = 0;
+        for (Map.Entry<Long, Long> e : spans.entrySet()) {
+            starts[i] = e.getKey();
+            ends[i] = e.getValue();
+            prefix[i + 1] = prefix[i] + (ends[i] - starts[i]);
+            i++;
+        }
+        long best = 0;
+        int left = 0;
+        for (int k = 0; k < n; k++) {
+            long at = ends[k];
+            if (at < end) continue;
+            long from = at - length;
+            if (from >= end) break;
+            while (left < k && ends[left] <= from) left++;
+            long sum = prefix[k + 1] - prefix[left] - Math.max(0, from - starts[left]);
+            best = Math.max(best, sum);
+        }
+        return best;
+    }
+
+    private static long minutes(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static final class Tracker {
+        final Window flight24h;
+        final Window duty7d;
+        final Window flight28d;
+        final Window flight365d;
+        // departure -> arrival, and duty period start -> release, in minutes
+        final TreeMap<Long, Long> flights = new TreeMap<>();
+        final TreeMap<Long, Long> periods = new TreeMap<>();
+        long lastArrival = Long.MIN_VALUE;
+
+        Tracker() {
+            this(new Window(15, 96), new Window(60, 168), new Window(1440, 28), new Window(1440, 365));
+        }
+
+        private Tracker(Window f24, Window d7, Window f28, Window f365) {
+            this.flight24h = f24;
+            this.duty7d = d7;
+            this.flight28d = f28;
+            this.flight365d = f365;
+        }
+
+        Tracker copy() {
+            Tracker c = new Tracker(flight24h.copy(), duty7d.copy(), flight28d.copy(), flight365d.copy());
+            c.flights.putAll(flights);
+            c.periods.putAll(periods);
+            c.lastArrival = lastArrival;
+            return c;
+        }
+    }
+
+    /** Ring of {@code size} buckets of {@code bucketMinutes} each, with a running total. */
+    private static final class Window {
+        private final long bucketMinutes;
+        private final int[] ring;
+        private long head = Long.MIN_VALUE;   // newest bucket index in the ring
+        private long sum;
+
+        Window(long bucketMinutes, int size) {
+            this.bucketMinutes = bucketMinutes;
+            this.ring = new int[size];
+        }
+
+        Window copy() {
+            Window w = new Window(bucketMinutes, ring.length);
+            System.arraycopy(ring, 0, w.ring, 0, ring.length);
+            w.head = head;
+            w.sum = sum;
+            return w;
+        }
+
+        // Spread minutes [from, to) over their buckets
+        void add(long from, long to) {
+            for (long b = Math.floorDiv(from, bucketMinutes); from < to; b++) {
+                long next = Math.min(to, (b + 1) * bucketMinutes);
+                advance(b);
+                if (b > head - ring.length) {
+                    ring[slot(b)] += (int) (next - from);
+                    sum += next - from;
+                }
+                from = next;
+            }
+        }
+
+        // Total of the window ending at minute to - 1 if [from, to) were added
+        long sumWith(long from, long to) {
+            long end = Math.floorDiv(to - 1, bucketMinutes);
+            long oldest = end - ring.length + 1;
+            long added = Math.max(0, to - Math.max(from, oldest * bucketMinutes));
+            return sumEnding(to - 1) + added;
+        }
+
+        long sumEnding(long minute) {
+            if (head == Long.MIN_VALUE) return 0;
+            long end = Math.floorDiv(minute, bucketMinutes);
+            int n = ring.length;
+            long s = 0;
+            if (end >= head) {
+                if (end - head >= n) return 0;
+                s = sum;
+                for (long b = head - n + 1; b <= end - n; b++) s -= ring[slot(b)];
+            } else {
+                // looking back from before the newest bucket: add up what is still in the ring
+                for (long b = Math.max(end - n + 1, head - n + 1); b <= end; b++) s += ring[slot(b)];
+            }
+            return s;
+        }
+
+        private void advance(long b) {
+            if (head != Long.MIN_VALUE && b <= head) return;
+            if (head == Long.MIN_VALUE || b - head >= ring.length) {
+                Arrays.fill(ring, 0);
+                sum = 0;
+            } else {
+                for (long k = head + 1; k <= b; k++) {
+                    sum -= ring[slot(k)];
+                    ring[slot(k)] = 0;
+                }
+            }
+            head = b;
+        }
+
+        private int slot(long bucket) {
+            return (int) Math.floorMod(bucket, (long) ring.length);
+        }
+    }
+}
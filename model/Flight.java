@@ -1,15 +1,21 @@
 package model;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import model.core.Notifiable;
 import model.enums.CrewStatus;
+import model.enums.FareClass;
 import model.enums.PilotRank;
 import model.enums.PlaneType;
+import model.enums.ReservationStatus;
 
 public class Flight implements Notifiable{
     private final String flightNumber;
@@ -18,17 +24,16 @@ public class Flight implements Notifiable{
     private final String destination;
     private LocalDateTime departureUTC;
     private LocalDateTime arrivalUTC;
-    private String gate;
+    // the origin and destination airports each assign their own gate
+    private volatile String gate;
+    private volatile String arrivalGate;
     private final Plane plane;
     private Pilot captain;
     private Pilot firstOfficer;
     private final List<FlightAttendant> attendants = new ArrayList<>();
     private final int minAttendants;
-    private final List<Ticket> tickets = new ArrayList<>();
-
-    // --- instance limit control ---
-    private static final int MAXIMUM_INSTANCES = 100;
-    private static int instanceCount = 0;
+    private final TicketManifest tickets = new TicketManifest();
+    private final List<FlightListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructs a new Flight object that represents a scheduled airline flight.
@@ -54,14 +59,6 @@ public class Flight implements Notifiable{
     */
     public Flight(String flightNumber, String airline, String origin, String destination, LocalDateTime departureUTC,
             LocalDateTime arrivalUTC, Plane plane, int minAttendants) {
-
-        // Check if we have 100 flights already
-        if (instanceCount >= MAXIMUM_INSTANCES) {
-            throw new IllegalStateException(
-                "Cannot create more than " + MAXIMUM_INSTANCES + " Flight instances.");
-        }
-        instanceCount++;
-
         this.flightNumber = Objects.requireNonNull(flightNumber);
         this.airline = Objects.requireNonNull(airline);
         this.origin = Objects.requireNonNull(origin);
@@ -78,17 +75,94 @@ public class Flight implements Notifiable{
     public String getDestination() { return destination; }
     public LocalDateTime getDepartureUTC() { return departureUTC; }
     public LocalDateTime getArrivalUTC() { return arrivalUTC; }
+    // departure gate at the origin
     public String getGate() { return gate; }
-    public void setGate(String gate) { this.gate = gate; }
+    public void setGate(String gate) { setGateAt(origin, gate); }
+    public String getArrivalGate() { return arrivalGate; }
+    public void setArrivalGate(String gate) { setGateAt(destination, gate); }
+
+    // The gate this flight uses at an airport: the departure gate at the origin, the arrival gate at the destination
+    public String getGateAt(String airportId) {
+        if (airportId.equals(origin)) return gate;
+        if (airportId.equals(destination)) return arrivalGate;
+        return null;
+    }
+
+    public void setGateAt(String airportId, String newGate) {
+        String oldGate;
+        synchronized (this) {
+            oldGate = swapGate(airportId, newGate);
+        }
+        gateChanged(airportId, oldGate, newGate);
+    }
+
+    // Set the gate at an airport only if it is still 'expected'; false if someone changed it meanwhile
+    boolean compareAndSetGate(String airportId, String expected, String newGate) {
+        synchronized (this) {
+            if (!Objects.equals(getGateAt(airportId), expected)) return false;
+            swapGate(airportId, newGate);
+        }
+        gateChanged(airportId, expected, newGate);
+        return true;
+    }
+
+    // caller holds the flight lock; listeners are called after it is released
+    private String swapGate(String airportId, String newGate) {
+        String oldGate;
+        if (airportId.equals(origin)) {
+            oldGate = gate;
+            gate = newGate;
+        } else {
+            require(airportId.equals(destination), "Flight " + flightNumber + " does not use airport " + airportId);
+            oldGate = arrivalGate;
+            arrivalGate = newGate;
+        }
+        return oldGate;
+    }
+
+    private void gateChanged(String airportId, String oldGate, String newGate) {
+        if (!Objects.equals(oldGate, newGate)) {
+            for (FlightListener l : listeners) l.onGateChanged(this, airportId, oldGate);
+        }
+    }
+    public FlightKey getKey() { return new FlightKey(flightNumber, departureUTC); }
     public PlaneType getPlaneType() { return plane.getPlaneType() ;}
     public Plane getPlane(){ return plane; }
     public Pilot getCaptain() { return captain;}
-    public void setCaptain(Pilot captain) { this.captain = captain; }
+    public void setCaptain(Pilot captain) {
+        Pilot old = this.captain;
+        this.captain = captain;
+        crewChanged(old, captain);
+    }
     public Pilot getFirstOfficer() { return firstOfficer; }
-    public void setFirstOfficer(Pilot firstOfficer) { this.firstOfficer = firstOfficer;}
+    public void setFirstOfficer(Pilot firstOfficer) {
+        Pilot old = this.firstOfficer;
+        this.firstOfficer = firstOfficer;
+        crewChanged(old, firstOfficer);
+    }
     public List<FlightAttendant> getAttendants() { return Collections.unmodifiableList(attendants); }
     public int getMinAttendants() { return minAttendants; }
-    public List<Ticket> getTickets() { return Collections.unmodifiableList(tickets); }
+    public List<Ticket> getTickets() {
+        synchronized (tickets) {
+            return tickets.toList();
+        }
+    }
+
+    public int getTicketCount() {
+        synchronized (tickets) {
+            return tickets.size();
+        }
+    }
+
+    public boolean hasTicket(Ticket ticket) {
+        synchronized (tickets) {
+            return ticket != null && tickets.get(ticket.getTicketId()) == ticket;
+        }
+    }
+
+    // Indexes holding this flight register here to follow retimes and gate changes
+    public void addListener(FlightListener listener) { listeners.add(Objects.requireNonNull(listener)); }
+    public void removeListener(FlightListener listener) { listeners.remove(listener); }
 
     // -------- Crew assignment methods --------
     public void assignCaptain(Pilot p){
@@ -96,7 +170,7 @@ public class Flight implements Notifiable{
         require(p.getStatus() == CrewStatus.AVAILABLE, "Captain must not be ON LEAVE or SUSPENDED");
         require(p.getRank() == PilotRank.CAPTAIN, "Captain must have rank CAPTAIN");
         require(p.canOperate(getPlaneType()), "Captain lacks type rating for Aircraft: " + getPlaneType());
-        this.captain = p;
+        setCaptain(p);
     }
 
     public void assignFirstOfficer(Pilot p){
@@ -104,7 +178,7 @@ public class Flight implements Notifiable{
         require(p.getStatus() == CrewStatus.AVAILABLE, "First Officer must not be ON LEAVE or SUSPENDED");
         require(p.getRank() == PilotRank.FIRST_OFFICER, "First Officer must have rank FIRST OFFICER");
         require(p.canOperate(getPlaneType()), "First Officer lacks type rating for Aircraft: " + getPlaneType());
-        this.firstOfficer = p;
+        setFirstOfficer(p);
     }
 
     public void addAttendant(FlightAttendant fa){
@@ -113,16 +187,38 @@ public class Flight implements Notifiable{
         require(fa.canOperate(getPlaneType()), "Flight attendant not qualified for Aircraft: " + getPlaneType());
         require(!attendants.contains(fa), "attendant already assigned");
         attendants.add(fa);
+        crewChanged(null, fa);
     }
 
     // boolean to make sure attendant is even assigned prior to removal
     public boolean removeAttendant(FlightAttendant fa){
-        return attendants.remove(fa);
+        boolean removed = attendants.remove(fa);
+        if (removed) crewChanged(fa, null);
+        return removed;
     }
 
-    // Check if adequate crew is assigned to the flight
+    // Check if adequate crew is assigned to the flight; crew on leave or suspended do not count
     public boolean hasRequiredCrew(){
-        return captain != null && firstOfficer != null && attendants.size() >= minAttendants;
+        if (!isAvailable(captain) || !isAvailable(firstOfficer)) return false;
+        int ready = 0;
+        for (FlightAttendant fa : attendants) {
+            if (isAvailable(fa)) ready++;
+        }
+        return ready >= minAttendants;
+    }
+
+    private static boolean isAvailable(Crew crew) {
+        return crew != null && crew.getStatus() == CrewStatus.AVAILABLE;
+    }
+
+    private void crewChanged(Crew removed, Crew assigned) {
+        if (removed == assigned) return;
+        if (removed != null) {
+            for (FlightListener l : listeners) l.onCrewRemoved(this, removed);
+        }
+        if (assigned != null) {
+            for (FlightListener l : listeners) l.onCrewAssigned(this, assigned);
+        }
     }
 
     public Duration getDuration(){
@@ -142,8 +238,7 @@ public class Flight implements Notifiable{
         LocalDateTime oldDeparture = departureUTC;
         LocalDateTime oldArrival = arrivalUTC;
 
-        departureUTC = departureUTC.plusMinutes(minutes);
-        arrivalUTC = arrivalUTC.plusMinutes(minutes);
+        reschedule(departureUTC.plusMinutes(minutes), arrivalUTC.plusMinutes(minutes));
 
         // Notify the change
         notifyWithPrefix("Delay", String.format(
@@ -158,44 +253,191 @@ public class Flight implements Notifiable{
         ));
     }
 
-    // Reassign gate and notify
+    /**
+     * Move the flight to a new departure and arrival, e.g. from a schedule update. Tickets
+     * and crew stay on the flight; registries and airports holding it re-key through
+     * {@link FlightListener#onRetimed}. Nothing happens if both times are unchanged.
+     *
+     * @throws IllegalArgumentException if the arrival is before the departure
+     * @throws IllegalStateException    if a listener refuses the move, e.g. a registry that
+     *                                  already holds this flight number at the new departure
+     */
+    public void reschedule(LocalDateTime newDeparture, LocalDateTime newArrival) {
+        Objects.requireNonNull(newDeparture);
+        Objects.requireNonNull(newArrival);
+        require(!newArrival.isBefore(newDeparture), "Arrival time must be after Departure time!");
+        if (newDeparture.equals(departureUTC) && newArrival.equals(arrivalUTC)) return;
+        retime(newDeparture, newArrival);
+    }
+
+    // Move the flight and tell listeners; also used to replay a recorded retime.
+    // Listeners may refuse first; the ones already asked are told, and the flight is left as it was.
+    void retime(LocalDateTime newDeparture, LocalDateTime newArrival) {
+        FlightListener[] asked = listeners.toArray(new FlightListener[0]);
+        for (int i = 0; i < asked.length; i++) {
+            try {
+                asked[i].onRetiming(this, newDeparture, newArrival);
+            } catch (RuntimeException e) {
+                for (int j = 0; j < i; j++) asked[j].onRetimeRefused(this, newDeparture, newArrival);
+                throw e;
+            }
+        }
+        LocalDateTime oldDeparture = departureUTC;
+        LocalDateTime oldArrival = arrivalUTC;
+        departureUTC = newDeparture;
+        arrivalUTC = newArrival;
+        ReservationJournal.getDefault().retimed(this, oldDeparture);
+        for (FlightListener l : listeners) l.onRetimed(this, oldDeparture, oldArrival);
+    }
+
+    // Reassign the departure gate and notify
     public void changeGate(String newGate){
-        String oldGate = this.gate;
-        this.gate = Objects.requireNonNull(newGate);
+        changeGateAt(origin, newGate);
+    }
+
+    // Reassign the gate at the origin or the destination and notify
+    public void changeGateAt(String airportId, String newGate){
+        Objects.requireNonNull(newGate);
+        String oldGate;
+        synchronized (this) {
+            oldGate = swapGate(airportId, newGate);
+        }
+        gateChanged(airportId, oldGate, newGate);
 
         // Trigger notification
+        String which = airportId.equals(origin) ? "Gate" : "Arrival gate";
         if (oldGate == null) {
-            notify("Gate assigned to " + newGate);
+            notify(which + " assigned to " + newGate);
         } else if (!oldGate.equals(newGate)) {
-            notifyWithPrefix("Gate Change", "from " + oldGate + " to " + newGate);
+            notifyWithPrefix(airportId.equals(origin) ? "Gate Change" : "Arrival Gate Change",
+                    "from " + oldGate + " to " + newGate);
         } else {
-            notify("Gate remains the same (" + newGate + ")");
+            notify(which + " remains the same (" + newGate + ")");
         }
     }
 
-    // Add a ticket and decrement plane capacity
+    // Add a ticket and reserve the first free seat of its type
     public void addTicket(Ticket ticket) {
         require(ticket != null, "Ticket must not be null");
-        require(plane.reserveSeat(ticket.getSeatType()), "No seats available for this type");
-        tickets.add(ticket);
-        // planeType.getPlane().decrementCapacity();
+        int seat = plane.reserveSeat(ticket.getFareClass());
+        require(seat >= 0, "No " + ticket.getSeatType() + " seats available");
+        ticket.setSeatIndex(seat);
+        synchronized (tickets) {
+            tickets.add(ticket);
+        }
+        ReservationJournal.getDefault().ticketed(ticket);
     }
 
-    // Remove a ticket and increment plane capacity
+    // Add a ticket for a specific seat (e.g. "14C"); the seat must be free
+    public void addTicket(Ticket ticket, String seatCode) {
+        require(ticket != null, "Ticket must not be null");
+        int seat = plane.seatIndex(seatCode);
+        require(plane.fareClassOf(seat) == ticket.getFareClass(),
+                "Seat " + seatCode + " is not a " + ticket.getSeatType() + " seat");
+        require(plane.reserveSeatByCode(seatCode) >= 0, "Seat " + seatCode + " is already taken");
+        ticket.setSeatIndex(seat);
+        synchronized (tickets) {
+            tickets.add(ticket);
+        }
+        ReservationJournal.getDefault().ticketed(ticket);
+    }
+
+    /**
+     * Book a whole group in one step: all seats are reserved with a single atomic
+     * inventory update and a ticket is created per passenger, all with the same booking
+     * time, or nothing is booked.
+     *
+     * @param passengers each passenger and the class they fly, in booking order
+     * @return the new tickets, in the order of {@code passengers}
+     * @throws IllegalArgumentException if the group is empty or any cabin lacks seats for it
+     */
+    public List<Ticket> bookGroup(Map<Customer, FareClass> passengers) {
+        require(passengers != null && !passengers.isEmpty(), "Group must have at least one passenger");
+        int[] counts = new int[FareClass.count()];
+        for (FareClass fc : passengers.values()) {
+            require(fc != null, "Fare class must not be null");
+            counts[fc.ordinal()]++;
+        }
+        int[] seats = plane.reserveSeats(counts);
+        require(seats != null, "Not enough seats for a group of " + passengers.size());
+
+        // seats come back grouped by cabin; hand them out per class in order
+        int[] next = new int[FareClass.count()];
+        for (int c = 1; c < next.length; c++) next[c] = next[c - 1] + counts[c - 1];
+        List<Ticket> group = new ArrayList<>(passengers.size());
+        Instant bookedAt = Instant.now();
+        try {
+            for (Map.Entry<Customer, FareClass> e : passengers.entrySet()) {
+                int seat = seats[next[e.getValue().ordinal()]++];
+                group.add(new Ticket(e.getValue(), this, e.getKey(), bookedAt, seat));
+            }
+        } catch (RuntimeException e) {
+            plane.releaseSeats(seats);
+            throw e;
+        }
+        synchronized (tickets) {
+            for (Ticket t : group) tickets.add(t);
+        }
+        for (Ticket t : group) ReservationJournal.getDefault().ticketed(t);
+        return group;
+    }
+
+    // Book a group that all flies the same class
+    public List<Ticket> bookGroup(List<Customer> passengers, FareClass fareClass) {
+        require(passengers != null, "Passengers must not be null");
+        Map<Customer, FareClass> group = new LinkedHashMap<>();
+        for (Customer c : passengers) group.put(c, fareClass);
+        require(group.size() == passengers.size(), "Each passenger may appear only once in a group");
+        return bookGroup(group);
+    }
+
+    // Remove a ticket and release its seat; O(1) by ticket id
     public boolean removeTicket(Ticket ticket) {
-        boolean removed = tickets.remove(ticket);
-        if (removed) plane.releaseSeat(ticket.getSeatType()); // use plane instance
+        if (ticket == null) return false;
+        boolean removed;
+        synchronized (tickets) {
+            removed = tickets.get(ticket.getTicketId()) == ticket && tickets.remove(ticket.getTicketId()) != null;
+        }
+        if (removed) {
+            ticket.releaseSeat(); // no-op if cancel() already gave it back
+            ReservationJournal.getDefault().unlisted(ticket);
+        }
         return removed;
     }
 
+    // Put a restored ticket back on the manifest, in the seat it had unless it was cancelled;
+    // false if that seat is taken
+    boolean restoreTicket(Ticket ticket) {
+        boolean holdsSeat = ticket.getSeatIndex() >= 0 && ticket.getStatus() != ReservationStatus.CANCELED;
+        if (holdsSeat && plane.reserveSeatAt(ticket.getSeatIndex()) < 0) return false;
+        boolean added;
+        synchronized (tickets) {
+            added = tickets.add(ticket);
+        }
+        if (!added && holdsSeat) plane.releaseSeat(ticket.getSeatIndex());
+        return added;
+    }
+
+    // Restore a saved crew assignment as is: no checks, no listener calls
+    void restoreCrew(Pilot captain, Pilot firstOfficer, List<FlightAttendant> attendants) {
+        this.captain = captain;
+        this.firstOfficer = firstOfficer;
+        this.attendants.addAll(attendants);
+    }
+
     // Get available seats
     public int getAvailableSeats() {
         return plane.getAvailableSeats();
     }
 
-    // Check if seats available for a seat type
+    // Check if seats available for a seat type; anything that is not a fare class (e.g. "any") checks the whole plane
     public boolean hasSeats(String seatType) {
-        return getAvailableSeats() > 0;
+        FareClass fareClass = FareClass.tryParse(seatType);
+        return fareClass == null ? getAvailableSeats() > 0 : hasSeats(fareClass);
+    }
+
+    public boolean hasSeats(FareClass fareClass) {
+        return plane.getAvailableSeats(fareClass) > 0;
     }
 
     // UTILITY: Require method for validation throughout this class
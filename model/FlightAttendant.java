@@ -16,7 +16,7 @@ import java.util.*;
 public class FlightAttendant extends Crew {
 
     private FAPosition position;
-    private final Set<PlaneType> cabinQualifications = new HashSet<>();
+    private final Set<PlaneType> cabinQualifications = EnumSet.noneOf(PlaneType.class);
 
         /**
      * Constructs a new FlightAttendant object.
@@ -40,17 +40,26 @@ public class FlightAttendant extends Crew {
 
     // ---------------- Getters / Setters ----------------
     public FAPosition getPosition() { return position;}
-    public void setPosition(FAPosition position) {this.position = Objects.requireNonNull(position);}
+    public void setPosition(FAPosition position) {
+        FAPosition old = this.position;
+        this.position = Objects.requireNonNull(position);
+        if (old != position) fireChanged();
+    }
     public Set<PlaneType> getCabinQualifications() {return Collections.unmodifiableSet(cabinQualifications);}
 
     // If cabin crew has completed training for plane type
-    public void addCabinQualification(PlaneType type){cabinQualifications.add(type);}
+    public void addCabinQualification(PlaneType type){
+        if (cabinQualifications.add(Objects.requireNonNull(type))) fireChanged();
+    }
 
     // ---------------- Abstract Overrides from Crew ----------------
 
     @Override
     public Role getRole() {return Role.FLIGHT_ATTENDANT;}
 
+    @Override
+    public Set<PlaneType> getQualifiedTypes() {return getCabinQualifications();}
+
     @Override
     public boolean canOperate(PlaneType type) {return getStatus() == CrewStatus.AVAILABLE && cabinQualifications.contains(type);}
 
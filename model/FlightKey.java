@@ -0,0 +1,16 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The identity a {@link Flight} is compared by: flight number plus scheduled departure.
+ * A flight's key changes when it is retimed, so indexes keyed by it must re-key on
+ * {@link FlightListener#onRetimed}.
+ */
+public record FlightKey(String flightNumber, LocalDateTime departureUTC) {
+    public FlightKey {
+        Objects.requireNonNull(flightNumber, "flightNumber");
+        Objects.requireNonNull(departureUTC, "departureUTC");
+    }
+}
@@ -0,0 +1,34 @@
+package model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Callback for indexes that must follow changes to a {@link Flight} they hold.
+ * All methods are no-ops by default; listeners are called synchronously, after the change.
+ */
+public interface FlightListener {
+    /**
+     * Departure and arrival are about to move; throw IllegalStateException to refuse, and
+     * the flight stays unchanged. Whatever was prepared here is undone in
+     * {@link #onRetimeRefused} if a later listener refuses.
+     */
+    default void onRetiming(Flight flight, LocalDateTime newDeparture, LocalDateTime newArrival) { }
+
+    /** Another listener refused a move this one already accepted in {@link #onRetiming}. */
+    default void onRetimeRefused(Flight flight, LocalDateTime newDeparture, LocalDateTime newArrival) { }
+
+    /** Departure and arrival moved (e.g. a delay); the old times are passed in. */
+    default void onRetimed(Flight flight, LocalDateTime oldDeparture, LocalDateTime oldArrival) { }
+
+    /**
+     * The flight's gate at {@code airportId} (its origin or destination) changed;
+     * {@code oldGate} may be null. Called after the flight lock is released.
+     */
+    default void onGateChanged(Flight flight, String airportId, String oldGate) { }
+
+    /** A captain, first officer or attendant was put on the flight. */
+    default void onCrewAssigned(Flight flight, Crew crew) { }
+
+    /** A captain, first officer or attendant was taken off the flight. */
+    default void onCrewRemoved(Flight flight, Crew crew) { }
+}
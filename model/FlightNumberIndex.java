@@ -0,0 +1,149 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Flight-number lookups: every dated instance of a number, and prefix autocomplete.
+ * <p>
+ * Exact lookups are one hash probe into immutable, departure-sorted lists that are
+ * replaced copy-on-write (the same scheme as {@link FlightSearchIndex}), so they never
+ * lock. Autocomplete walks a character trie: O(prefix) to reach the node, then a
+ * depth-first walk in alphabetical order that stops after {@code limit} numbers. Empty
+ * branches are pruned on removal, so every branch walked leads to a result.
+ * </p>
+ * Numbers are normalized (trimmed, upper-cased), so "ua001 " finds UA001.
+ * Subscribe it to a {@link FlightRegistry} to keep it current.
+ */
+public class FlightNumberIndex implements FlightRegistry.Listener {
+    private static final Comparator<Flight> BY_DEPARTURE = Comparator.comparing(Flight::getDepartureUTC);
+
+    private final ConcurrentMap<String, List<Flight>> instances = new ConcurrentHashMap<>();
+    private final Node root = new Node();
+
+    private static final class Node {
+        final Map<Character, Node> children = new TreeMap<>();
+        boolean terminal;
+    }
+
+    /** Every dated instance of the flight number, sorted by departure; never null. */
+    public List<Flight> find(String flightNumber) {
+        List<Flight> hits = instances.get(normalize(flightNumber));
+        return hits != null ? hits : List.of();
+    }
+
+    /**
+     * The next instance departing at or after {@code time}, else the last one that
+     * already departed; null if the number is unknown.
+     */
+    public Flight findNearest(String flightNumber, LocalDateTime time) {
+        List<Flight> hits = find(flightNumber);
+        for (Flight f : hits) {
+            if (!f.getDepartureUTC().isBefore(time)) return f;
+        }
+        return hits.isEmpty() ? null : hits.get(hits.size() - 1);
+    }
+
+    /** Up to {@code limit} known flight numbers starting with {@code prefix}, in alphabetical order. */
+    public List<String> complete(String prefix, int limit) {
+        String p = normalize(prefix);
+        List<String> out = new ArrayList<>(Math.min(limit, 16));
+        if (limit <= 0) return out;
+        synchronized (root) {
+            Node node = root;
+            for (int i = 0; i < p.length() && node != null; i++) {
+                node = node.children.get(p.charAt(i));
+            }
+            if (node != null) collect(node, new StringBuilder(p), limit, out);
+        }
+        return out;
+    }
+
+    public void add(Flight flight) {
+        String number = normalize(flight.getFlightNumber());
+        instances.compute(number, (k, list) -> with(list, flight));
+        synchronized (root) {
+            Node node = root;
+            for (int i = 0; i < number.length(); i++) {
+                node = node.children.computeIfAbsent(number.charAt(i), c -> new Node());
+            }
+            node.terminal = true;
+        }
+    }
+
+    public void remove(Flight flight) {
+        String number = normalize(flight.getFlightNumber());
+        List<Flight> left = instances.computeIfPresent(number, (k, list) -> without(list, flight));
+        if (left == null) {
+            synchronized (root) {
+                // the number may have been re-added between the two steps
+                if (!instances.containsKey(number)) prune(root, number, 0);
+            }
+        }
+    }
+
+    /** Normalized form used as the key: trimmed and upper-cased. */
+    public static String normalize(String flightNumber) {
+        return flightNumber == null ? "" : flightNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // ---- FlightRegistry.Listener ----
+
+    @Override public void onRegistered(Flight flight) { add(flight); }
+    @Override public void onRemoved(Flight flight) { remove(flight); }
+
+    @Override
+    public void onRetimed(Flight flight, LocalDateTime oldDeparture, LocalDateTime oldArrival) {
+        // the number is unchanged; only the order of its instances may have moved
+        instances.computeIfPresent(normalize(flight.getFlightNumber()), (k, list) -> sorted(new ArrayList<>(list)));
+    }
+
+    // ---- Helpers ----
+
+    private static void collect(Node node, StringBuilder path, int limit, List<String> out) {
+        if (node.terminal) out.add(path.toString());
+        for (Map.Entry<Character, Node> e : node.children.entrySet()) {
+            if (out.size() >= limit) return;
+            path.append(e.getKey());
+            collect(e.getValue(), path, limit, out);
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    // @return true if node is now empty and can be dropped by its parent
+    private static boolean prune(Node node, String number, int depth) {
+        if (depth == number.length()) {
+            node.terminal = false;
+        } else {
+            Node child = node.children.get(number.charAt(depth));
+            if (child != null && prune(child, number, depth + 1)) node.children.remove(number.charAt(depth));
+        }
+        return !node.terminal && node.children.isEmpty();
+    }
+
+    private static List<Flight> with(List<Flight> list, Flight flight) {
+        List<Flight> next = list == null ? new ArrayList<>(1) : new ArrayList<>(list);
+        for (Flight f : next) if (f == flight) return list;
+        next.add(flight);
+        return sorted(next);
+    }
+
+    // returning null drops the entry
+    private static List<Flight> without(List<Flight> list, Flight flight) {
+        List<Flight> next = new ArrayList<>(list.size());
+        for (Flight f : list) if (f != flight) next.add(f);
+        return next.isEmpty() ? null : List.copyOf(next);
+    }
+
+    private static List<Flight> sorted(List<Flight> list) {
+        list.sort(BY_DEPARTURE);
+        return List.copyOf(list);
+    }
+}
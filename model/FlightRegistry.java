@@ -0,0 +1,142 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Owns the set of live flights, keyed by the same (flightNumber, departureUTC)
+ * identity {@link Flight#equals} uses.
+ * <p>
+ * Backed by a ConcurrentHashMap, so lookups never block and registrations from several
+ * threads (e.g. a parallel schedule import) scale with the number of cores. There is no
+ * instance cap; memory is the only limit. The registry listens to each flight and
+ * re-keys it when a delay changes its departure: the new key is claimed before the flight
+ * moves, so a delay onto a departure the same flight number already has is refused and
+ * the registry and its indexes never disagree.
+ * </p>
+ * Secondary indexes (search, status lookup, ...) subscribe with {@link #addListener}
+ * and are kept up to date incrementally as flights are registered, retimed and removed.
+ */
+public class FlightRegistry implements FlightListener {
+    private final ConcurrentMap<FlightKey, Flight> flights;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Follows registry membership; retimes are relayed after the registry has re-keyed. */
+    public interface Listener extends FlightListener {
+        default void onRegistered(Flight flight) { }
+        default void onRemoved(Flight flight) { }
+    }
+
+    public FlightRegistry() {
+        this(16);
+    }
+
+    /** @param expectedFlights sizing hint, e.g. the number of flight-dates in a season */
+    public FlightRegistry(int expectedFlights) {
+        this.flights = new ConcurrentHashMap<>(Math.max(16, expectedFlights));
+    }
+
+    /** Create a flight and register it; see {@link Flight#Flight} for validation. */
+    public Flight create(String flightNumber, String airline, String origin, String destination,
+                         LocalDateTime departureUTC, LocalDateTime arrivalUTC, Plane plane, int minAttendants) {
+        Flight flight = new Flight(flightNumber, airline, origin, destination, departureUTC, arrivalUTC, plane, minAttendants);
+        register(flight);
+        return flight;
+    }
+
+    /**
+     * Register an existing flight.
+     * @throws IllegalStateException if another flight with the same number and departure is registered
+     */
+    public void register(Flight flight) {
+        Objects.requireNonNull(flight, "flight");
+        Flight existing = flights.putIfAbsent(flight.getKey(), flight);
+        if (existing == null) {
+            flight.addListener(this);
+            for (Listener l : listeners) l.onRegistered(flight);
+        } else if (existing != flight) {
+            throw new IllegalStateException("Flight " + flight.getFlightNumber() + " departing "
+                    + flight.getDepartureUTC() + " is already registered");
+        }
+    }
+
+    /** @return true if the flight was registered and is now removed */
+    public boolean remove(Flight flight) {
+        if (flight == null || !flights.remove(flight.getKey(), flight)) return false;
+        flight.removeListener(this);
+        for (Listener l : listeners) l.onRemoved(flight);
+        return true;
+    }
+
+    /** Remove by identity; returns the removed flight or null. */
+    public Flight remove(FlightKey key) {
+        Flight flight = flights.get(key);
+        return flight != null && remove(flight) ? flight : null;
+    }
+
+    /** Subscribe an index; it is first fed every flight already registered. */
+    public void addListener(Listener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+        for (Flight f : flights.values()) listener.onRegistered(f);
+    }
+
+    public void removeListener(Listener listener) { listeners.remove(listener); }
+
+    public Flight get(FlightKey key) { return flights.get(key); }
+
+    public Flight get(String flightNumber, LocalDateTime departureUTC) {
+        return flights.get(new FlightKey(flightNumber, departureUTC));
+    }
+
+    public boolean contains(Flight flight) { return flight != null && flights.get(flight.getKey()) == flight; }
+    public int size() { return flights.size(); }
+
+    /** Live, weakly consistent view of all registered flights (no order). */
+    public Collection<Flight> getFlights() { return Collections.unmodifiableCollection(flights.values()); }
+
+    @Override
+    public void onRetiming(Flight flight, LocalDateTime newDeparture, LocalDateTime newArrival) {
+        if (!contains(flight)) return;
+        // claim the new key first; the flight is then briefly reachable under both keys
+        Flight clash = flights.putIfAbsent(new FlightKey(flight.getFlightNumber(), newDeparture), flight);
+        if (clash != null && clash != flight) {
+            throw new IllegalStateException("Flight " + flight.getFlightNumber() + " departing "
+                    + newDeparture + " is already registered");
+        }
+    }
+
+    @Override
+    public void onRetimeRefused(Flight flight, LocalDateTime newDeparture, LocalDateTime newArrival) {
+        FlightKey claimed = new FlightKey(flight.getFlightNumber(), newDeparture);
+        if (!claimed.equals(flight.getKey())) flights.remove(claimed, flight);
+    }
+
+    @Override
+    public void onRetimed(Flight flight, LocalDateTime oldDeparture, LocalDateTime oldArrival) {
+        // the new key was claimed in onRetiming; only the old one goes, unless the departure stayed
+        FlightKey oldKey = new FlightKey(flight.getFlightNumber(), oldDeparture);
+        if (oldKey.equals(flight.getKey()) ? contains(flight) : flights.remove(oldKey, flight)) {
+            for (Listener l : listeners) l.onRetimed(flight, oldDeparture, oldArrival);
+        }
+    }
+
+    @Override
+    public void onCrewAssigned(Flight flight, Crew crew) {
+        if (contains(flight)) {
+            for (Listener l : listeners) l.onCrewAssigned(flight, crew);
+        }
+    }
+
+    @Override
+    public void onCrewRemoved(Flight flight, Crew crew) {
+        if (contains(flight)) {
+            for (Listener l : listeners) l.onCrewRemoved(flight, crew);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Direct-flight search by (origin, destination, departure date).
+ * <p>
+ * Origin and destination are normalized once (trimmed, upper-cased), so a search is one
+ * hash lookup that returns a precomputed, departure-sorted, immutable list. Buckets are
+ * replaced copy-on-write under {@code ConcurrentHashMap.compute}, so searches never lock
+ * and always see a consistent list while flights are being added, delayed or removed.
+ * </p>
+ * Subscribe it to a {@link FlightRegistry} to keep it current.
+ */
+public class FlightSearchIndex implements FlightRegistry.Listener {
+    private static final Comparator<Flight> BY_DEPARTURE =
+            Comparator.comparing(Flight::getDepartureUTC).thenComparing(Flight::getFlightNumber);
+
+    private final ConcurrentMap<RouteDate, List<Flight>> buckets = new ConcurrentHashMap<>();
+
+    private record RouteDate(String origin, String destination, LocalDate date) { }
+
+    /** Flights from origin to destination departing on date, sorted by departure; never null. */
+    public List<Flight> find(String origin, String destination, LocalDate date) {
+        List<Flight> hits = buckets.get(new RouteDate(normalize(origin), normalize(destination), date));
+        return hits != null ? hits : List.of();
+    }
+
+    public void add(Flight flight) {
+        buckets.compute(keyOf(flight, flight.getDepartureUTC()), (k, list) -> with(list, flight));
+    }
+
+    public void remove(Flight flight) {
+        remove(flight, flight.getDepartureUTC());
+    }
+
+    /** Normalized form used for route keys: trimmed and upper-cased. */
+    public static String normalize(String airport) {
+        return airport == null ? "" : airport.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // ---- FlightRegistry.Listener ----
+
+    @Override public void onRegistered(Flight flight) { add(flight); }
+    @Override public void onRemoved(Flight flight) { remove(flight); }
+
+    @Override
+    public void onRetimed(Flight flight, LocalDateTime oldDeparture, LocalDateTime oldArrival) {
+        // same day: still re-sort, the order within the day may have changed
+        remove(flight, oldDeparture);
+        add(flight);
+    }
+
+    // ---- Helpers ----
+
+    private void remove(Flight flight, LocalDateTime departure) {
+        buckets.computeIfPresent(keyOf(flight, departure), (k, list) -> without(list, flight));
+    }
+
+    private static RouteDate keyOf(Flight flight, LocalDateTime departure) {
+        return new RouteDate(normalize(flight.getOrigin()), normalize(flight.getDestination()), departure.toLocalDate());
+    }
+
+    private static List<Flight> with(List<Flight> list, Flight flight) {
+        List<Flight> next = list == null ? new ArrayList<>(1) : new ArrayList<>(list);
+        for (Flight f : next) if (f == flight) return list;
+        next.add(flight);
+        next.sort(BY_DEPARTURE);
+        return List.copyOf(next);
+    }
+
+    // returning null drops the bucket
+    private static List<Flight> without(List<Flight> list, Flight flight) {
+        List<Flight> next = new ArrayList<>(list.size());
+        for (Flight f : list) if (f != flight) next.add(f);
+        return next.isEmpty() ? null : List.copyOf(next);
+    }
+}
@@ -0,0 +1,255 @@
+package model;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only record of every charge and refund, in whole cents.
+ * <p>
+ * <b>Exactly once:</b> each posting has a key (ticket id, kind, revision) that is claimed
+ * on the ticket's account together with its amount, so posting the same booking twice
+ * (a retried request, two code paths reaching the same ticket) adds nothing the second
+ * time. A refund returns exactly what was charged for that ticket.
+ * </p>
+ * <b>Totals:</b> a customer's balance is an {@code AtomicLong} on the {@link Customer}
+ * and the ledger-wide totals are {@link LongAdder}s, so posting only takes the ticket's
+ * own account lock and reading a balance is O(1). Entries are never changed or removed; the journal holds them
+ * in roughly posting order (sequence numbers give the exact order).
+ * <p>
+ * Bookings post to {@link #getDefault()}; install another with {@link #setDefault}.
+ * </p>
+ */
+public class Ledger {
+    public enum Kind { BOOKING, UPGRADE, REFUND }
+
+    /**
+     * One posting. {@code cents} is positive for money owed by the customer, negative
+     * for refunds.
+     */
+    public record Entry(long sequence, Kind kind, int ticketId, Customer customer, long cents, Instant postedAt) { }
+
+    // One per ticket: what has been posted for it, its net amount and what was charged.
+    // A posting's key is claimed and its amount applied together under the account's
+    // monitor, so a refund, or a snapshot, never sees a claimed posting whose amount is
+    // not in yet. Only one ticket's postings share a monitor. The fields are volatile so
+    // single reads need no lock.
+    private static final class Account {
+        private static final int MAX_BIT_REVISION = 62;
+        private static final long REFUND_BIT = 2L;
+
+        private volatile long net;
+        private volatile long charged;
+        // bit 0: booking, bit 1: refund, bit 1 + r: upgrade revision r (1..62)
+        private volatile long claimed;
+        private Set<Integer> laterUpgrades; // revisions past 62
+
+        long net() { return net; }
+
+        // Claim the key and apply the amount; false if the key was already claimed
+        synchronized boolean post(Kind kind, int revision, long cents) {
+            if (!claim(kind, revision)) return false;
+            add(cents);
+            return true;
+        }
+
+        // Claim the refund and return everything still charged; 0 if there is nothing to refund
+        synchronized long refund() {
+            if (net <= 0 || !claim(Kind.REFUND, 0)) return 0;
+            long cents = -net;
+            add(cents);
+            return cents;
+        }
+
+        private void add(long cents) {
+            if (cents > 0) charged += cents;
+            net += cents;
+        }
+
+        // An upgrade is refused once the refund is claimed: the refund already returned what was charged
+        private boolean claim(Kind kind, int revision) {
+            long bit = bit(kind, revision);
+            if (bit == 0) {
+                if ((claimed & REFUND_BIT) != 0) return false;
+                if (laterUpgrades == null) laterUpgrades = new HashSet<>();
+                return laterUpgrades.add(revision);
+            }
+            long refusedBy = kind == Kind.UPGRADE ? REFUND_BIT : 0;
+            if ((claimed & (bit | refusedBy)) != 0) return false;
+            claimed |= bit;
+            return true;
+        }
+
+        synchronized Postings postings() {
+            int upgrades = 0;
+            long upgradeBits = claimed >>> 2;
+            if (upgradeBits != 0) upgrades = 64 - Long.numberOfLeadingZeros(upgradeBits);
+            if (laterUpgrades != null) for (int r : laterUpgrades) upgrades = Math.max(upgrades, r);
+            return new Postings((claimed & 1L) != 0, upgrades, (claimed & REFUND_BIT) != 0, net, charged);
+        }
+
+        synchronized boolean isClaimed(Kind kind, int revision) {
+            long bit = bit(kind, revision);
+            if (bit != 0) return (claimed & bit) != 0;
+            return laterUpgrades != null && laterUpgrades.contains(revision);
+        }
+
+        synchronized void restore(long net, long chargedCents, boolean booked, int upgrades, boolean refundPosted) {
+            if (booked) claim(Kind.BOOKING, 0);
+            for (int r = 1; r <= upgrades; r++) claim(Kind.UPGRADE, r);
+            if (refundPosted) claim(Kind.REFUND, 0);
+            add(chargedCents);
+            add(net - chargedCents);
+        }
+
+        private static long bit(Kind kind, int revision) {
+            return switch (kind) {
+                case BOOKING -> 1L;
+                case REFUND -> REFUND_BIT;
+                case UPGRADE -> revision >= 1 && revision <= MAX_BIT_REVISION ? 1L << (1 + revision) : 0;
+            };
+        }
+    }
+
+    /**
+     * One ticket's postings as an {@link AirlineSnapshot} saves them: whether the booking
+     * and the refund are posted, the highest upgrade revision posted, and the net and
+     * charged cents, all read together.
+     */
+    record Postings(boolean booked, int upgrades, boolean refunded, long netCents, long chargedCents) {
+        static final Postings NONE = new Postings(false, 0, false, 0, 0);
+    }
+
+    private static volatile Ledger defaultLedger = new Ledger();
+
+    private final Clock clock;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Queue<Entry> journal = new ConcurrentLinkedQueue<>();
+    private final Map<Customer, Queue<Entry>> byCustomer = new ConcurrentHashMap<>();
+    private final Map<Integer, Account> accounts = new ConcurrentHashMap<>();
+    private final LongAdder charged = new LongAdder();
+    private final LongAdder refunded = new LongAdder();
+
+    public Ledger() {
+        this(Clock.systemUTC());
+    }
+
+    public Ledger(Clock clock) {
+        this.clock = Objects.requireNonNull(clock, "clock");
+    }
+
+    public static Ledger getDefault() { return defaultLedger; }
+
+    public static void setDefault(Ledger ledger) {
+        defaultLedger = Objects.requireNonNull(ledger, "ledger");
+    }
+
+    /** Charge the ticket's price to its customer; null if this booking was already charged. */
+    public Entry charge(Ticket ticket) {
+        return post(ticket, Kind.BOOKING, 0, ticket.getPriceCents());
+    }
+
+    /**
+     * Charge the difference for an upgrade; {@code revision} tells successive upgrades
+     * of one ticket apart.
+     *
+     * @return the entry, or null if this upgrade was already charged, costs nothing, or the
+     *         ticket was already refunded
+     */
+    public Entry chargeUpgrade(Ticket ticket, int revision, long cents) {
+        if (cents <= 0) return null;
+        return post(ticket, Kind.UPGRADE, revision, cents);
+    }
+
+    /** Refund everything charged for the ticket; null if already refunded or nothing was charged. */
+    public Entry refund(Ticket ticket) {
+        Account a = accounts.get(ticket.getTicketId());
+        if (a == null) return null;
+        long cents = a.refund();
+        return cents == 0 ? null : append(ticket, Kind.REFUND, 0, cents);
+    }
+
+    /** @return true if the booking charge for this ticket has been posted */
+    public boolean isCharged(Ticket ticket) {
+        Account a = accounts.get(ticket.getTicketId());
+        return a != null && a.isClaimed(Kind.BOOKING, 0);
+    }
+
+    /** Net cents posted for one ticket (charges minus refunds). */
+    public long netCents(Ticket ticket) {
+        Account a = accounts.get(ticket.getTicketId());
+        return a == null ? 0 : a.net();
+    }
+
+    public long totalChargedCents() { return charged.sum(); }
+    public long totalRefundedCents() { return refunded.sum(); }
+    public long size() { return sequence.get(); }
+
+    /** Snapshot of all entries, roughly in posting order. */
+    public List<Entry> entries() { return new ArrayList<>(journal); }
+
+    /** Snapshot of one customer's entries, roughly in posting order. */
+    public List<Entry> entriesFor(Customer customer) {
+        Queue<Entry> q = byCustomer.get(customer);
+        return q == null ? List.of() : new ArrayList<>(q);
+    }
+
+    // ---- Helpers ----
+
+    /** The ticket's postings, read in one step under its account lock. */
+    Postings postings(Ticket ticket) {
+        Account a = accounts.get(ticket.getTicketId());
+        return a == null ? Postings.NONE : a.postings();
+    }
+
+    /**
+     * Restore one ticket's postings from an {@link AirlineSnapshot}: its net and charged
+     * amounts, and the keys of the booking, its first {@code upgrades} upgrades and the
+     * refund as posted, so replaying any of them again changes nothing. The totals grow by
+     * the same amounts. No entries are added to the history.
+     */
+    void restoreAccount(Ticket ticket, long net, long chargedCents, boolean booked, int upgrades, boolean refundPosted) {
+        if (!booked && upgrades == 0 && !refundPosted) return;
+        Account a = accounts.computeIfAbsent(ticket.getTicketId(), id -> new Account());
+        a.restore(net, chargedCents, booked, upgrades, refundPosted);
+        this.charged.add(chargedCents);
+        this.refunded.add(chargedCents - net);
+        if (ticket.getCustomer() != null) ticket.getCustomer().post(net);
+    }
+
+    /** Replay a posting recorded by the {@link ReservationJournal}; same key, same amount. */
+    Entry restore(Ticket ticket, Kind kind, int revision, long cents) {
+        return post(ticket, kind, revision, cents);
+    }
+
+    private Entry post(Ticket ticket, Kind kind, int revision, long cents) {
+        Account a = accounts.computeIfAbsent(ticket.getTicketId(), id -> new Account());
+        if (!a.post(kind, revision, cents)) return null;
+        return append(ticket, kind, revision, cents);
+    }
+
+    // Record a posting whose amount is already on its account
+    private Entry append(Ticket ticket, Kind kind, int revision, long cents) {
+        Customer customer = ticket.getCustomer();
+        Entry e = new Entry(sequence.incrementAndGet(), kind, ticket.getTicketId(), customer, cents, clock.instant());
+        if (cents >= 0) charged.add(cents);
+        else refunded.add(-cents);
+        if (customer != null) {
+            customer.post(cents);
+            byCustomer.computeIfAbsent(customer, c -> new ConcurrentLinkedQueue<>()).add(e);
+        }
+        journal.add(e);
+        ReservationJournal.getDefault().posted(ticket, kind, revision, cents);
+        return e;
+    }
+}
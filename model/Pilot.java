@@ -15,7 +15,7 @@ import java.util.*;
  */
 public class Pilot extends Crew {
     private PilotRank rank;
-    private final Set<PlaneType> typeRatings = new HashSet<>(); 
+    private final Set<PlaneType> typeRatings = EnumSet.noneOf(PlaneType.class);
     private int totalFlightHours;
 
 
@@ -50,15 +50,21 @@ public class Pilot extends Crew {
     // ---------------- Getters and Setters ----------------
 
     public PilotRank getRank() { return rank;}
-    public void setRank(PilotRank rank) {this.rank = Objects.requireNonNull(rank);}
+    public void setRank(PilotRank rank) {
+        PilotRank old = this.rank;
+        this.rank = Objects.requireNonNull(rank);
+        if (old != rank) fireChanged();
+    }
     public Set<PlaneType> getTypeRatings() {return Collections.unmodifiableSet(typeRatings);}
 
     // If a pilot gains new certification, we need to add a new type rating
-    public void addTypeRating(PlaneType type){typeRatings.add(type);}
+    public void addTypeRating(PlaneType type){
+        if (typeRatings.add(Objects.requireNonNull(type))) fireChanged();
+    }
     public int getTotalFlightHours() {return totalFlightHours;}
     
     // No need for flight hours setter, but we add flight hours after each flight
-    public void addFlightHours(int hours){totalFlightHours += Math.min(0, hours);}
+    public void addFlightHours(int hours){totalFlightHours += Math.max(0, hours);}
 
     // ---------------- Abstract Overrides from Crew ----------------
 
@@ -69,6 +75,9 @@ public class Pilot extends Crew {
     }
 
 
+    @Override
+    public Set<PlaneType> getQualifiedTypes() { return getTypeRatings(); }
+
     @Override
     public Role getRole() {
         // Implements abstract from crew, either CAPTAIN or FIRST OFFICER
@@ -1,70 +1,137 @@
 package model;
 
+import model.enums.FareClass;
 import model.enums.PlaneType;
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Plane domain object:
- * - Generates deterministic seat codes based on PlaneType hints and capacity.
+ * - Seat codes come from a shared {@link SeatLayout} built once per type, capacity and cabin split.
  * - Answers simple route feasibility questions (range).
  * - Availability ignores maintenance (always true) in this simplified version.
+ * - Cabins are {@link FareClass}es (first/business/premium economy/economy), front to back.
+ *   Seats, prices and availability are arrays indexed by {@code FareClass.ordinal()}; a
+ *   class the plane does not sell simply has zero seats.
+ * - Seat inventory is thread-safe: the available count of every cabin is packed into one
+ *   AtomicLong and updated with a single CAS, so concurrent bookings can never oversell a
+ *   cabin, and the total (the sum of the cabins) always moves with them.
+ * - Individual seats are tracked in a {@link SeatMap} bitset (row-major, one bit per seat).
+ *   A seat is always taken from the counters before its bit is claimed, and its bit cleared
+ *   before the counters are given back, so there is always a free bit for every counted seat.
  */
 public class Plane {
     private final String planeId;
     private final PlaneType planeType;
     private final int capacity;
-    private int availableSeats;
-    private int firstClassSeats;
-    private int economySeats;
-    private int availableFirstClassSeats;
-    private int availableEconomySeats;
-    private final double firstClassPrice;
-    private final double economyPrice;
+    // seats and prices per FareClass ordinal
+    private final int[] cabinSeats;
+    private final double[] prices;
+    // Packed availability: FIELD_BITS bits per FareClass ordinal
+    private final AtomicLong inventory;
+    private final SeatLayout layout;
+    private final SeatMap seatMap;
 
     /**
+     * Two-cabin plane: 20% first class, 80% economy.
+     *
      * @param planeId    stable identifier (e.g., "P001")
      * @param planeType  aircraft type enum (provides seat layout hints/range)
      * @param capacity   total number of seats available for sale
      */
     public Plane(String planeId, PlaneType planeType, int capacity, double firstClassPrice, double economyPrice) {
+        this(planeId, planeType, twoCabin(capacity),
+                Map.of(FareClass.FIRST, firstClassPrice, FareClass.ECONOMY, economyPrice));
+    }
+
+    /**
+     * Plane using the PlaneType's default cabin split for every class that has a price.
+     * Seats of unpriced classes are folded into economy, which must be priced.
+     *
+     * @param capacity total number of seats available for sale
+     * @param prices   price per fare class sold on this plane
+     */
+    public Plane(String planeId, PlaneType planeType, int capacity, Map<FareClass, Double> prices) {
+        this(planeId, planeType, defaultCabins(planeType, capacity, prices), prices);
+    }
+
+    /**
+     * Fully configured plane.
+     *
+     * @param cabinSeats number of seats per fare class; capacity is their sum
+     * @param prices     price per fare class; classes without a price sell at 0.0
+     */
+    public Plane(String planeId, PlaneType planeType, Map<FareClass, Integer> cabinSeats, Map<FareClass, Double> prices) {
+        this(planeId, planeType, seatArray(cabinSeats), priceArray(prices));
+    }
+
+    /**
+     * Plane from per-FareClass-ordinal arrays, which are kept (not copied): planes built
+     * in bulk with the same configuration share them.
+     */
+    Plane(String planeId, PlaneType planeType, int[] cabinSeats, double[] prices) {
+        this(planeId, planeType, cabinSeats, prices, null);
+    }
+
+    // As above, with the layout already looked up (null: look it up)
+    Plane(String planeId, PlaneType planeType, int[] cabinSeats, double[] prices, SeatLayout layout) {
         this.planeId = planeId;
         this.planeType = planeType;
-        this.capacity = capacity;
-        this.firstClassPrice = firstClassPrice;
-        this.economyPrice = economyPrice;
-        this.availableSeats = Math.max(0, capacity);
-        // Split the seats: 20% first class, 80% economy
-        this.firstClassSeats = (int)Math.round(capacity * 0.2);
-        this.economySeats = capacity - this.firstClassSeats;
-        this.availableFirstClassSeats = this.firstClassSeats;
-        this.availableEconomySeats = this.economySeats;
+        this.cabinSeats = cabinSeats;
+        this.prices = prices;
+        int total = 0;
+        long packed = 0;
+        for (FareClass fc : FareClass.values()) {
+            int seats = cabinSeats[fc.ordinal()];
+            if (seats < 0 || seats > FIELD_MASK) {
+                throw new IllegalArgumentException(fc.getLabel() + " seats must be between 0 and " + FIELD_MASK + ": " + seats);
+            }
+            packed |= (long) seats << shift(fc.ordinal());
+            total += seats;
+        }
+        this.capacity = total;
+        this.inventory = new AtomicLong(packed);
+        this.layout = layout != null ? layout : SeatLayout.of(planeType, capacity, this.cabinSeats);
+        this.seatMap = new SeatMap(capacity);
     }
 
     public String getPlaneId() { return planeId; }
     public PlaneType getPlaneType() { return planeType; }
     public int getCapacity() { return capacity; }
-    public int getAvailableSeats() { return availableSeats; }
-    public int getAvailableFirstClassSeats() { return availableFirstClassSeats; }
-    public int getAvailableEconomySeats() { return availableEconomySeats; }
-    public int getFirstClassSeats() { return firstClassSeats; }
-    public int getEconomySeats() { return economySeats; }
-    public double getFirstClassPrice() { return firstClassPrice; }
-    public double getEconomyPrice() { return economyPrice; }
-
-
-    // Reserve one seat if available. Returns true if success, false if full.
-    public boolean decrementCapacity() {
-        if (availableSeats <= 0) return false;
-        availableSeats--;
-        return true;
+    public int getAvailableSeats() {
+        long cur = inventory.get();
+        int sum = 0;
+        for (int c = 0; c < cabinSeats.length; c++) sum += available(cur, c);
+        return sum;
     }
+    public int getAvailableSeats(FareClass fareClass) { return available(inventory.get(), fareClass.ordinal()); }
+    public int getSeats(FareClass fareClass) { return cabinSeats[fareClass.ordinal()]; }
+    public double getPrice(FareClass fareClass) { return prices[fareClass.ordinal()]; }
+    // the shared per-FareClass-ordinal arrays; callers must not change them
+    int[] cabinSeatArray() { return cabinSeats; }
+    double[] priceArray() { return prices; }
+    public int getAvailableFirstClassSeats() { return getAvailableSeats(FareClass.FIRST); }
+    public int getAvailableEconomySeats() { return getAvailableSeats(FareClass.ECONOMY); }
+    public int getFirstClassSeats() { return getSeats(FareClass.FIRST); }
+    public int getEconomySeats() { return getSeats(FareClass.ECONOMY); }
+    public double getFirstClassPrice() { return getPrice(FareClass.FIRST); }
+    public double getEconomyPrice() { return getPrice(FareClass.ECONOMY); }
 
-    public void incrementCapacity(){
-        if (availableSeats < capacity) availableSeats++;
+    /** @return fare classes this plane has seats in, front to back */
+    public List<FareClass> getFareClasses() {
+        List<FareClass> classes = new ArrayList<>(cabinSeats.length);
+        for (FareClass fc : FareClass.values()) {
+            if (cabinSeats[fc.ordinal()] > 0) classes.add(fc);
+        }
+        return classes;
     }
 
+
     // for Customer class check
     public boolean isOperable() {
         // simplified: always true since maintenance model beyond scope
@@ -72,51 +139,110 @@ public class Plane {
     }
 
     /**
-     * Generate seat codes like A1..F1, A2..F2, ... until capacity is reached.
+     * Seat codes like 1A..1F, 2A..2F, ... until capacity is reached.
      * Uses PlaneType's default seat letters (e.g., "ABCDEF" or "ABCDEFHJK") and seats-per-row hint.
      * If capacity is not a multiple of seats-per-row, the last row is partially filled from the start.
      *
-     * Example: capacity=5, letters="ABCD" -> A1,B1,C1,D1,A2
+     * Example: capacity=5, letters="ABCD" -> 1A,1B,1C,1D,2A
      *
-     * @return ordered, unique set of seat codes (LinkedHashSet preserves insertion order)
+     * @return ordered, unique, unmodifiable set of seat codes, shared by all planes with this layout
      */
     public Set<String> seatCodes() {
-        String letters = defaultSeatLetters();
-        int across = defaultSeatsPerRow(letters);
-
-        LinkedHashSet<String> codes = new LinkedHashSet<>(capacity * 2);
-        int fullRows = capacity / across;
-        int remainder = capacity % across;
+        return layout.seatCodes();
+    }
 
-        // full rows
-        for (int row = 1; row <= fullRows; row++) {
-            for (int i = 0; i < across; i++) {
-                codes.add(letters.charAt(i) + String.valueOf(row));
-            }
-        }
-        // last partial row
-        if (remainder > 0) {
-            int row = fullRows + 1;
-            for (int i = 0; i < remainder; i++) {
-                codes.add(letters.charAt(i) + String.valueOf(row));
-            }
+    /**
+     * Free seat codes of the given class, in seat order. Only free seats are looked up,
+     * so this is the place to pay for seat codes (i.e. when a seat map is shown).
+     */
+    public List<String> availableSeatCodes(FareClass fareClass) {
+        int cabin = fareClass.ordinal();
+        int from = layout.cabinStart(cabin), to = layout.cabinEnd(cabin);
+        List<String> codes = new ArrayList<>(seatMap.countFree(from, to));
+        for (int seat = seatMap.firstFree(from, to); seat >= 0; seat = seatMap.firstFree(seat + 1, to)) {
+            codes.add(layout.seatCode(seat));
         }
         return codes;
     }
 
+    /** Row-major seat index -> code, e.g. 0 -> "1A", 6 -> "2A" on a 6-across plane. */
+    public String seatCode(int seatIndex) { return layout.seatCode(seatIndex); }
+
+    /**
+     * Seat code -> row-major index. Accepts "14C" as well as the letter-first "C14".
+     * @throws IllegalArgumentException if the code is malformed or not on this plane
+     */
+    public int seatIndex(String seatCode) { return layout.seatIndex(seatCode); }
+
+    /** @return the shared seat layout template for this plane */
+    public SeatLayout getSeatLayout() { return layout; }
+
+    /** @return true if the seat at this index is already reserved */
+    public boolean isSeatTaken(int seatIndex) { return seatMap.isTaken(seatIndex); }
+
+    /** @return the fare class (cabin) the seat at this index belongs to */
+    public FareClass fareClassOf(int seatIndex) {
+        return FareClass.byIndex(layout.cabinOf(seatIndex));
+    }
+
      // ---------- Helpers ----------
 
-    private String defaultSeatLetters() {
-        String letters = planeType.getDefaultSeatLetters();
-        if (letters != null && !letters.isBlank()) return letters;
-        // Fallback: common 6-across narrow-body layout (skip 'I')
-        return "ABCDEF";
+    // Packed inventory layout: 16 bits per cabin, 4 cabins fill one long.
+    private static final int FIELD_BITS = 16;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+
+    private static int shift(int cabin) { return cabin * FIELD_BITS; }
+    private static int available(long packed, int cabin) { return (int) ((packed >>> shift(cabin)) & FIELD_MASK); }
+
+    private static int[] seatArray(Map<FareClass, Integer> cabinSeats) {
+        int[] seats = new int[FareClass.count()];
+        for (FareClass fc : FareClass.values()) seats[fc.ordinal()] = cabinSeats.getOrDefault(fc, 0);
+        return seats;
     }
 
-    private int defaultSeatsPerRow(String letters) {
-        int across = planeType.getDefaultSeatsPerRow();
-        if (across > 0) return across;
-        return Math.max(1, letters.length());
+    private static double[] priceArray(Map<FareClass, Double> prices) {
+        double[] p = new double[FareClass.count()];
+        for (FareClass fc : FareClass.values()) p[fc.ordinal()] = prices.getOrDefault(fc, 0.0);
+        return p;
+    }
+
+    private static Map<FareClass, Integer> twoCabin(int capacity) {
+        // Split the seats: 20% first class, 80% economy
+        int first = (int) Math.round(capacity * 0.2);
+        Map<FareClass, Integer> seats = new EnumMap<>(FareClass.class);
+        seats.put(FareClass.FIRST, first);
+        seats.put(FareClass.ECONOMY, capacity - first);
+        return seats;
+    }
+
+    private static Map<FareClass, Integer> defaultCabins(PlaneType planeType, int capacity, Map<FareClass, Double> prices) {
+        if (!prices.containsKey(FareClass.ECONOMY)) {
+            throw new IllegalArgumentException("Economy must be priced when using the default cabin split");
+        }
+        Map<FareClass, Integer> seats = new EnumMap<>(FareClass.class);
+        int assigned = 0;
+        for (FareClass fc : FareClass.values()) {
+            if (fc == FareClass.ECONOMY || !prices.containsKey(fc)) continue;
+            int n = (int) Math.round(capacity * planeType.getDefaultCabinShare(fc));
+            seats.put(fc, n);
+            assigned += n;
+        }
+        seats.put(FareClass.ECONOMY, capacity - assigned);
+        return seats;
+    }
+
+    // Take one seat of the cabin from the counters; false if the cabin is sold out.
+    private boolean takeCount(int cabin) {
+        long one = 1L << shift(cabin);
+        while (true) {
+            long cur = inventory.get();
+            if (available(cur, cabin) <= 0) return false;
+            if (inventory.compareAndSet(cur, cur - one)) return true;
+        }
+    }
+
+    private void giveBackCount(int cabin) {
+        inventory.addAndGet(1L << shift(cabin));
     }
 
     // Equality by ID is practical for planes
@@ -128,53 +254,106 @@ public class Plane {
         return Objects.equals(planeId, other.planeId);
     }
 
-    // Reserve a seat of the given type ("first" or "economy").
-    // Returns true if a seat was successfully reserved, false otherwise.
-    public boolean reserveSeat(String seatType) {
-        if ("first".equalsIgnoreCase(seatType)) {
-            if (availableFirstClassSeats > 0 && availableSeats > 0) {
-                availableFirstClassSeats--;
-                availableSeats--;
-                return true;
+    /**
+     * Reserve the first free seat of the given class.
+     * Lock-free: the cabin counter is taken with one CAS, then the lowest free
+     * seat bit in that cabin is claimed.
+     *
+     * @return the reserved seat index, or -1 if the cabin is full
+     */
+    public int reserveSeat(FareClass fareClass) {
+        int cabin = fareClass.ordinal();
+        if (!takeCount(cabin)) return -1;
+        // the count guarantees a free bit exists in this cabin
+        return seatMap.claimFirstFree(layout.cabinStart(cabin), layout.cabinEnd(cabin));
+    }
+
+    /**
+     * Reserve the first free seat of the given type, e.g. "First" or "Business".
+     *
+     * @return the reserved seat index, or -1 if the cabin is full or the type is unknown
+     */
+    public int reserveSeat(String seatType) {
+        FareClass fc = FareClass.tryParse(seatType);
+        return fc == null ? -1 : reserveSeat(fc);
+    }
+
+    /**
+     * Reserve seats in several cabins at once, all or nothing. Every cabin counter is
+     * taken in a single CAS on the packed inventory, so either the whole request fits
+     * and is reserved, or nothing changes.
+     *
+     * @param counts seats wanted per FareClass ordinal
+     * @return the reserved seat indices, grouped by cabin front to back, or null if any cabin lacks seats
+     */
+    public int[] reserveSeats(int[] counts) {
+        long delta = 0;
+        int total = 0;
+        for (int c = 0; c < cabinSeats.length; c++) {
+            int n = c < counts.length ? counts[c] : 0;
+            if (n < 0) throw new IllegalArgumentException("Seat count must not be negative: " + n);
+            if (n > cabinSeats[c]) return null;
+            delta += (long) n << shift(c);
+            total += n;
+        }
+        while (true) {
+            long cur = inventory.get();
+            for (int c = 0; c < cabinSeats.length; c++) {
+                if (available(cur, c) < available(delta, c)) return null;
             }
-            return false;
-        } else if ("economy".equalsIgnoreCase(seatType)) {
-            if (availableEconomySeats > 0 && availableSeats > 0) {
-                availableEconomySeats--;
-                availableSeats--;
-                return true;
+            // no field can borrow from its neighbour: each was checked above
+            if (inventory.compareAndSet(cur, cur - delta)) break;
+        }
+        int[] seats = new int[total];
+        int i = 0;
+        for (int c = 0; c < cabinSeats.length; c++) {
+            for (int k = available(delta, c); k > 0; k--) {
+                seats[i++] = seatMap.claimFirstFree(layout.cabinStart(c), layout.cabinEnd(c));
             }
-            return false;
         }
-        return false;
+        return seats;
     }
 
-    // Release a seat of the given type ("first" or "economy").
-    public void releaseSeat(String seatType) {
-        if ("first".equalsIgnoreCase(seatType)) {
-            if (availableFirstClassSeats < firstClassSeats && availableSeats < capacity) {
-                availableFirstClassSeats++;
-                availableSeats++;
-            }
-        } else if ("economy".equalsIgnoreCase(seatType)) {
-            if (availableEconomySeats < economySeats && availableSeats < capacity) {
-                availableEconomySeats++;
-                availableSeats++;
-            }
+    /** Release every seat in the array; the counterpart of {@link #reserveSeats(int[])}. */
+    public void releaseSeats(int[] seatIndices) {
+        for (int seat : seatIndices) releaseSeat(seat);
+    }
+
+    /**
+     * Reserve one specific seat, e.g. "14C".
+     *
+     * @return the reserved seat index, or -1 if that seat is already taken
+     * @throws IllegalArgumentException if the code does not name a seat on this plane
+     */
+    public int reserveSeatByCode(String seatCode) {
+        return reserveSeatAt(seatIndex(seatCode));
+    }
+
+    // Reserve one seat by index; -1 if it is already taken
+    int reserveSeatAt(int seat) {
+        int cabin = layout.cabinOf(seat);
+        if (seatMap.isTaken(seat) || !takeCount(cabin)) return -1;
+        if (seatMap.claim(seat)) return seat;
+        giveBackCount(cabin);
+        return -1;
+    }
+
+    /**
+     * Release a previously reserved seat. Releasing a seat that is already free is a no-op,
+     * so a ticket canceled through more than one path cannot inflate availability.
+     */
+    public void releaseSeat(int seatIndex) {
+        if (seatMap.release(seatIndex)) {
+            giveBackCount(layout.cabinOf(seatIndex));
         }
     }
 
     /**
-     * Returns the price for the given seat type ("first" or "economy").
-     * @param seatType "first" or "economy"
+     * Returns the price for the given seat type, e.g. "First" or "Economy".
      * @return price for the seat type, or 0.0 if seatType is invalid
      */
     public double getPrice(String seatType) {
-        if ("first".equalsIgnoreCase(seatType)) {
-            return firstClassPrice;
-        } else if ("economy".equalsIgnoreCase(seatType)) {
-            return economyPrice;
-        }
-        return 0.0;
+        FareClass fc = FareClass.tryParse(seatType);
+        return fc == null ? 0.0 : getPrice(fc);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,628 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+import model.enums.FareClass;
+import model.enums.ReservationStatus;
+
+/**
+ * Append-only, memory-mapped journal of reservation events, replayed on startup.
+ * <p>
+ * <b>What is recorded:</b> a ticket placed on a flight (with its seat, fare, price and
+ * customer), status changes ({@link Ticket#onStatusChanged}), upgrades, tickets taken
+ * off a manifest, tickets filed with or removed from a customer, ledger postings and
+ * flight retimes. Each event is a small binary record; replaying them in order through
+ * the same objects rebuilds tickets, manifests, seat maps and counters, customer ticket
+ * lists and balances exactly.
+ * </p>
+ * <b>Format:</b> a 16-byte file header (magic, version, random journal id), then records of {@code [int length][int crc32][body]}
+ * in fixed-size mapped segments. A length of 0 ends the log; -1 skips to the next segment.
+ * On open, the log is read up to the first record that is incomplete or fails its
+ * checksum (a torn write from a crash); everything from there on is zeroed and new
+ * records continue at that point.
+ * <p>
+ * <b>Group commit:</b> appending is a copy into the mapped file under a short lock; it
+ * does not wait for the disk. A background thread forces everything appended so far at
+ * most every {@code flushInterval}, or at once when someone calls {@link #sync()}, so
+ * many events (from many threads) share each fsync. Booking, cancelling and upgrading
+ * call {@code sync()} before reporting success.
+ * </p>
+ * Events are recorded to {@link #getDefault()}, which records nothing until a journal is
+ * installed with {@link #setDefault}. Replay first, then install; the flights being
+ * booked (the schedule) must already be in the registry.
+ */
+public final class ReservationJournal implements Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(10);
+
+    /**
+     * What {@link #replay} did. {@code unseated} lists tickets replayed without a seat
+     * because it was taken by the time their event was applied; they stay booked and
+     * need reseating.
+     */
+    public record Recovery(long events, int tickets, long skipped, List<Ticket> unseated, Duration elapsed) { }
+
+    /**
+     * A point in one journal: the first {@code records} records of the journal with id
+     * {@code journalId}. An {@link AirlineSnapshot} stores the mark taken when it started,
+     * so replay can skip what the snapshot already holds.
+     */
+    public record Mark(long journalId, long records) { }
+
+    private static final int MAGIC = 0x524A4E31; // "RJN1"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int SKIP = -1;
+
+    private static final byte TICKETED = 1;
+    private static final byte STATUS = 2;
+    private static final byte RESEATED = 3;
+    private static final byte UNLISTED = 4;
+    private static final byte FILED = 5;
+    private static final byte UNFILED = 6;
+    private static final byte POSTED = 7;
+    private static final byte RETIMED = 8;
+
+    private static final ReservationJournal OFF = new ReservationJournal();
+    private static volatile ReservationJournal defaultJournal = OFF;
+
+    private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(256));
+    private static final ThreadLocal<CRC32> CRC = ThreadLocal.withInitial(CRC32::new);
+
+    private final Path file;
+    private final FileChannel channel;      // null: the OFF journal
+    private final int segmentSize;
+    private final long flushIntervalNanos;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final Thread flusher;
+    private final Object flushLock = new Object();
+
+    // guarded by this
+    private MappedByteBuffer current;
+    private int segmentIndex;
+    private int offset;
+    private long recordCount;
+    private boolean closed;
+    private long journalId;
+
+    private volatile long written;          // logical end of the last complete record
+    private long durable;                   // written by the flusher under flushLock: everything below is forced
+    private long requested;                 // guarded by flushLock: a sync() wants at least this
+    private IOException flushFailure;       // guarded by flushLock
+
+    private ReservationJournal() {
+        file = null;
+        channel = null;
+        segmentSize = 0;
+        flushIntervalNanos = 0;
+        flusher = null;
+    }
+
+    private ReservationJournal(Path file, int segmentSize, Duration flushInterval) throws IOException {
+        this.file = file;
+        this.segmentSize = segmentSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.flusher = new Thread(this::flushLoop, "reservation-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Open (or create) the journal at {@code file}, cutting off any torn tail.
+     *
+     * @throws UncheckedIOException  if the file cannot be opened or mapped
+     * @throws IllegalStateException if the file is not a reservation journal
+     */
+    public static ReservationJournal open(Path file) {
+        return open(file, DEFAULT_SEGMENT_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param segmentSize   bytes mapped at a time; the file grows by this much
+     * @param flushInterval longest time an appended event waits to be forced without a {@link #sync()}
+     */
+    public static ReservationJournal open(Path file, int segmentSize, Duration flushInterval) {
+        Objects.requireNonNull(file, "file");
+        if (segmentSize < 4096) throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        try {
+            return new ReservationJournal(file, segmentSize, flushInterval);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open reservation journal " + file, e);
+        }
+    }
+
+    public static ReservationJournal getDefault() { return defaultJournal; }
+
+    /** Start recording to {@code journal}; {@code null} stops recording. */
+    public static void setDefault(ReservationJournal journal) {
+        defaultJournal = journal == null ? OFF : journal;
+    }
+
+    /** @return number of records in the journal (recovered plus appended) */
+    public synchronized long size() { return recordCount; }
+
+    /** @return the current end of the journal; everything recorded so far is before it */
+    public synchronized Mark mark() { return new Mark(journalId, recordCount); }
+
+    /**
+     * Wait until every event appended so far is on disk. Concurrent callers share one fsync.
+     *
+     * @throws UncheckedIOException if forcing the file failed
+     */
+    public void sync() {
+        if (channel == null) return;
+        long target = written;
+        synchronized (flushLock) {
+            if (target > requested) {
+                requested = target;
+                flushLock.notifyAll();
+            }
+            boolean interrupted = false;
+            while (durable < target && flushFailure == null && flusher.isAlive()) {
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (flushFailure != null) throw new UncheckedIOException("Cannot force reservation journal " + file, flushFailure);
+        }
+    }
+
+    /** Force everything, stop the flusher and close the file. Appending afterwards throws. */
+    @Override
+    public void close() {
+        if (channel == null) return;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        synchronized (flushLock) {
+            flushLock.notifyAll();
+        }
+        try {
+            flusher.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close reservation journal " + file, e);
+        }
+        if (defaultJournal == this) defaultJournal = OFF;
+    }
+
+    // ---- Recording (called from the model) ----
+
+    void ticketed(Ticket t) {
+        if (channel == null) return;
+        Flight f = t.getFlight();
+        Customer c = t.getCustomer();
+        byte[] number = utf8(f.getFlightNumber());
+        byte[] name = utf8(c == null ? null : c.getName());
+        byte[] phone = utf8(c == null ? null : c.getPhoneNumber());
+        byte[] email = utf8(c == null ? null : c.getEmail());
+        ByteBuffer b = scratch(1 + 4 + 8 + 8 + 1 + 4 + 1 + 8 + 8 + number.length + name.length + phone.length + email.length);
+        b.put(TICKETED).putInt(t.getTicketId()).putLong(t.getCreatedAt().toEpochMilli())
+                .putLong(epochSecond(f.getDepartureUTC()))
+                .put((byte) t.getFareClass().ordinal()).putInt(t.getSeatIndex())
+                .put((byte) t.getStatus().ordinal()).putLong(t.getPriceCents());
+        putString(b, number);
+        putString(b, name);
+        putString(b, phone);
+        putString(b, email);
+        append(b);
+    }
+
+    void statusChanged(Ticket t, ReservationStatus status) {
+        if (channel == null) return;
+        append(scratch(6).put(STATUS).putInt(t.getTicketId()).put((byte) status.ordinal()));
+    }
+
+    void reseated(Ticket t, int revision) {
+        if (channel == null) return;
+        append(scratch(22).put(RESEATED).putInt(t.getTicketId()).put((byte) t.getFareClass().ordinal())
+                .putInt(t.getSeatIndex()).putLong(t.getPriceCents()).putInt(revision));
+    }
+
+    void unlisted(Ticket t) { ticketEvent(UNLISTED, t); }
+    void filed(Ticket t) { ticketEvent(FILED, t); }
+    void unfiled(Ticket t) { ticketEvent(UNFILED, t); }
+
+    void posted(Ticket t, Ledger.Kind kind, int revision, long cents) {
+        if (channel == null) return;
+        append(scratch(18).put(POSTED).putInt(t.getTicketId()).put((byte) kind.ordinal())
+                .putInt(revision).putLong(cents));
+    }
+
+    void retimed(Flight f, LocalDateTime oldDeparture) {
+        if (channel == null) return;
+        byte[] number = utf8(f.getFlightNumber());
+        ByteBuffer b = scratch(1 + 24 + 2 + number.length);
+        b.put(RETIMED).putLong(epochSecond(oldDeparture)).putLong(epochSecond(f.getDepartureUTC()))
+                .putLong(epochSecond(f.getArrivalUTC()));
+        putString(b, number);
+        append(b);
+    }
+
+    // ---- Replay ----
+
+    /**
+     * Apply every recorded event, in order, to the flights in {@code registry}. Customers
+     * are looked up (or created) in {@code customers} by email/phone, and postings go to
+     * {@code ledger}. Events for flights or tickets that no longer exist are skipped and
+     * counted. Ticket ids handed out afterwards continue past the highest id replayed.
+     *
+     * @throws IllegalStateException if this journal is already installed as the default
+     */
+    public Recovery replay(FlightRegistry registry, CustomerDirectory customers, Ledger ledger) {
+        return replay(registry, customers, ledger, null);
+    }
+
+    /**
+     * Replay on top of a loaded {@link AirlineSnapshot}: records before {@code after} are
+     * skipped when {@code after} is a mark of this journal, and the tickets already on the
+     * registry's flights are picked up, so events for them apply to the loaded objects.
+     * Replaying an event the snapshot already reflects changes nothing, so a snapshot
+     * written while bookings continued still converges to the journal's final state.
+     *
+     * @param after the snapshot's mark, or null to replay everything onto an empty schedule
+     */
+    public Recovery replay(FlightRegistry registry, CustomerDirectory customers, Ledger ledger, Mark after) {
+        Objects.requireNonNull(registry, "registry");
+        Objects.requireNonNull(customers, "customers");
+        Objects.requireNonNull(ledger, "ledger");
+        if (defaultJournal == this) throw new IllegalStateException("Replay the journal before installing it");
+        long start = System.nanoTime();
+        long events;
+        synchronized (this) {
+            events = recordCount;
+        }
+        Replayer r = new Replayer(registry, customers, ledger, (int) Math.min(1 << 24, events / 2 + 16));
+        long skip = after != null && after.journalId() == journalId ? after.records() : 0;
+        if (after != null) {
+            for (Flight f : registry.getFlights()) {
+                for (Ticket t : f.getTickets()) r.known(t);
+            }
+        }
+        long end = written;
+        ByteBuffer seg = null;
+        int segIdx = -1;
+        long pos = HEADER;
+        while (pos < end) {
+            int idx = (int) (pos / segmentSize);
+            int off = (int) (pos % segmentSize);
+            if (idx != segIdx) {
+                segIdx = idx;
+                seg = segments.get(idx).duplicate();
+            }
+            int len = off + 4 <= segmentSize ? seg.getInt(off) : SKIP;
+            if (len == SKIP) {
+                pos = (long) (idx + 1) * segmentSize;
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+            } else {
+                seg.limit(off + 8 + len).position(off + 8);
+                r.apply(seg);
+                seg.limit(seg.capacity());
+            }
+            pos += 8 + len;
+        }
+        if (r.maxTicketId > 0) TicketIdAllocator.getDefault().advancePast(r.maxTicketId);
+        return new Recovery(events, r.tickets.size(), r.skipped, List.copyOf(r.unseated),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static final class Replayer {
+        private final FlightRegistry registry;
+        private final CustomerDirectory customers;
+        private final Ledger ledger;
+        private final Map<Integer, Ticket> tickets;
+        private final Set<Ticket> unseated = new LinkedHashSet<>();
+        private final FareClass[] fares = FareClass.values();
+        private final ReservationStatus[] statuses = ReservationStatus.values();
+        private final Ledger.Kind[] kinds = Ledger.Kind.values();
+        private long skipped;
+        private int maxTicketId;
+
+        Replayer(FlightRegistry registry, CustomerDirectory customers, Ledger ledger, int expectedTickets) {
+            this.registry = registry;
+            this.customers = customers;
+            this.ledger = ledger;
+            this.tickets = new HashMap<>(expectedTickets);
+        }
+
+        void known(Ticket t) {
+            tickets.put(t.getTicketId(), t);
+            maxTicketId = Math.max(maxTicketId, t.getTicketId());
+        }
+
+        void apply(ByteBuffer b) {
+            byte type = b.get();
+            if (type == RETIMED) {
+                retime(b);
+                return;
+            }
+            int id = b.getInt();
+            maxTicketId = Math.max(maxTicketId, id);
+            if (type == TICKETED) {
+                ticket(id, b);
+                return;
+            }
+            Ticket t = tickets.get(id);
+            if (t == null) {
+                skipped++;
+                return;
+            }
+            switch (type) {
+                case STATUS -> t.restoreStatus(statuses[b.get()]);
+                case RESEATED -> {
+                    if (!t.restoreSeat(fares[b.get()], b.getInt(), b.getLong(), b.getInt())) unseated.add(t);
+                }
+                case UNLISTED -> t.getFlight().removeTicket(t);
+                case FILED -> t.getCustomer().addTicket(t);
+                case UNFILED -> t.getCustomer().restoreRemove(t);
+                case POSTED -> ledger.restore(t, kinds[b.get()], b.getInt(), b.getLong());
+                default -> skipped++;
+            }
+        }
+
+        private void ticket(int id, ByteBuffer b) {
+            if (tickets.containsKey(id)) return; // already loaded from a snapshot
+            Instant createdAt = Instant.ofEpochMilli(b.getLong());
+            LocalDateTime departure = fromEpochSecond(b.getLong());
+            FareClass fare = fares[b.get()];
+            int seat = b.getInt();
+            ReservationStatus status = statuses[b.get()];
+            long priceCents = b.getLong();
+            String number = getString(b);
+            String name = getString(b);
+            String phone = getString(b);
+            String email = getString(b);
+            Flight f = registry.get(number, departure);
+            if (f == null) {
+                skipped++;
+                return;
+            }
+            Customer c = customer(name, phone, email);
+            if (c == null) {
+                skipped++;
+                return;
+            }
+            Ticket t = Ticket.restore(id, fare, f, c, status, createdAt, priceCents, seat);
+            if (!f.restoreTicket(t)) {
+                // its seat is taken: keep the ticket without one, as a snapshot load does
+                t.setSeatIndex(-1);
+                if (!f.restoreTicket(t)) {
+                    skipped++;
+                    return;
+                }
+                unseated.add(t);
+            }
+            tickets.put(id, t);
+        }
+
+        private Customer customer(String name, String phone, String email) {
+            if (CustomerDirectory.normalizeEmail(email).isEmpty() && CustomerDirectory.normalizePhone(phone).isEmpty()) {
+                return new Customer(name, phone, email);
+            }
+            try {
+                return customers.findOrCreate(name, phone, email);
+            } catch (IllegalArgumentException e) {
+                // the email or phone now belongs to someone else
+                return null;
+            }
+        }
+
+        private void retime(ByteBuffer b) {
+            LocalDateTime oldDeparture = fromEpochSecond(b.getLong());
+            LocalDateTime departure = fromEpochSecond(b.getLong());
+            LocalDateTime arrival = fromEpochSecond(b.getLong());
+            Flight f = registry.get(getString(b), oldDeparture);
+            if (f == null) skipped++;
+            else f.retime(departure, arrival);
+        }
+    }
+
+    // ---- Helpers ----
+
+    private void ticketEvent(byte type, Ticket t) {
+        if (channel == null) return;
+        append(scratch(5).put(type).putInt(t.getTicketId()));
+    }
+
+    private void append(ByteBuffer body) {
+        body.flip();
+        int len = body.remaining();
+        CRC32 crc = CRC.get();
+        crc.reset();
+        crc.update(body.array(), 0, len);
+        int sum = (int) crc.getValue();
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("Reservation journal is closed");
+            if (offset + 8 + len > segmentSize) {
+                if (offset + 4 <= segmentSize) current.putInt(offset, SKIP);
+                current = segment(++segmentIndex);
+                offset = 0;
+            }
+            current.put(offset + 8, body, 0, len);
+            current.putInt(offset + 4, sum);
+            current.putInt(offset, len);
+            offset += 8 + len;
+            recordCount++;
+            written = (long) segmentIndex * segmentSize + offset;
+        }
+    }
+
+    private MappedByteBuffer segment(int index) {
+        while (segments.size() <= index) {
+            try {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * segmentSize, segmentSize));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map reservation journal " + file, e);
+            }
+        }
+        return segments.get(index);
+    }
+
+    // Find the end of the valid log, then zero and drop whatever lies beyond it
+    private void recover() throws IOException {
+        long size = channel.size();
+        current = segment(0);
+        if (size < HEADER || current.getInt(0) == 0) {
+            current.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, ThreadLocalRandom.current().nextLong() | 1);
+        } else if (current.getInt(0) != MAGIC || current.getInt(4) != VERSION) {
+            throw new IllegalStateException(file + " is not a reservation journal (or a newer version)");
+        }
+        journalId = current.getLong(8);
+        int segCount = (int) Math.max(1, (size + segmentSize - 1) / segmentSize);
+        CRC32 crc = new CRC32();
+        segmentIndex = 0;
+        offset = HEADER;
+        while (true) {
+            ByteBuffer seg = current.duplicate();
+            int len = offset + 4 <= segmentSize ? seg.getInt(offset) : SKIP;
+            if (len == SKIP) {
+                if (segmentIndex + 1 >= segCount) break;
+                current = segment(++segmentIndex);
+                offset = 0;
+                continue;
+            }
+            if (len <= 0 || offset + 8 + len > segmentSize) break;
+            seg.limit(offset + 8 + len).position(offset + 8);
+            crc.reset();
+            crc.update(seg);
+            if ((int) crc.getValue() != seg.getInt(offset + 4)) break;
+            offset += 8 + len;
+            recordCount++;
+        }
+        // torn or stale bytes after the end must never be read as records
+        ByteBuffer tail = current.duplicate().position(offset);
+        byte[] zeros = new byte[64 << 10];
+        while (tail.hasRemaining()) tail.put(zeros, 0, Math.min(zeros.length, tail.remaining()));
+        current.force();
+        long keep = (long) (segmentIndex + 1) * segmentSize;
+        if (size > keep) {
+            while (segments.size() > segmentIndex + 1) segments.remove(segments.size() - 1);
+            channel.truncate(keep);
+        }
+        written = (long) segmentIndex * segmentSize + offset;
+        durable = written;
+        requested = written;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            boolean stopping;
+            synchronized (flushLock) {
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (requested <= durable && !isClosed()) {
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) break;
+                    try {
+                        flushLock.wait(wait / 1_000_000, (int) (wait % 1_000_000));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                stopping = isClosed();
+            }
+            long target = written;
+            if (target > durable) {
+                IOException failure = null;
+                try {
+                    force(durable, target);
+                } catch (UncheckedIOException e) {
+                    failure = e.getCause();
+                }
+                synchronized (flushLock) {
+                    if (failure == null) durable = target;
+                    else flushFailure = failure;
+                    flushLock.notifyAll();
+                }
+                if (failure != null) return;
+            }
+            if (stopping && written <= durable) {
+                synchronized (flushLock) {
+                    flushLock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    private synchronized boolean isClosed() { return closed; }
+
+    private void force(long from, long to) {
+        for (int i = (int) (from / segmentSize); i <= (int) ((to - 1) / segmentSize); i++) {
+            long segStart = (long) i * segmentSize;
+            int start = (int) Math.max(0, from - segStart);
+            int end = (int) Math.min(segmentSize, to - segStart);
+            if (end > start) segments.get(i).force(start, end - start);
+        }
+    }
+
+    private static ByteBuffer scratch(int size) {
+        ByteBuffer b = SCRATCH.get();
+        if (b.capacity() < size) {
+            b = ByteBuffer.allocate(Math.max(size, b.capacity() * 2));
+            SCRATCH.set(b);
+        }
+        return b.clear();
+    }
+
+    private static byte[] utf8(String s) {
+        if (s == null) return new byte[0];
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IllegalArgumentException("String too long to journal: " + bytes.length + " bytes");
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer b, byte[] bytes) {
+        b.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer b) {
+        int len = Short.toUnsignedInt(b.getShort());
+        if (len == 0) return "";
+        byte[] bytes = new byte[len];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long epochSecond(LocalDateTime t) { return t.toEpochSecond(ZoneOffset.UTC); }
+    private static LocalDateTime fromEpochSecond(long s) { return LocalDateTime.ofEpochSecond(s, 0, ZoneOffset.UTC); }
+}
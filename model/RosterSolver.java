@@ -0,0 +1,413 @@
+package model;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+import model.enums.CrewStatus;
+import model.enums.PilotRank;
+import model.enums.PlaneType;
+
+/**
+ * Fills the open crew slots (captain, first officer, attendants up to the minimum) of a
+ * whole schedule at once.
+ * <p>
+ * <b>Rules:</b> a slot only takes crew of the right role and rank who are AVAILABLE and
+ * rated for the aircraft ({@link Crew#canOperate}). A crew member starts at their base,
+ * and every flight departs from where their previous one landed, whether that was the
+ * same day or an earlier one, planned in this solve or assigned before it. Flights of one
+ * crew member never overlap and are at least {@code minTurn} apart, including flights
+ * they were already assigned before the solve.
+ * </p>
+ * <b>How:</b> crew are snapshotted into flat records with their type ratings as a bitmask
+ * ({@code 1L << PlaneType.ordinal()}), so a candidate check is one AND. Bases are solved
+ * independently and in parallel: each flight belongs to the base it departs from (else
+ * the one it lands at), and a base's flights are staffed from that base's crew only, in
+ * departure order across all days, so every crew member's location, ready time and
+ * duty history ({@link DutyTimeEngine}, a private fork per base) carry from one day into
+ * the next. Each slot is filled from the crew currently standing at the origin,
+ * preferring whoever became free most recently, and a flight is staffed completely or
+ * not at all. A sequential repair pass then replays the whole plan in time order through
+ * one more fork, drops legs that clash or break the location chain, and fills those
+ * slots, and the slots of flights touching no base, from any crew member who fits.
+ */
+public class RosterSolver {
+    public static final Duration DEFAULT_MIN_TURN = Duration.ofMinutes(30);
+
+    public enum Slot { CAPTAIN, FIRST_OFFICER, ATTENDANT }
+
+    public record Assignment(Flight flight, Crew crew, Slot slot) { }
+
+    /**
+     * Outcome of a solve; nothing is changed on the flights until {@link #apply()}.
+     *
+     * @param understaffed flights that still miss crew after the solve
+     */
+    public record Roster(List<Assignment> assignments, List<Flight> understaffed, Duration solveTime) {
+        /** Assign the solved crew to their flights (duty history is left alone; see {@link RosterSolver#apply(Roster)}). */
+        public void apply() {
+            for (Assignment a : assignments) {
+                switch (a.slot()) {
+                    case CAPTAIN -> a.flight().assignCaptain((Pilot) a.crew());
+                    case FIRST_OFFICER -> a.flight().assignFirstOfficer((Pilot) a.crew());
+                    case ATTENDANT -> a.flight().addAttendant((FlightAttendant) a.crew());
+                }
+            }
+        }
+    }
+
+    private static final Comparator<Leg> BY_DEPARTURE = Comparator.comparing((Leg l) -> l.flight.getDepartureUTC())
+            .thenComparing(l -> l.flight.getFlightNumber()).thenComparing(Leg::slot).thenComparingInt(Leg::member);
+
+    private final Duration minTurn;
+    private final DutyTimeEngine duty;
+
+    public RosterSolver() {
+        this(DEFAULT_MIN_TURN, new DutyTimeEngine());
+    }
+
+    /**
+     * @param duty flight/duty history the roster must stay legal against; solving only
+     *             reads it, {@link #apply(Roster)} records the new assignments into it
+     */
+    public RosterSolver(Duration minTurn, DutyTimeEngine duty) {
+        this.minTurn = Objects.requireNonNull(minTurn, "minTurn");
+        this.duty = Objects.requireNonNull(duty, "duty");
+        if (minTurn.isNegative()) throw new IllegalArgumentException("minTurn must not be negative");
+    }
+
+    public Duration getMinTurn() { return minTurn; }
+    public DutyTimeEngine getDutyTimeEngine() { return duty; }
+
+    /** Assign the solved crew to their flights and add the flights to their duty history. */
+    public void apply(Roster roster) {
+        roster.apply();
+        for (Assignment a : roster.assignments()) duty.record(a.crew(), a.flight());
+    }
+
+    /** Plan crews for every open slot in {@code flights} from the given crew pool. */
+    public Roster solve(Collection<Flight> flights, Collection<? extends Crew> crew) {
+        long start = System.nanoTime();
+        Pool pool = new Pool(crew, flights);
+
+        Map<String, List<Flight>> byBase = new HashMap<>();
+        List<Leg> homeless = new ArrayList<>();
+        for (Flight f : flights) {
+            String home = pool.homeBase(f);
+            if (home != null) {
+                byBase.computeIfAbsent(home, b -> new ArrayList<>()).add(f);
+            } else {
+                for (Slot slot : Slot.values()) {
+                    for (int need = open(f, slot); need > 0; need--) homeless.add(new Leg(-1, f, slot));
+                }
+            }
+        }
+        List<List<Leg>> perBase = byBase.entrySet().parallelStream()
+                .map(e -> solveBase(pool, pool.byBase.get(e.getKey()), e.getValue())).toList();
+
+        Repair repair = new Repair(pool);
+        for (List<Leg> legs : perBase) repair.addAll(legs);
+        repair.run(homeless);
+
+        List<Assignment> assignments = new ArrayList<>();
+        for (Leg leg : repair.legs()) assignments.add(new Assignment(leg.flight, pool.members.get(leg.member).crew, leg.slot));
+        assignments.sort(Comparator.comparing((Assignment a) -> a.flight().getDepartureUTC())
+                .thenComparing(a -> a.flight().getFlightNumber()).thenComparing(Assignment::slot));
+
+        Set<Flight> understaffed = new LinkedHashSet<>();
+        for (Flight f : flights) {
+            if (repair.filled(f, Slot.CAPTAIN) < open(f, Slot.CAPTAIN)
+                    || repair.filled(f, Slot.FIRST_OFFICER) < open(f, Slot.FIRST_OFFICER)
+                    || repair.filled(f, Slot.ATTENDANT) < open(f, Slot.ATTENDANT)) {
+                understaffed.add(f);
+            }
+        }
+        return new Roster(List.copyOf(assignments), List.copyOf(understaffed), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    // ---- Base phase ----
+
+    // One base's flights, all days in departure order, from that base's crew
+    private List<Leg> solveBase(Pool pool, List<Integer> crew, List<Flight> day) {
+        day.sort(Comparator.comparing(Flight::getDepartureUTC).thenComparing(Flight::getFlightNumber));
+        int n = pool.members.size();
+        DutyTimeEngine legal = duty.fork();
+        String[] location = new String[n];
+        LocalDateTime[] readyAt = new LocalDateTime[n];
+        // airport -> members standing there, per slot kind
+        List<Map<String, List<Integer>>> at = new ArrayList<>();
+        for (int k = 0; k < Slot.values().length; k++) at.add(new HashMap<>());
+        for (int i : crew) {
+            Member m = pool.members.get(i);
+            location[i] = m.base;
+            readyAt[i] = LocalDateTime.MIN;
+            at.get(m.slot.ordinal()).computeIfAbsent(m.base, b -> new ArrayList<>()).add(i);
+        }
+
+        List<Leg> legs = new ArrayList<>();
+        List<Leg> tentative = new ArrayList<>();
+        for (Flight f : day) {
+            String origin = FlightSearchIndex.normalize(f.getOrigin());
+            long bit = 1L << f.getPlaneType().ordinal();
+            tentative.clear();
+            boolean complete = true;
+            for (Slot slot : Slot.values()) {
+                List<Integer> here = at.get(slot.ordinal()).get(origin);
+                for (int need = open(f, slot); need > 0 && complete; need--) {
+                    int best = -1;
+                    if (here != null) {
+                        for (int i : here) {
+                            Member m = pool.members.get(i);
+                            if ((m.quals & bit) == 0 || readyAt[i].isAfter(f.getDepartureUTC())) continue;
+                            if (picked(tentative, i) || !pool.clearOfFixed(m, f, minTurn)) continue;
+                            if (!legal.canTake(m.crew, f)) continue;
+                            if (best < 0 || readyAt[i].isAfter(readyAt[best])) best = i;
+                        }
+                    }
+                    if (best < 0) complete = false;
+                    else tentative.add(new Leg(best, f, slot));
+                }
+            }
+            if (!complete) continue;
+            String destination = FlightSearchIndex.normalize(f.getDestination());
+            for (Leg leg : tentative) {
+                int i = leg.member;
+                Map<String, List<Integer>> kind = at.get(leg.slot.ordinal());
+                kind.get(location[i]).remove(Integer.valueOf(i));
+                location[i] = destination;
+                readyAt[i] = f.getArrivalUTC().plus(minTurn);
+                kind.computeIfAbsent(destination, d -> new ArrayList<>()).add(i);
+                legal.record(pool.members.get(i).crew, f);
+                legs.add(leg);
+            }
+        }
+        return legs;
+    }
+
+    private static boolean picked(List<Leg> tentative, int member) {
+        for (Leg leg : tentative) if (leg.member == member) return true;
+        return false;
+    }
+
+    // Slots still open on a flight before the solve
+    private static int open(Flight f, Slot slot) {
+        return switch (slot) {
+            case CAPTAIN -> f.getCaptain() == null ? 1 : 0;
+            case FIRST_OFFICER -> f.getFirstOfficer() == null ? 1 : 0;
+            case ATTENDANT -> Math.max(0, f.getMinAttendants() - f.getAttendants().size());
+        };
+    }
+
+    // ---- Cross-day repair (sequential) ----
+
+    private final class Repair {
+        private final Pool pool;
+        private final List<NavigableMap<LocalDateTime, Leg>> timelines = new ArrayList<>();
+        private final Map<Flight, int[]> filled = new IdentityHashMap<>();
+
+        Repair(Pool pool) {
+            this.pool = pool;
+            for (int i = 0; i < pool.members.size(); i++) timelines.add(new TreeMap<>());
+        }
+
+        void addAll(List<Leg> legs) {
+            for (Leg leg : legs) put(leg);
+        }
+
+        // 'open' are slots no base solved (flights touching no crew base), member -1
+        void run(List<Leg> open) {
+            PriorityQueue<Leg> holes = new PriorityQueue<>(BY_DEPARTURE);
+            holes.addAll(open);
+
+            // replay in time order so every duty window sees the whole plan
+            DutyTimeEngine legal = duty.fork();
+            List<Leg> planned = legs();
+            planned.sort(BY_DEPARTURE);
+            int next = 0;
+            while (next < planned.size() || !holes.isEmpty()) {
+                if (!holes.isEmpty() && (next == planned.size() || BY_DEPARTURE.compare(holes.peek(), planned.get(next)) <= 0)) {
+                    refill(holes.poll(), legal);
+                    continue;
+                }
+                Leg leg = planned.get(next++);
+                if (timelines.get(leg.member).get(leg.flight.getDepartureUTC()) != leg) continue;
+                Crew c = pool.members.get(leg.member).crew;
+                // bases plan from home and ignore flights held before the solve; earlier legs are final
+                // by now, so the chain is checked here
+                boolean chained = standingBefore(leg.member, leg.flight.getDepartureUTC())
+                        .equals(FlightSearchIndex.normalize(leg.flight.getOrigin()));
+                if (chained && legal.canTake(c, leg.flight)) legal.record(c, leg.flight);
+                else dropRestOfDay(leg, holes);
+            }
+        }
+
+        // Take leg and the member's later legs that day off the plan; they depend on it for location
+        private void dropRestOfDay(Leg leg, PriorityQueue<Leg> holes) {
+            NavigableMap<LocalDateTime, Leg> line = timelines.get(leg.member);
+            LocalDate day = leg.flight.getDepartureUTC().toLocalDate();
+            for (Leg rest : new ArrayList<>(line.tailMap(leg.flight.getDepartureUTC(), true).values())) {
+                if (!rest.flight.getDepartureUTC().toLocalDate().equals(day)) break;
+                remove(rest);
+                holes.add(rest);
+            }
+        }
+
+        private void refill(Leg hole, DutyTimeEngine legal) {
+            for (int i : pool.bySlot.get(hole.slot)) {
+                Crew c = pool.members.get(i).crew;
+                if (i != hole.member && fits(i, hole.flight) && legal.canTake(c, hole.flight)) {
+                    put(new Leg(i, hole.flight, hole.slot));
+                    legal.record(c, hole.flight);
+                    return;
+                }
+            }
+        }
+
+        List<Leg> legs() {
+            List<Leg> all = new ArrayList<>();
+            for (NavigableMap<LocalDateTime, Leg> line : timelines) all.addAll(line.values());
+            return all;
+        }
+
+        int filled(Flight f, Slot slot) {
+            int[] counts = filled.get(f);
+            return counts == null ? 0 : counts[slot.ordinal()];
+        }
+
+        // Can member i take flight f without breaking timing or the location chain?
+        private boolean fits(int i, Flight f) {
+            Member m = pool.members.get(i);
+            if ((m.quals & (1L << f.getPlaneType().ordinal())) == 0 || !pool.clearOfFixed(m, f, minTurn)) return false;
+            NavigableMap<LocalDateTime, Leg> line = timelines.get(i);
+            LocalDateTime dep = f.getDepartureUTC();
+            Map.Entry<LocalDateTime, Leg> before = line.lowerEntry(dep);
+            Map.Entry<LocalDateTime, Leg> after = line.ceilingEntry(dep);
+            if (before != null && before.getValue().flight.getArrivalUTC().plus(minTurn).isAfter(dep)) return false;
+            if (after != null && f.getArrivalUTC().plus(minTurn).isAfter(after.getKey())) return false;
+
+            // the location chain runs across days: from the previous landing, to the next departure
+            if (!standingBefore(i, dep).equals(FlightSearchIndex.normalize(f.getOrigin()))) return false;
+            Flight following = adjacent(i, dep, false);
+            return following == null || FlightSearchIndex.normalize(following.getOrigin())
+                    .equals(FlightSearchIndex.normalize(f.getDestination()));
+        }
+
+        // Where member i stands just before 'dep': where their previous flight landed, else their base
+        private String standingBefore(int i, LocalDateTime dep) {
+            Flight previous = adjacent(i, dep, true);
+            return previous == null ? pool.members.get(i).base : FlightSearchIndex.normalize(previous.getDestination());
+        }
+
+        // Member i's flight just before (or from) 'dep', planned or assigned before the solve
+        private Flight adjacent(int i, LocalDateTime dep, boolean before) {
+            Map.Entry<LocalDateTime, Leg> leg = before ? timelines.get(i).lowerEntry(dep) : timelines.get(i).ceilingEntry(dep);
+            NavigableMap<LocalDateTime, Flight> fixed = pool.members.get(i).fixed;
+            Map.Entry<LocalDateTime, Flight> held = before ? fixed.lowerEntry(dep) : fixed.ceilingEntry(dep);
+            if (leg == null) return held == null ? null : held.getValue();
+            if (held == null) return leg.getValue().flight;
+            boolean legCloser = before ? leg.getKey().isAfter(held.getKey()) : leg.getKey().isBefore(held.getKey());
+            return legCloser ? leg.getValue().flight : held.getValue();
+        }
+
+        private void put(Leg leg) {
+            timelines.get(leg.member).put(leg.flight.getDepartureUTC(), leg);
+            filled.computeIfAbsent(leg.flight, k -> new int[Slot.values().length])[leg.slot.ordinal()]++;
+        }
+
+        private void remove(Leg leg) {
+            timelines.get(leg.member).remove(leg.flight.getDepartureUTC());
+            filled.get(leg.flight)[leg.slot.ordinal()]--;
+        }
+    }
+
+    // ---- Crew snapshot ----
+
+    private record Leg(int member, Flight flight, Slot slot) { }
+
+    private static final class Member {
+        final Crew crew;
+        final Slot slot;
+        final long quals;
+        final String base;
+        // flights this member already had before the solve, by departure
+        final NavigableMap<LocalDateTime, Flight> fixed = new TreeMap<>();
+
+        Member(Crew crew, Slot slot, long quals) {
+            this.crew = crew;
+            this.slot = slot;
+            this.quals = quals;
+            this.base = FlightSearchIndex.normalize(crew.getBaseAirport());
+        }
+    }
+
+    // Read-only after construction, so base solvers share it across threads
+    private static final class Pool {
+        final List<Member> members = new ArrayList<>();
+        final Map<Slot, List<Integer>> bySlot = new HashMap<>();
+        final Map<String, List<Integer>> byBase = new HashMap<>();
+
+        Pool(Collection<? extends Crew> crew, Collection<Flight> flights) {
+            for (Slot s : Slot.values()) bySlot.put(s, new ArrayList<>());
+            Map<Crew, Member> byCrew = new HashMap<>();
+            for (Crew c : crew) {
+                if (c == null || c.getStatus() != CrewStatus.AVAILABLE || byCrew.containsKey(c)) continue;
+                Member m = snapshot(c);
+                if (m == null) continue;
+                byCrew.put(c, m);
+                bySlot.get(m.slot).add(members.size());
+                byBase.computeIfAbsent(m.base, b -> new ArrayList<>()).add(members.size());
+                members.add(m);
+            }
+            for (Flight f : flights) {
+                addFixed(byCrew.get(f.getCaptain()), f);
+                addFixed(byCrew.get(f.getFirstOfficer()), f);
+                for (FlightAttendant fa : f.getAttendants()) addFixed(byCrew.get(fa), f);
+            }
+        }
+
+        // The base whose crew staff a flight: where it departs, else where it lands; null if neither is a base
+        String homeBase(Flight f) {
+            String origin = FlightSearchIndex.normalize(f.getOrigin());
+            if (byBase.containsKey(origin)) return origin;
+            String destination = FlightSearchIndex.normalize(f.getDestination());
+            return byBase.containsKey(destination) ? destination : null;
+        }
+
+        boolean clearOfFixed(Member m, Flight f, Duration minTurn) {
+            if (m.fixed.isEmpty()) return true;
+            Map.Entry<LocalDateTime, Flight> before = m.fixed.floorEntry(f.getDepartureUTC());
+            if (before != null && before.getValue().getArrivalUTC().plus(minTurn).isAfter(f.getDepartureUTC())) return false;
+            Map.Entry<LocalDateTime, Flight> after = m.fixed.ceilingEntry(f.getDepartureUTC());
+            return after == null || !f.getArrivalUTC().plus(minTurn).isAfter(after.getKey());
+        }
+
+        private static void addFixed(Member m, Flight f) {
+            if (m != null) m.fixed.put(f.getDepartureUTC(), f);
+        }
+
+        private static Member snapshot(Crew c) {
+            long quals = 0;
+            for (PlaneType t : c.getQualifiedTypes()) quals |= 1L << t.ordinal();
+            if (c instanceof Pilot p) {
+                if (p.getRank() == PilotRank.CAPTAIN) return new Member(c, Slot.CAPTAIN, quals);
+                if (p.getRank() == PilotRank.FIRST_OFFICER) return new Member(c, Slot.FIRST_OFFICER, quals);
+            } else if (c instanceof FlightAttendant fa && fa.getPosition() != null) {
+                return new Member(c, Slot.ATTENDANT, quals);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,777 @@
+package model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.enums.FareClass;
+import model.enums.PlaneType;
+
+/**
+ * Streams a schedule file into {@link Plane}s and {@link Flight}s.
+ * <p>
+ * <b>Rows:</b> one flight-date per line, with the fields flight number, airline, origin,
+ * destination, departure UTC, arrival UTC, plane type, registration, min attendants and an
+ * optional gate. Times are ISO ({@code 2025-10-01T14:30}, seconds optional, a space works
+ * instead of the {@code T}). Files are either comma-separated ({@link #csv}, double quotes
+ * around fields that contain commas) or fixed-width ({@link #fixedWidth}, byte columns,
+ * padding trimmed). Blank lines, {@code #} comments and a header line starting with
+ * "flightNumber" are skipped.
+ * </p>
+ * <b>Streaming:</b> one thread reads the file into a fixed pool of chunk buffers, each cut
+ * at a line end, and the parser threads take a chunk at a time. Memory used by the import
+ * itself is the buffer pool ({@code threads + 2} chunks) however large the file is; the
+ * flights it creates are of course kept.
+ * <p>
+ * <b>Objects:</b> each row gets its own Plane (a plane's seat inventory belongs to one
+ * flight), but planes of the same type share their seat and price arrays and their
+ * {@link SeatLayout}, built once from the type's typical seats and default cabin split.
+ * Repeated strings (airlines, airports, flight numbers, registrations) and departure and
+ * arrival times are shared rather than copied per row.
+ * </p>
+ * <b>Indexes:</b> flights are registered in the {@link FlightRegistry} as they are parsed,
+ * and, if an airport map is given, scheduled at their origin and destination, creating an
+ * airport (no terminals or gates) the first time a code is seen.
+ * <p>
+ * <b>Bad rows</b> (missing or malformed fields, an unknown plane type, arrival before
+ * departure, a flight already registered at that departure) are counted and skipped, and
+ * up to {@value #MAX_REPORTED} of them are reported with their line numbers. The import goes on.
+ * </p>
+ * <b>Updates:</b> {@link #applyFile} reads a later full schedule the same way but only
+ * applies the difference (adds, removes, retimes and gate changes) to the flights already
+ * registered, which keep their tickets and crew.
+ */
+public final class ScheduleImporter {
+    /** Rejected rows kept for the {@link Result}; the rest are only counted. */
+    public static final int MAX_REPORTED = 1000;
+    static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    /** A row that was not imported. {@code line} is 1-based. */
+    public record Rejection(long line, String row, String reason) { }
+
+    /** Outcome of one import; {@code rejections} holds at most {@link #MAX_REPORTED}, in line order. */
+    public record Result(long rows, long imported, long rejected, List<Rejection> rejections, Duration elapsed) { }
+
+    /**
+     * Outcome of applying a schedule with {@link #applyFile}. {@code removedFlights} are no
+     * longer registered but keep their tickets and crew, for rebooking; {@code equipmentChanged}
+     * are flights whose plane, registration or minimum attendants differ in the file, which is
+     * not applied (see {@link #applyFile}).
+     */
+    public record Changes(long rows, int added, int removed, int retimed, int gatesChanged,
+                          List<Flight> removedFlights, List<Flight> equipmentChanged,
+                          long rejected, List<Rejection> rejections, Duration elapsed) { }
+
+    /** Furthest a departure may move and still count as the same flight retimed. */
+    public static final Duration RETIME_WINDOW = Duration.ofHours(12);
+
+    private static final String[] FIELDS = {
+            "flight number", "airline", "origin", "destination", "departure", "arrival",
+            "plane type", "registration", "min attendants", "gate" };
+    private static final int REQUIRED = FIELDS.length - 1;
+    private static final int NUMBER = 0, AIRLINE = 1, ORIGIN = 2, DESTINATION = 3, DEPARTURE = 4,
+            ARRIVAL = 5, TYPE = 6, REGISTRATION = 7, MIN_ATTENDANTS = 8, GATE = 9;
+    private static final byte[] HEADER = "flightnumber".getBytes(StandardCharsets.US_ASCII);
+
+    // One cabin configuration per plane type, shared by every plane of that type
+    private record Cabins(int[] seats, double[] prices, SeatLayout layout) { }
+
+    // A rejection whose line number is known once every chunk before it has been counted
+    private record Pending(int chunk, int line, String row, String reason) { }
+
+    // One parsed row; gate is null when the row has none
+    private record Row(String flightNumber, String airline, String origin, String destination,
+                       LocalDateTime departure, LocalDateTime arrival, PlaneType type, String registration,
+                       int minAttendants, String gate) { }
+
+    // A row held back by applyFile until the whole file is read; flight is the one it updates, if any
+    private record Incoming(Row row, Flight flight, int chunk, int line, String text) {
+        Incoming withFlight(Flight f) { return new Incoming(row, f, chunk, line, text); }
+    }
+
+    // Flights that can be paired as one flight retimed
+    private record Route(String flightNumber, String origin, String destination) { }
+
+    // What a run does with each parsed row; throws IllegalArgumentException or IllegalStateException to reject it
+    private interface Sink {
+        void accept(Row row, Run.Parser at);
+    }
+
+    private final Map<PlaneType, Cabins> cabins = new EnumMap<>(PlaneType.class);
+    private final int[] widths; // null for CSV
+    private final int threads;
+    private final int chunkSize;
+
+    private ScheduleImporter(Map<FareClass, Double> prices, int[] widths, int threads, int chunkSize) {
+        Objects.requireNonNull(prices, "prices");
+        if (threads < 1) throw new IllegalArgumentException("Threads must be at least 1: " + threads);
+        for (PlaneType type : PlaneType.values()) {
+            Plane prototype = new Plane(type.name(), type, type.getTypicalSeats(), prices);
+            int[] seats = prototype.cabinSeatArray();
+            cabins.put(type, new Cabins(seats, prototype.priceArray(),
+                    SeatLayout.of(type, prototype.getCapacity(), seats)));
+        }
+        this.widths = widths;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /** Comma-separated rows, parsed on every available core. */
+    public static ScheduleImporter csv(Map<FareClass, Double> prices) {
+        return csv(prices, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param prices  price per fare class on every imported plane; economy must be priced
+     * @param threads parser threads
+     */
+    public static ScheduleImporter csv(Map<FareClass, Double> prices, int threads) {
+        return new ScheduleImporter(prices, null, threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    /** Fixed-width rows, parsed on every available core. */
+    public static ScheduleImporter fixedWidth(Map<FareClass, Double> prices, int[] widths) {
+        return fixedWidth(prices, widths, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param widths width in bytes of each field in row order; the gate column may be left out
+     */
+    public static ScheduleImporter fixedWidth(Map<FareClass, Double> prices, int[] widths, int threads) {
+        if (widths.length < REQUIRED || widths.length > FIELDS.length) {
+            throw new IllegalArgumentException("Expected " + REQUIRED + " or " + FIELDS.length + " column widths: " + widths.length);
+        }
+        for (int w : widths) {
+            if (w <= 0) throw new IllegalArgumentException("Column widths must be positive: " + Arrays.toString(widths));
+        }
+        return new ScheduleImporter(prices, widths.clone(), threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Import a schedule file.
+     *
+     * @param airports airports by code to schedule flights at, added to as new codes appear; may be null
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public Result importFile(Path file, FlightRegistry registry, ConcurrentMap<String, Airport> airports) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return importFrom(in, registry, airports);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read schedule " + file, e);
+        }
+    }
+
+    /** Import from a stream (UTF-8), which is read to the end but not closed. */
+    public Result importFrom(InputStream in, FlightRegistry registry, ConcurrentMap<String, Airport> airports)
+            throws IOException {
+        Objects.requireNonNull(in, "in");
+        Objects.requireNonNull(registry, "registry");
+        long start = System.nanoTime();
+        Run run = new Run((row, at) -> add(row, registry, airports));
+        run.read(in);
+        return new Result(run.rows.sum(), run.accepted.sum(), run.rejected.sum(), run.rejections(),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Bring the registry in line with a full schedule file, touching only what changed.
+     * <p>
+     * Rows are parsed in parallel as for {@link #importFile} and looked up by flight identity
+     * (number and departure); a row whose flight is registered with the same airline and
+     * route and nothing else changed costs one lookup. Once the file is read, registered
+     * flights missing from it are paired with new rows of the same number and route whose
+     * departure is within {@link #RETIME_WINDOW}, nearest first: those are retimed with
+     * {@link Flight#reschedule}. The remaining missing flights are removed and the remaining
+     * new rows added.
+     * </p>
+     * Flights that stay keep their tickets, crew and listeners: registry and airport indexes
+     * follow retimes and gate changes in place. A gate is only changed by a row that has
+     * one. A flight's plane is fixed for its tickets' seats, so a different plane type,
+     * registration or minimum attendant count is reported in
+     * {@link Changes#equipmentChanged()} and left to the caller. Nothing else should change
+     * the schedule while this runs.
+     *
+     * @param airports airports by code to schedule added flights at and drop removed ones from; may be null
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public Changes applyFile(Path file, FlightRegistry registry, ConcurrentMap<String, Airport> airports) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return applyFrom(in, registry, airports);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read schedule " + file, e);
+        }
+    }
+
+    /** {@link #applyFile} from a stream (UTF-8), which is read to the end but not closed. */
+    public Changes applyFrom(InputStream in, FlightRegistry registry, ConcurrentMap<String, Airport> airports)
+            throws IOException {
+        Objects.requireNonNull(in, "in");
+        Objects.requireNonNull(registry, "registry");
+        long start = System.nanoTime();
+        Delta delta = new Delta(registry, airports);
+        Run run = new Run(delta::classify);
+        run.read(in);
+        delta.apply(run);
+        return new Changes(run.rows.sum(), delta.added, delta.removedFlights.size(), delta.retimed, delta.gatesChanged,
+                List.copyOf(delta.removedFlights), List.copyOf(delta.equipmentChanged),
+                run.rejected.sum(), run.rejections(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    // Build the row's plane and flight, register it and schedule it at its airports
+    private Flight add(Row row, FlightRegistry registry, ConcurrentMap<String, Airport> airports) {
+        Cabins c = cabins.get(row.type());
+        Plane plane = new Plane(row.registration(), row.type(), c.seats(), c.prices(), c.layout());
+        Flight flight = new Flight(row.flightNumber(), row.airline(), row.origin(), row.destination(),
+                row.departure(), row.arrival(), plane, row.minAttendants());
+        if (row.gate() != null) flight.setGate(row.gate());
+        registry.register(flight);
+        if (airports != null) {
+            airport(airports, flight.getOrigin()).scheduleFlight(flight);
+            if (!flight.getDestination().equals(flight.getOrigin())) {
+                airport(airports, flight.getDestination()).scheduleFlight(flight);
+            }
+        }
+        return flight;
+    }
+
+    private static Airport airport(ConcurrentMap<String, Airport> airports, String code) {
+        return airports.computeIfAbsent(code, id -> new Airport(id, id, List.of(), Set.of()));
+    }
+
+    // ---- One pass over a file ----
+
+    private final class Run {
+        private final Sink sink;
+        private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+        private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(threads + 2);
+        // lines per chunk, to turn (chunk, line in chunk) into a line number at the end
+        private final Map<Integer, Integer> chunkLines = new ConcurrentHashMap<>();
+        private final Queue<Pending> reported = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger reportSlots = new AtomicInteger(MAX_REPORTED);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder accepted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        Run(Sink sink) {
+            this.sink = sink;
+            for (int i = 0; i < threads + 2; i++) free.add(new byte[chunkSize]);
+        }
+
+        void read(InputStream in) throws IOException {
+            ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "schedule-importer");
+                t.setDaemon(true);
+                return t;
+            });
+            ThreadLocal<Parser> parsers = ThreadLocal.withInitial(Parser::new);
+            List<Future<?>> chunks = new ArrayList<>();
+            try {
+                byte[] buf = take();
+                int len = 0;
+                boolean skipping = false; // dropping the rest of an overlong line
+                while (true) {
+                    int n = in.readNBytes(buf, len, buf.length - len);
+                    len += n;
+                    if (skipping) {
+                        int nl = indexOf(buf, 0, len, (byte) '\n');
+                        if (nl < 0) {
+                            if (n == 0) break;
+                            len = 0;
+                            continue;
+                        }
+                        skipping = false;
+                        System.arraycopy(buf, nl + 1, buf, 0, len - nl - 1);
+                        len -= nl + 1;
+                        continue;
+                    }
+                    if (len < buf.length) { // end of input
+                        if (len > 0) chunks.add(submit(pool, parsers, chunks.size(), buf, len));
+                        else free.add(buf);
+                        break;
+                    }
+                    int nl = lastIndexOf(buf, len, (byte) '\n');
+                    if (nl < 0) {
+                        int chunk = chunks.size();
+                        chunkLines.put(chunk, 1);
+                        rows.increment();
+                        reject(chunk, 0, buf, 0, 80, "Line longer than " + chunkSize + " bytes");
+                        chunks.add(null);
+                        skipping = true;
+                        len = 0;
+                        continue;
+                    }
+                    byte[] next = take();
+                    int tail = len - nl - 1;
+                    System.arraycopy(buf, nl + 1, next, 0, tail);
+                    chunks.add(submit(pool, parsers, chunks.size(), buf, nl + 1));
+                    buf = next;
+                    len = tail;
+                }
+                for (Future<?> f : chunks) {
+                    if (f != null) f.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Schedule import interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                if (e.getCause() instanceof Error err) throw err;
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        private byte[] take() throws InterruptedException {
+            return free.take();
+        }
+
+        private Future<?> submit(ExecutorService pool, ThreadLocal<Parser> parsers, int chunk, byte[] buf, int len) {
+            return pool.submit(() -> {
+                try {
+                    chunkLines.put(chunk, parsers.get().parse(chunk, buf, len));
+                } finally {
+                    free.add(buf);
+                }
+            });
+        }
+
+        private void reject(int chunk, int line, byte[] b, int from, int to, String reason) {
+            rejected.increment();
+            if (reportSlots.getAndDecrement() <= 0) return;
+            reported.add(new Pending(chunk, line, text(b, from, to), reason));
+        }
+
+        void reject(Incoming in, String reason) {
+            rejected.increment();
+            if (reportSlots.getAndDecrement() > 0) reported.add(new Pending(in.chunk(), in.line(), in.text(), reason));
+        }
+
+        private List<Rejection> rejections() {
+            int chunks = chunkLines.size();
+            long[] firstLine = new long[chunks + 1];
+            firstLine[0] = 1;
+            for (int i = 0; i < chunks; i++) firstLine[i + 1] = firstLine[i] + chunkLines.getOrDefault(i, 0);
+            List<Rejection> list = new ArrayList<>(reported.size());
+            for (Pending r : reported) list.add(new Rejection(firstLine[r.chunk()] + r.line(), r.row(), r.reason()));
+            list.sort(Comparator.comparingLong(Rejection::line));
+            return list;
+        }
+
+        // ---- Per-thread parsing ----
+
+        private final class Parser {
+            private final int[] from = new int[FIELDS.length];
+            private final int[] to = new int[FIELDS.length];
+            private final String[] unquoted = new String[FIELDS.length];
+            private final StringCache cache = new StringCache(strings);
+            private final TimeCache times = new TimeCache();
+            private byte[] b;
+            // the line being parsed
+            private int chunk, line, start, stop;
+
+            int chunk() { return chunk; }
+            int line() { return line; }
+            String text() { return ScheduleImporter.text(b, start, stop); }
+
+            /** @return lines in the chunk */
+            int parse(int chunk, byte[] buf, int len) {
+                b = buf;
+                this.chunk = chunk;
+                line = 0;
+                for (start = 0; start < len; line++) {
+                    int nl = indexOf(buf, start, len, (byte) '\n');
+                    int end = nl < 0 ? len : nl;
+                    stop = end > start && buf[end - 1] == '\r' ? end - 1 : end;
+                    if (!skip(start, stop)) {
+                        rows.increment();
+                        String reason = row(start, stop);
+                        if (reason == null) accepted.increment();
+                        else reject(chunk, line, buf, start, stop, reason);
+                    }
+                    start = end + 1;
+                }
+                b = null;
+                return line;
+            }
+
+            private boolean skip(int start, int end) {
+                int i = start;
+                while (i < end && (b[i] == ' ' || b[i] == '\t')) i++;
+                if (i == end || b[i] == '#') return true;
+                if (end - i < HEADER.length) return false;
+                for (int k = 0; k < HEADER.length; k++) {
+                    if ((b[i + k] | 0x20) != HEADER[k]) return false;
+                }
+                return true;
+            }
+
+            // null if imported, else why not
+            private String row(int start, int end) {
+                int fields = widths == null ? splitCsv(start, end) : splitFixed(start, end);
+                if (fields < 0) return "Unterminated quote";
+                for (int f = 0; f < REQUIRED; f++) {
+                    if (f >= fields || empty(f)) return "Missing " + FIELDS[f];
+                }
+                if (fields > FIELDS.length) return "Too many fields: " + fields;
+                try {
+                    LocalDateTime departure = time(DEPARTURE), arrival = time(ARRIVAL);
+                    PlaneType type = planeType(TYPE);
+                    if (type == null) return "Unknown plane type: " + string(TYPE);
+                    int minAttendants = number(MIN_ATTENDANTS);
+                    if (minAttendants < 0) return "Bad min attendants: " + string(MIN_ATTENDANTS);
+                    sink.accept(new Row(string(NUMBER), string(AIRLINE), string(ORIGIN), string(DESTINATION),
+                            departure, arrival, type, string(REGISTRATION), minAttendants,
+                            fields > GATE && !empty(GATE) ? string(GATE) : null), this);
+                    return null;
+                } catch (DateTimeException | IllegalArgumentException | IllegalStateException e) {
+                    return e.getMessage();
+                }
+            }
+
+            // Field bounds into from/to, quoted fields into unquoted; -1 on an open quote
+            private int splitCsv(int start, int end) {
+                int f = 0, i = start;
+                while (true) {
+                    if (f < FIELDS.length) unquoted[f] = null;
+                    if (i < end && b[i] == '"') {
+                        StringBuilder sb = new StringBuilder();
+                        int j = i + 1, run = j;
+                        while (true) {
+                            if (j >= end) return -1;
+                            if (b[j] == '"') {
+                                sb.append(new String(b, run, j - run, StandardCharsets.UTF_8));
+                                if (j + 1 < end && b[j + 1] == '"') {
+                                    sb.append('"');
+                                    j += 2;
+                                    run = j;
+                                    continue;
+                                }
+                                break;
+                            }
+                            j++;
+                        }
+                        if (f < FIELDS.length) unquoted[f] = cache.intern(sb.toString());
+                        i = j + 1;
+                        while (i < end && b[i] != ',') i++;
+                    } else {
+                        int s = i;
+                        while (i < end && b[i] != ',') i++;
+                        if (f < FIELDS.length) bounds(f, s, i);
+                    }
+                    f++;
+                    if (i >= end) return f;
+                    i++; // past the comma
+                }
+            }
+
+            private int splitFixed(int start, int end) {
+                int i = start, f = 0;
+                for (; f < widths.length && i < end; f++) {
+                    int s = i;
+                    i = Math.min(end, i + widths[f]);
+                    unquoted[f] = null;
+                    bounds(f, s, i);
+                }
+                return i < end ? FIELDS.length + 1 : f;
+            }
+
+            // Trimmed bounds of field f
+            private void bounds(int f, int s, int e) {
+                while (s < e && (b[s] == ' ' || b[s] == '\t')) s++;
+                while (e > s && (b[e - 1] == ' ' || b[e - 1] == '\t')) e--;
+                from[f] = s;
+                to[f] = e;
+            }
+
+            private boolean empty(int f) {
+                return unquoted[f] != null ? unquoted[f].isEmpty() : from[f] == to[f];
+            }
+
+            private String string(int f) {
+                return unquoted[f] != null ? unquoted[f] : cache.intern(b, from[f], to[f]);
+            }
+
+            private PlaneType planeType(int f) {
+                String code = string(f);
+                for (PlaneType t : PlaneType.values()) {
+                    if (t.name().equalsIgnoreCase(code)) return t;
+                }
+                return null;
+            }
+
+            private int number(int f) {
+                if (unquoted[f] != null) return Integer.parseInt(unquoted[f].trim());
+                int n = 0;
+                for (int i = from[f]; i < to[f]; i++) {
+                    int d = b[i] - '0';
+                    if (d < 0 || d > 9 || n > 100_000) return -1;
+                    n = n * 10 + d;
+                }
+                return n;
+            }
+
+            // yyyy-MM-ddTHH:mm[:ss] read in place; anything else goes through LocalDateTime.parse
+            private LocalDateTime time(int f) {
+                if (unquoted[f] == null) {
+                    int s = from[f], len = to[f] - s;
+                    if ((len == 16 || len == 19) && b[s + 4] == '-' && b[s + 7] == '-'
+                            && (b[s + 10] == 'T' || b[s + 10] == ' ') && b[s + 13] == ':'
+                            && (len == 16 || b[s + 16] == ':')) {
+                        int year = digits(s, 4), month = digits(s + 5, 2), day = digits(s + 8, 2);
+                        int hour = digits(s + 11, 2), minute = digits(s + 14, 2);
+                        int second = len == 19 ? digits(s + 17, 2) : 0;
+                        if ((year | month | day | hour | minute | second) >= 0) {
+                            return times.get(year, month, day, hour, minute, second);
+                        }
+                    }
+                }
+                String text = string(f);
+                return LocalDateTime.parse(text.indexOf(' ') == 10 ? text.replace(' ', 'T') : text);
+            }
+
+            private int digits(int s, int n) {
+                int v = 0;
+                for (int i = s; i < s + n; i++) {
+                    int d = b[i] - '0';
+                    if (d < 0 || d > 9) return -1;
+                    v = v * 10 + d;
+                }
+                return v;
+            }
+        }
+    }
+
+    // ---- Diff and apply ----
+
+    private final class Delta {
+        private final FlightRegistry registry;
+        private final ConcurrentMap<String, Airport> airports;
+        // keys of registered flights the file lists; sized up front so parser threads never wait on a resize
+        private final Set<FlightKey> listed;
+        private final Queue<Incoming> changed = new ConcurrentLinkedQueue<>();
+        private final Queue<Incoming> unmatched = new ConcurrentLinkedQueue<>();
+        private final List<Flight> removedFlights = new ArrayList<>();
+        private final List<Flight> equipmentChanged = new ArrayList<>();
+        private int added, retimed, gatesChanged;
+
+        Delta(FlightRegistry registry, ConcurrentMap<String, Airport> airports) {
+            this.registry = registry;
+            this.airports = airports;
+            this.listed = ConcurrentHashMap.newKeySet(Math.max(16, registry.size()));
+        }
+
+        // Parser threads: sort each row into kept, changed or unmatched; nothing is applied yet
+        void classify(Row row, Run.Parser at) {
+            FlightKey key = new FlightKey(row.flightNumber(), row.departure());
+            Flight f = registry.get(key);
+            if (f == null || !sameFlight(f, row)) {
+                unmatched.add(new Incoming(row, null, at.chunk(), at.line(), at.text()));
+                return;
+            }
+            if (!listed.add(key)) {
+                throw new IllegalStateException("Flight " + row.flightNumber() + " departing " + row.departure()
+                        + " appears more than once");
+            }
+            if (!f.getArrivalUTC().equals(row.arrival()) || gateChanged(f, row) || equipmentChanged(f, row)) {
+                changed.add(new Incoming(row, f, at.chunk(), at.line(), at.text()));
+            }
+        }
+
+        // Once the file is read: pair retimes, then remove, retime, update and add
+        void apply(Run run) {
+            Map<Route, List<Flight>> missing = new HashMap<>();
+            for (Flight f : registry.getFlights()) {
+                if (!listed.contains(f.getKey())) {
+                    missing.computeIfAbsent(new Route(f.getFlightNumber(), f.getOrigin(), f.getDestination()),
+                            r -> new ArrayList<>()).add(f);
+                }
+            }
+            List<Incoming> rows = new ArrayList<>(unmatched);
+            rows.sort(Comparator.comparingInt(Incoming::chunk).thenComparingInt(Incoming::line));
+            List<Incoming> retimes = new ArrayList<>(), adds = new ArrayList<>();
+            for (Incoming in : rows) {
+                Row r = in.row();
+                List<Flight> candidates = missing.get(new Route(r.flightNumber(), r.origin(), r.destination()));
+                Flight nearest = nearest(candidates, r.departure());
+                if (nearest == null) {
+                    adds.add(in);
+                } else {
+                    candidates.remove(nearest);
+                    retimes.add(in.withFlight(nearest));
+                }
+            }
+
+            for (List<Flight> flights : missing.values()) {
+                for (Flight f : flights) remove(f);
+            }
+            for (Incoming in : retimes) {
+                try {
+                    in.flight().reschedule(in.row().departure(), in.row().arrival());
+                    retimed++;
+                    update(in);
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    run.reject(in, e.getMessage());
+                }
+            }
+            for (Incoming in : changed) {
+                try {
+                    if (!in.flight().getArrivalUTC().equals(in.row().arrival())) {
+                        in.flight().reschedule(in.row().departure(), in.row().arrival());
+                        retimed++;
+                    }
+                    update(in);
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    run.reject(in, e.getMessage());
+                }
+            }
+            for (Incoming in : adds) {
+                try {
+                    add(in.row(), registry, airports);
+                    added++;
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    run.reject(in, e.getMessage());
+                }
+            }
+        }
+
+        private void update(Incoming in) {
+            Flight f = in.flight();
+            if (gateChanged(f, in.row())) {
+                f.setGate(in.row().gate());
+                gatesChanged++;
+            }
+            if (equipmentChanged(f, in.row())) equipmentChanged.add(f);
+        }
+
+        private void remove(Flight f) {
+            if (!registry.remove(f)) return;
+            removedFlights.add(f);
+            if (airports == null) return;
+            Airport origin = airports.get(f.getOrigin()), destination = airports.get(f.getDestination());
+            if (origin != null) origin.unscheduleFlight(f);
+            if (destination != null && destination != origin) destination.unscheduleFlight(f);
+        }
+
+        private Flight nearest(List<Flight> candidates, LocalDateTime departure) {
+            if (candidates == null) return null;
+            Flight best = null;
+            Duration bestGap = null;
+            for (Flight f : candidates) {
+                Duration gap = Duration.between(f.getDepartureUTC(), departure).abs();
+                if (gap.compareTo(RETIME_WINDOW) <= 0 && (best == null || gap.compareTo(bestGap) < 0)) {
+                    best = f;
+                    bestGap = gap;
+                }
+            }
+            return best;
+        }
+
+        private boolean sameFlight(Flight f, Row row) {
+            return f.getAirline().equals(row.airline()) && f.getOrigin().equals(row.origin())
+                    && f.getDestination().equals(row.destination());
+        }
+
+        private boolean gateChanged(Flight f, Row row) {
+            return row.gate() != null && !row.gate().equals(f.getGate());
+        }
+
+        private boolean equipmentChanged(Flight f, Row row) {
+            Plane p = f.getPlane();
+            return p.getPlaneType() != row.type() || !p.getPlaneId().equals(row.registration())
+                    || f.getMinAttendants() != Math.max(1, row.minAttendants());
+        }
+    }
+
+    // Per-thread front of a shared interning map: repeated fields cost no allocation
+    private static final class StringCache {
+        private static final int SLOTS = 1 << 15;
+        private final byte[][] keys = new byte[SLOTS][];
+        private final String[] values = new String[SLOTS];
+        private final ConcurrentMap<String, String> shared;
+
+        StringCache(ConcurrentMap<String, String> shared) {
+            this.shared = shared;
+        }
+
+        String intern(byte[] b, int from, int to) {
+            int h = 1;
+            for (int i = from; i < to; i++) h = 31 * h + b[i];
+            int slot = (h ^ (h >>> 13)) & (SLOTS - 1);
+            byte[] k = keys[slot];
+            if (k != null && Arrays.equals(k, 0, k.length, b, from, to)) return values[slot];
+            String s = intern(new String(b, from, to - from, StandardCharsets.UTF_8));
+            keys[slot] = Arrays.copyOfRange(b, from, to);
+            values[slot] = s;
+            return s;
+        }
+
+        String intern(String s) {
+            String prior = shared.putIfAbsent(s, s);
+            return prior != null ? prior : s;
+        }
+    }
+
+    // Per-thread cache of recently parsed times, so flights at the same minute share one object
+    private static final class TimeCache {
+        private static final int SLOTS = 1 << 14;
+        private final long[] keys = new long[SLOTS];
+        private final LocalDateTime[] values = new LocalDateTime[SLOTS];
+
+        LocalDateTime get(int year, int month, int day, int hour, int minute, int second) {
+            long key = ((((((long) year * 13 + month) * 32 + day) * 24 + hour) * 60 + minute) * 60 + second) + 1;
+            int slot = (int) (key ^ (key >>> 17)) & (SLOTS - 1);
+            if (keys[slot] == key) return values[slot];
+            LocalDateTime t = LocalDateTime.of(year, month, day, hour, minute, second);
+            keys[slot] = key;
+            values[slot] = t;
+            return t;
+        }
+    }
+
+    // A row for a rejection report, cut to a readable length
+    private static String text(byte[] b, int from, int to) {
+        return new String(b, from, Math.min(to, from + 200) - from, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(byte[] b, int from, int to, byte c) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] b, int to, byte c) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (b[i] == c) return i;
+        }
+        return -1;
+    }
+}
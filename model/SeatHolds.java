@@ -0,0 +1,159 @@
+package model;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import model.core.TimingWheel;
+import model.enums.FareClass;
+import model.enums.ReservationStatus;
+
+/**
+ * Timed seat holds for checkout.
+ * <p>
+ * A hold is a PENDING {@link Ticket}: its seat is reserved on the plane (so it counts
+ * against inventory) and it sits on the flight manifest, but nothing is charged. The
+ * customer either confirms it within the TTL, or it expires and the seat goes back.
+ * </p>
+ * Expiry is driven by a {@link TimingWheel}, advanced from the injected {@link Clock}
+ * once per tick on a shared daemon thread, and also whenever holds are placed or
+ * {@link #expireDue()} is called. A hold is released within a tick of its TTL even when
+ * there is no other traffic, expiring a hold costs O(1), and there is never a scan over
+ * all outstanding holds. {@link #close()} stops the ticks.
+ */
+public class SeatHolds implements Closeable {
+    private static final long TICK_MILLIS = 1000;
+    private static final ScheduledExecutorService EXPIRY = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "seat-hold-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Clock clock;
+    private final Duration ttl;
+    private final TimingWheel<Ticket> wheel;
+    private final Map<Ticket, TimingWheel.Timeout<Ticket>> timers = new HashMap<>();
+    private final ScheduledFuture<?> ticks;
+
+    /**
+     * @param clock time source (use a fixed or offset clock to replay faster than real time)
+     * @param ttl   how long a hold lasts before it is released
+     */
+    public SeatHolds(Clock clock, Duration ttl) {
+        this.clock = Objects.requireNonNull(clock, "clock");
+        this.ttl = Objects.requireNonNull(ttl, "ttl");
+        if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("Hold TTL must be positive");
+        this.wheel = new TimingWheel<>(clock.millis(), TICK_MILLIS);
+        this.ticks = EXPIRY.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public Duration getTtl() { return ttl; }
+
+    /**
+     * Hold the first free seat of the given class.
+     *
+     * @return the PENDING ticket holding the seat
+     * @throws IllegalArgumentException if the cabin is full
+     */
+    public Ticket hold(Flight flight, Customer customer, FareClass fareClass) {
+        expireDue();
+        Ticket ticket = new Ticket(fareClass, flight, customer, ReservationStatus.PENDING);
+        flight.addTicket(ticket);
+        track(ticket);
+        return ticket;
+    }
+
+    /**
+     * Hold one specific seat, e.g. "14C".
+     *
+     * @throws IllegalArgumentException if the seat is taken or not in that class
+     */
+    public Ticket hold(Flight flight, Customer customer, FareClass fareClass, String seatCode) {
+        expireDue();
+        Ticket ticket = new Ticket(fareClass, flight, customer, ReservationStatus.PENDING);
+        flight.addTicket(ticket, seatCode);
+        track(ticket);
+        return ticket;
+    }
+
+    /**
+     * Confirm a hold before it expires: the ticket is filed with its customer and charged.
+     *
+     * @return true if the ticket is now CONFIRMED; false if the hold already expired or was released
+     */
+    public boolean confirm(Ticket ticket) {
+        expireDue();
+        synchronized (wheel) {
+            wheel.cancel(timers.remove(ticket));
+        }
+        boolean confirmed = ticket.confirmHold();
+        if (confirmed) ReservationJournal.getDefault().sync();
+        return confirmed;
+    }
+
+    /** Give a held seat back early (e.g. the customer abandoned checkout). */
+    public boolean release(Ticket ticket) {
+        synchronized (wheel) {
+            wheel.cancel(timers.remove(ticket));
+        }
+        return ticket.expireHold();
+    }
+
+    /**
+     * Release every hold whose TTL has passed according to the clock.
+     *
+     * @return number of holds released
+     */
+    public int expireDue() {
+        List<Ticket> due = new ArrayList<>();
+        synchronized (wheel) {
+            wheel.advanceTo(clock.millis(), t -> {
+                timers.remove(t);
+                due.add(t);
+            });
+        }
+        int released = 0;
+        for (Ticket t : due) {
+            if (t.expireHold()) released++;
+        }
+        return released;
+    }
+
+    /** Stop releasing holds in the background; {@link #expireDue()} still works. */
+    @Override
+    public void close() {
+        ticks.cancel(false);
+    }
+
+    // Background tick: a failure is reported and the next tick tries again
+    private void tick() {
+        try {
+            expireDue();
+        } catch (RuntimeException e) {
+            System.out.println("Could not release expired seat holds: " + e.getMessage());
+        }
+    }
+
+    /** @return number of holds currently waiting for confirmation */
+    public int pendingCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    private void track(Ticket ticket) {
+        long deadline = clock.millis() + ttl.toMillis();
+        synchronized (wheel) {
+            timers.put(ticket, wheel.schedule(ticket, deadline));
+        }
+    }
+}
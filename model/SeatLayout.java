@@ -0,0 +1,172 @@
+package model;
+
+import model.enums.PlaneType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable seat layout template, shared by every {@link Plane} with the same
+ * PlaneType, capacity and cabin split.
+ * <p>
+ * Seats are numbered row-major from 0 using the PlaneType's seat letters, and cabins
+ * are contiguous index ranges starting at the front of the plane. Index -> code and
+ * code -> index are constant-time table lookups; the code table itself is built lazily,
+ * once per layout, the first time a seat code is shown.
+ * </p>
+ * Obtain instances through {@link #of(PlaneType, int, int...)}; a fleet of identical
+ * aircraft holds a single layout object.
+ */
+public final class SeatLayout {
+    private static final ConcurrentMap<Key, SeatLayout> CACHE = new ConcurrentHashMap<>();
+
+    private final PlaneType planeType;
+    private final int capacity;
+    private final String letters;
+    private final int seatsPerRow;
+    // letter -> column, -1 if the letter is not used on this type (skip-'I' layouts etc.)
+    private final byte[] columnOf = new byte[128];
+    // cabinStart[c] is the first seat of cabin c; cabinStart[cabinCount] == capacity
+    private final int[] cabinStart;
+
+    private volatile String[] codes;
+    private volatile Set<String> codeSet;
+
+    private SeatLayout(PlaneType planeType, int capacity, int[] cabinSizes) {
+        this.planeType = planeType;
+        this.capacity = capacity;
+        String l = planeType.getDefaultSeatLetters();
+        // Fallback: common 6-across narrow-body layout (skip 'I')
+        this.letters = (l != null && !l.isBlank()) ? l : "ABCDEF";
+        int across = planeType.getDefaultSeatsPerRow();
+        this.seatsPerRow = across > 0 ? Math.min(across, letters.length()) : Math.max(1, letters.length());
+
+        Arrays.fill(columnOf, (byte) -1);
+        for (int col = 0; col < seatsPerRow; col++) {
+            columnOf[letters.charAt(col) & 0x7F] = (byte) col;
+        }
+
+        this.cabinStart = new int[cabinSizes.length + 1];
+        for (int c = 0; c < cabinSizes.length; c++) {
+            cabinStart[c + 1] = cabinStart[c] + cabinSizes[c];
+        }
+    }
+
+    /**
+     * Shared layout for the given type, capacity and cabin sizes (front to back).
+     *
+     * @throws IllegalArgumentException if a cabin size is negative or the sizes do not add up to capacity
+     */
+    public static SeatLayout of(PlaneType planeType, int capacity, int... cabinSizes) {
+        Objects.requireNonNull(planeType, "planeType");
+        int sum = 0;
+        for (int size : cabinSizes) {
+            if (size < 0) throw new IllegalArgumentException("Cabin size must not be negative: " + size);
+            sum += size;
+        }
+        if (sum != capacity) {
+            throw new IllegalArgumentException("Cabin sizes " + Arrays.toString(cabinSizes) + " do not add up to capacity " + capacity);
+        }
+        Key key = new Key(planeType, capacity, Arrays.stream(cabinSizes).boxed().toList());
+        SeatLayout layout = CACHE.get(key);
+        return layout != null ? layout : CACHE.computeIfAbsent(key, k -> new SeatLayout(planeType, capacity, cabinSizes.clone()));
+    }
+
+    public PlaneType getPlaneType() { return planeType; }
+    public int getCapacity() { return capacity; }
+    public int getSeatsPerRow() { return seatsPerRow; }
+    public String getSeatLetters() { return letters.substring(0, seatsPerRow); }
+    public int getCabinCount() { return cabinStart.length - 1; }
+    public int cabinStart(int cabin) { return cabinStart[cabin]; }
+    public int cabinEnd(int cabin) { return cabinStart[cabin + 1]; }
+    public int cabinSize(int cabin) { return cabinStart[cabin + 1] - cabinStart[cabin]; }
+
+    /** Cabin that contains the given seat index. */
+    public int cabinOf(int seatIndex) {
+        checkIndex(seatIndex);
+        int c = 0;
+        while (seatIndex >= cabinStart[c + 1]) c++;
+        return c;
+    }
+
+    /** Row-major seat index -> code, e.g. 0 -> "1A", 6 -> "2A" on a 6-across plane. */
+    public String seatCode(int seatIndex) {
+        checkIndex(seatIndex);
+        return codes()[seatIndex];
+    }
+
+    /**
+     * Seat code -> row-major index. Accepts "14C" as well as the letter-first "C14".
+     * @throws IllegalArgumentException if the code is malformed or not in this layout
+     */
+    public int seatIndex(String seatCode) {
+        String code = Objects.requireNonNull(seatCode, "seatCode").trim();
+        int n = code.length();
+        if (n < 2) throw new IllegalArgumentException("Invalid seat code: " + seatCode);
+        char letter;
+        int rowFrom, rowTo;
+        if (Character.isLetter(code.charAt(n - 1))) {
+            letter = code.charAt(n - 1);
+            rowFrom = 0;
+            rowTo = n - 1;
+        } else {
+            letter = code.charAt(0);
+            rowFrom = 1;
+            rowTo = n;
+        }
+        int row = 0;
+        for (int i = rowFrom; i < rowTo; i++) {
+            int d = code.charAt(i) - '0';
+            if (d < 0 || d > 9 || row > capacity) throw new IllegalArgumentException("Invalid seat code: " + seatCode);
+            row = row * 10 + d;
+        }
+        char upper = Character.toUpperCase(letter);
+        int col = upper < 128 ? columnOf[upper] : -1;
+        int seat = (row - 1) * seatsPerRow + col;
+        if (col < 0 || row < 1 || seat >= capacity) {
+            throw new IllegalArgumentException("No seat " + seatCode + " in " + planeType.name() + " layout");
+        }
+        return seat;
+    }
+
+    /** All seat codes in seat order; shared and unmodifiable. */
+    public Set<String> seatCodes() {
+        Set<String> set = codeSet;
+        if (set == null) {
+            set = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(codes())));
+            codeSet = set;
+        }
+        return set;
+    }
+
+    // Built at most a handful of times under a race; every build is identical.
+    private String[] codes() {
+        String[] c = codes;
+        if (c == null) {
+            c = new String[capacity];
+            for (int seat = 0; seat < capacity; seat++) {
+                c[seat] = (seat / seatsPerRow + 1) + String.valueOf(letters.charAt(seat % seatsPerRow));
+            }
+            codes = c;
+        }
+        return c;
+    }
+
+    private void checkIndex(int seatIndex) {
+        if (seatIndex < 0 || seatIndex >= capacity) {
+            throw new IndexOutOfBoundsException("Seat index " + seatIndex + " out of range 0.." + (capacity - 1));
+        }
+    }
+
+    @Override public String toString() {
+        return "SeatLayout{" + planeType.name() + ", " + capacity + " seats, cabins=" + Arrays.toString(cabinStart) + "}";
+    }
+
+    private record Key(PlaneType planeType, int capacity, List<Integer> cabinSizes) { }
+}
@@ -0,0 +1,104 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-seat occupancy for one plane, stored as a bitset (one bit per seat, 1 = taken).
+ * <p>
+ * Seat indices are row-major (see {@link Plane#seatCode(int)}), so a cabin is a
+ * contiguous index range and "first free seat in cabin" is a word-level scan using
+ * {@link Long#numberOfTrailingZeros(long)} instead of a per-seat loop.
+ * All updates are CAS operations on individual words, so the map is safe to share
+ * between booking threads without locking.
+ * </p>
+ */
+final class SeatMap {
+    private final int seats;
+    private final AtomicLongArray words;
+
+    SeatMap(int seats) {
+        this.seats = seats;
+        this.words = new AtomicLongArray((seats + 63) >>> 6);
+    }
+
+    int size() { return seats; }
+
+    boolean isTaken(int seat) {
+        checkIndex(seat);
+        return (words.get(seat >>> 6) & (1L << seat)) != 0;
+    }
+
+    /** Mark one specific seat as taken. Returns false if it already was. */
+    boolean claim(int seat) {
+        checkIndex(seat);
+        int w = seat >>> 6;
+        long bit = 1L << seat;
+        while (true) {
+            long cur = words.get(w);
+            if ((cur & bit) != 0) return false;
+            if (words.compareAndSet(w, cur, cur | bit)) return true;
+        }
+    }
+
+    /** Mark one specific seat as free. Returns false if it already was. */
+    boolean release(int seat) {
+        checkIndex(seat);
+        int w = seat >>> 6;
+        long bit = 1L << seat;
+        while (true) {
+            long cur = words.get(w);
+            if ((cur & bit) == 0) return false;
+            if (words.compareAndSet(w, cur, cur & ~bit)) return true;
+        }
+    }
+
+    /**
+     * Claim the lowest free seat in [from, to).
+     * @return the claimed seat index, or -1 if every seat in the range is taken
+     */
+    int claimFirstFree(int from, int to) {
+        while (true) {
+            int seat = firstFree(from, to);
+            if (seat < 0 || claim(seat)) return seat;
+            // lost a race for that seat; rescan from it
+            from = seat;
+        }
+    }
+
+    /** Lowest free seat index in [from, to), or -1. Does not claim it. */
+    int firstFree(int from, int to) {
+        to = Math.min(to, seats);
+        if (from >= to) return -1;
+        int w = from >>> 6;
+        int last = (to - 1) >>> 6;
+        // ignore bits below 'from' in the first word
+        long free = ~words.get(w) & (-1L << from);
+        while (true) {
+            if (free != 0) {
+                int seat = (w << 6) + Long.numberOfTrailingZeros(free);
+                return seat < to ? seat : -1;
+            }
+            if (++w > last) return -1;
+            free = ~words.get(w);
+        }
+    }
+
+    /** Number of free seats in [from, to). */
+    int countFree(int from, int to) {
+        int taken = 0;
+        for (int seat = from; seat < to; ) {
+            int w = seat >>> 6;
+            int end = Math.min(to, (w + 1) << 6);
+            long mask = (-1L << seat) & (end - (w << 6) == 64 ? -1L : (1L << end) - 1);
+            taken += Long.bitCount(words.get(w) & mask);
+            seat = end;
+        }
+        return (to - from) - taken;
+    }
+
+    private void checkIndex(int seat) {
+        if (seat < 0 || seat >= seats) {
+            throw new IndexOutOfBoundsException("Seat index " + seat + " out of range 0.." + (seats - 1));
+        }
+    }
+}
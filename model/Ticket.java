@@ -1,37 +1,100 @@
 package model;
+import java.time.Instant;
+
+import model.core.Reservation;
+import model.enums.FareClass;
 import model.enums.ReservationStatus;
 
-public class Ticket{
-    private int ticketId; 
-    private static int nextTicketId = 1;
+/**
+ * A seat on a flight for one customer.
+ * Lifecycle and equality come from {@link Reservation}: tickets are created CONFIRMED,
+ * or PENDING when they are only a timed seat hold (see {@link SeatHolds}).
+ */
+public class Ticket extends Reservation {
+    private final int ticketId;
     private double price;
     private Flight flight;
     private Customer customer;
-    // cancelled ticket, in-use, booked etc.
-    private ReservationStatus status;
-    private String seatType;
+    private FareClass fareClass;
+    // row-major seat index on the plane, -1 while no seat is held; written under the ticket lock
+    private volatile int seatIndex = -1;
+    // bumped per upgrade so each upgrade is charged once
+    private int revision;
 
-    private int generateTicketId() {
-        return nextTicketId++;
+    private static int generateTicketId() {
+        return TicketIdAllocator.getDefault().next();
     }
 
+    // seatType is parsed once here, e.g. "Business"; throws IllegalArgumentException if unknown
     public Ticket(String seatType, Flight flight, Customer customer){
-        this.ticketId = generateTicketId();
+        this(FareClass.fromLabel(seatType), flight, customer);
+    }
+
+    public Ticket(FareClass fareClass, Flight flight, Customer customer){
+        this(generateTicketId(), fareClass, flight, customer, ReservationStatus.CONFIRMED);
+    }
+
+    // Used for seat holds, which start PENDING
+    Ticket(FareClass fareClass, Flight flight, Customer customer, ReservationStatus status){
+        this(generateTicketId(), fareClass, flight, customer, status);
+    }
+
+    private Ticket(int ticketId, FareClass fareClass, Flight flight, Customer customer, ReservationStatus status){
+        this(ticketId, fareClass, flight, customer, status, Instant.now());
+    }
+
+    // Used for group bookings: one booking time for the whole group, and the seat is set before the ticket is shared
+    Ticket(FareClass fareClass, Flight flight, Customer customer, Instant createdAt, int seatIndex){
+        this(generateTicketId(), fareClass, flight, customer, ReservationStatus.CONFIRMED, createdAt);
+        this.seatIndex = seatIndex;
+    }
+
+    private Ticket(int ticketId, FareClass fareClass, Flight flight, Customer customer, ReservationStatus status,
+                   Instant createdAt){
+        super(String.valueOf(ticketId), createdAt, status);
+        this.ticketId = ticketId;
         this.flight = flight;
         this.customer = customer;
-        this.price = flight.getPlane().getPrice(seatType);
-        this.status = ReservationStatus.CONFIRMED;
-        this.seatType = seatType;
+        this.price = flight.getPlane().getPrice(fareClass);
+        this.fareClass = fareClass;
+    }
+
+    /**
+     * Rebuild a ticket from the {@link ReservationJournal}: same id, seat and price as when
+     * it was recorded. The caller puts it on the flight.
+     */
+    static Ticket restore(int ticketId, FareClass fareClass, Flight flight, Customer customer,
+                          ReservationStatus status, Instant createdAt, long priceCents, int seatIndex) {
+        Ticket t = new Ticket(ticketId, fareClass, flight, customer, status, createdAt);
+        t.price = priceCents / 100.0;
+        // a cancelled ticket no longer owns the seat it was recorded with
+        t.seatIndex = status == ReservationStatus.CANCELED ? -1 : seatIndex;
+        return t;
     }
 
     public Flight getFlight(){ return flight;}
     public Customer getCustomer(){ return customer;}
-    public String getSeatType() { return seatType;}
+    public String getSeatType() { return fareClass.getLabel();}
+    public FareClass getFareClass() { return fareClass; }
+    public int getSeatIndex() { return seatIndex; }
+    synchronized void setSeatIndex(int seatIndex) { this.seatIndex = seatIndex; }
+    // formatted on demand; only an int is stored per ticket
+    public String getSeatCode() { return seatIndex < 0 ? null : flight.getPlane().seatCode(seatIndex); }
     public double getPrice(){ return price; }
-    public ReservationStatus getStatus() { return status;}
-    public void setStatus(ReservationStatus status){ this.status = status; }
+    public long getPriceCents(){ return Math.round(price * 100); }
+    public int getTicketId() { return ticketId; }
+    // number of upgrades so far; each upgrade's charge is keyed by it
+    int getRevision() { return revision; }
+    void restoreRevision(int revision) { this.revision = revision; }
+
+    // Synchronized with expireHold(): a hold that times out mid-purchase is either booked
+    // in full or never filed and charged
+    public synchronized void purchase() {
+        if (getStatus() == ReservationStatus.CANCELED) {
+            System.out.println("This ticket is cancelled and cannot be purchased.");
+            return;
+        }
 
-    public void purchase() {
         // Check crew availability
         if(!flight.hasRequiredCrew()){
             System.out.println("There is not a crew to operate this flight. Please exit and try again later.");
@@ -44,68 +107,165 @@ public class Ticket{
             return;
         }
 
-        // Check overall seats
-        if(flight.getPlane().getAvailableSeats() <= 0){
+        // Check overall seats (a confirmed hold already has its seat)
+        if(seatIndex < 0 && flight.getPlane().getAvailableSeats() <= 0){
             System.out.println("No seats left on the plane. Please exit and try again later.");
             return;
         }
 
-        // Decrement overall capacity
-        if (!flight.getPlane().decrementCapacity()) {
-            System.out.println("Seat reservation failed (flight became full).");
-            return;
+        // Reserve a seat of this ticket's class and put it on the manifest, unless it already holds one
+        if (seatIndex < 0) {
+            try {
+                flight.addTicket(this);
+            } catch (IllegalArgumentException e) {
+                System.out.println("No " + fareClass.getLabel() + " seats available on this flight.");
+                return;
+            }
         }
 
-        // Reserve the specific seat type (First/Economy)
-        if (!flight.getPlane().reserveSeat(seatType)) {
-            // Release the overall seat if specific type not available
-            flight.getPlane().incrementCapacity();
-            System.out.println("No " + seatType + " seats available on this flight.");
-            return;
-        }
-
-        // Customer books the ticket
-        customer.bookTicket(flight);
+        book();
+        ReservationJournal.getDefault().sync();
+        System.out.println("Ticket booked successfully!");
+    }
 
-        // Update status
-        status = ReservationStatus.CONFIRMED;
+    /**
+     * Seat, file and charge a new ticket in one step under the ticket lock, so a cancel
+     * that finds it on the flight or the customer's list waits until it is charged.
+     *
+     * @throws IllegalArgumentException if no seat of its class is free
+     * @throws IllegalStateException if the ticket is cancelled
+     */
+    synchronized void issue() {
+        if (getStatus() == ReservationStatus.CANCELED) {
+            throw new IllegalStateException("Ticket " + ticketId + " is cancelled");
+        }
+        flight.addTicket(this);
+        book();
+    }
 
-        System.out.println("Ticket booked successfully!");
+    // Confirm a held seat, record it for the customer and charge it once; caller holds the lock
+    private void book() {
+        if (getStatus() == ReservationStatus.PENDING) confirm();
+        customer.addTicket(this);
+        Ledger.getDefault().charge(this);
     }
 
-    public void cancel(){
+    public synchronized void cancel(){
         // is the ticket already cancelled?
-        if (status.equals(ReservationStatus.CANCELED)){
+        if (getStatus() == ReservationStatus.CANCELED){
             System.out.println("This ticket is already cancelled");
             return;
         }
         // change from booked to cancelled
-        status = ReservationStatus.CANCELED;
+        markCanceled();
         // remove the ticket from the customer's list of tickets
         customer.cancelTicket(this);
         // increment number of seats on the plane
-        flight.getPlane().releaseSeat(seatType);
+        releaseSeat();
+        ReservationJournal.getDefault().sync();
+    }
+
+    @Override
+    public void cancel(Instant cancelTime) {
+        cancel();
+    }
+
+    @Override
+    protected void onStatusChanged(ReservationStatus newStatus) {
+        ReservationJournal.getDefault().statusChanged(this, newStatus);
+    }
+
+    // Replay a recorded status change; a cancel gives the seat back like cancel() does
+    synchronized void restoreStatus(ReservationStatus status) {
+        if (status == ReservationStatus.CONFIRMED && getStatus() == ReservationStatus.PENDING) {
+            confirm();
+        } else if (status == ReservationStatus.CANCELED) {
+            markCanceled();
+            releaseSeat();
+        }
+    }
+
+    // Replay a recorded upgrade; false, leaving the ticket without a seat, if that seat is taken
+    synchronized boolean restoreSeat(FareClass fareClass, int seatIndex, long priceCents, int revision) {
+        releaseSeat();
+        this.seatIndex = flight.getPlane().reserveSeatAt(seatIndex);
+        this.fareClass = fareClass;
+        this.price = priceCents / 100.0;
+        this.revision = Math.max(this.revision, revision);
+        return this.seatIndex >= 0;
+    }
+
+    /**
+     * Confirm a seat hold: the ticket is filed with the customer and charged, the same
+     * step {@link #purchase()} takes. Synchronized with {@link #expireHold()} so a hold that
+     * is confirmed at the moment it times out ends up in exactly one of the two states.
+     *
+     * @return true if the hold was PENDING and is now CONFIRMED
+     */
+    synchronized boolean confirmHold() {
+        if (getStatus() != ReservationStatus.PENDING) return false;
+        book();
+        return true;
+    }
+
+    /**
+     * Drop an unconfirmed seat hold: the seat goes back to the plane and the ticket
+     * leaves the flight manifest. No customer balance was charged for a hold.
+     *
+     * @return true if the hold was still PENDING
+     */
+    synchronized boolean expireHold() {
+        if (getStatus() != ReservationStatus.PENDING) return false;
+        markCanceled();
+        flight.removeTicket(this);
+        return true;
+    }
+
+    /**
+     * Give this ticket's seat back to the plane, once. The index is cleared under the
+     * ticket lock, so a later cancel, replay or manifest removal cannot free a seat that
+     * has since gone to another booking.
+     *
+     * @return true if a seat was held and is now free
+     */
+    synchronized boolean releaseSeat() {
+        if (seatIndex < 0) return false;
+        flight.getPlane().releaseSeat(seatIndex);
+        seatIndex = -1;
+        return true;
     }
 
     public void upgradeTicket(String newSeatType, double newPrice) {
-        if (!flight.getPlane().reserveSeat(newSeatType)) {
-            System.out.println("No seats available for upgrade to " + newSeatType + ".");
+        upgradeTicket(FareClass.fromLabel(newSeatType));
+    }
+
+    // throws IllegalStateException for a cancelled ticket, before any seat is taken
+    public synchronized void upgradeTicket(FareClass newFareClass) {
+        if (getStatus() == ReservationStatus.CANCELED) {
+            throw new IllegalStateException("Ticket " + ticketId + " is cancelled and cannot be upgraded");
+        }
+        int newSeat = flight.getPlane().reserveSeat(newFareClass);
+        if (newSeat < 0) {
+            System.out.println("No seats available for upgrade to " + newFareClass.getLabel() + ".");
             return;
         }
 
         // Release the old seat
-        flight.getPlane().releaseSeat(seatType);
+        releaseSeat();
+        seatIndex = newSeat;
 
-        double updatedPrice = flight.getPlane().getPrice(newSeatType);
+        double updatedPrice = flight.getPlane().getPrice(newFareClass);
+        long oldCents = getPriceCents();
 
-        // adjust customer balance if upgrading costs more
-        if (updatedPrice > price) {
-            customer.setBalance(customer.getBalance() + (updatedPrice - price));
-        }
-
-        seatType = newSeatType;
+        fareClass = newFareClass;
         price = updatedPrice;
+        revision++;
+        ReservationJournal.getDefault().reseated(this, revision);
+
+        // charge the difference if upgrading costs more
+        Ledger.getDefault().chargeUpgrade(this, revision, getPriceCents() - oldCents);
+        ReservationJournal.getDefault().sync();
 
-        System.out.println("Ticket upgraded to " + seatType + " for flight " + flight.getFlightNumber());
+        System.out.println("Ticket upgraded to " + fareClass.getLabel() + " for flight " + flight.getFlightNumber());
     }
 }
\ No newline at end of file
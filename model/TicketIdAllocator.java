@@ -0,0 +1,135 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out unique {@code int} ticket ids.
+ * <p>
+ * Each thread takes ids from its own block of {@code blockSize} consecutive ids, so the
+ * common path is a thread-local increment with no shared write at all. Blocks are carved
+ * from a shared cursor with one atomic add. Ids come out roughly in time order: each
+ * block is newer than every block leased before it, but threads interleave within their
+ * blocks.
+ * </p>
+ * A persistent allocator stores a high-water mark in a file: every id it hands out is
+ * below the stored mark, which is written and forced to disk before the ids are used,
+ * and a restart continues from the mark. Ids leased but never used before a restart are
+ * skipped, never reused. The mark moves ahead many blocks per write, so disk writes are
+ * rare. {@link Ticket} takes its ids from {@link #getDefault()}, which starts as an
+ * in-memory allocator; install a persistent one at startup with {@link #setDefault}.
+ */
+public final class TicketIdAllocator {
+    public static final int DEFAULT_BLOCK_SIZE = 256;
+    private static final int BLOCKS_PER_WRITE = 64;
+
+    private static volatile TicketIdAllocator defaultAllocator = inMemory();
+
+    private final int blockSize;
+    private final Path file;                 // null: not persisted
+    private final AtomicLong cursor;         // first id not yet leased
+    private volatile long durableLimit;      // every id below this is covered by the stored mark
+    private final ThreadLocal<int[]> block = ThreadLocal.withInitial(() -> new int[2]); // {next, end}
+
+    private TicketIdAllocator(long start, int blockSize, Path file) {
+        if (blockSize < 1) throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        this.blockSize = blockSize;
+        this.file = file;
+        this.cursor = new AtomicLong(Math.max(1, start));
+        this.durableLimit = file == null ? Long.MAX_VALUE : cursor.get();
+    }
+
+    /** Ids from 1, forgotten on restart. */
+    public static TicketIdAllocator inMemory() {
+        return new TicketIdAllocator(1, DEFAULT_BLOCK_SIZE, null);
+    }
+
+    /**
+     * Ids that never repeat across restarts, continuing from the mark stored in {@code file}
+     * (created if missing).
+     *
+     * @throws UncheckedIOException if the file exists but cannot be read
+     */
+    public static TicketIdAllocator persistent(Path file) {
+        return persistent(file, DEFAULT_BLOCK_SIZE);
+    }
+
+    public static TicketIdAllocator persistent(Path file, int blockSize) {
+        Objects.requireNonNull(file, "file");
+        long mark = 1;
+        try {
+            if (Files.exists(file)) {
+                mark = Long.parseLong(Files.readString(file, StandardCharsets.US_ASCII).trim());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read ticket id mark " + file, e);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Corrupt ticket id mark in " + file, e);
+        }
+        return new TicketIdAllocator(mark, blockSize, file);
+    }
+
+    public static TicketIdAllocator getDefault() { return defaultAllocator; }
+
+    public static void setDefault(TicketIdAllocator allocator) {
+        defaultAllocator = Objects.requireNonNull(allocator, "allocator");
+    }
+
+    /** @return a fresh id, never returned before by this allocator (or its predecessors on the same file) */
+    public int next() {
+        int[] b = block.get();
+        if (b[0] == b[1]) lease(b);
+        return b[0]++;
+    }
+
+    /**
+     * Never hand out {@code id} or anything below it from now on, e.g. after replaying
+     * tickets recorded elsewhere. Blocks threads already hold are not affected, so call
+     * this before ids are handed out.
+     */
+    public void advancePast(long id) {
+        if (id >= Integer.MAX_VALUE) throw new IllegalStateException("Ticket ids exhausted");
+        long next = cursor.accumulateAndGet(id + 1, Math::max);
+        if (next > durableLimit) extendMark(next);
+    }
+
+    /** @return the first id no thread has leased yet */
+    public long getHighWaterMark() { return cursor.get(); }
+
+    // ---- Helpers ----
+
+    private void lease(int[] b) {
+        long start = cursor.getAndAdd(blockSize);
+        long end = start + blockSize;
+        if (end > Integer.MAX_VALUE) throw new IllegalStateException("Ticket ids exhausted");
+        if (end > durableLimit) extendMark(end);
+        b[0] = (int) start;
+        b[1] = (int) end;
+    }
+
+    // Store a new mark covering at least {@code needed} before any id below it is used
+    private synchronized void extendMark(long needed) {
+        if (needed <= durableLimit) return;
+        long mark = Math.min(Integer.MAX_VALUE, Math.max(needed, cursor.get()) + (long) blockSize * BLOCKS_PER_WRITE);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ch.write(StandardCharsets.US_ASCII.encode(Long.toString(mark)));
+                ch.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store ticket id mark " + file, e);
+        }
+        durableLimit = mark;
+    }
+}
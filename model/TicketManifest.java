@@ -0,0 +1,147 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tickets keyed by {@link Ticket#getTicketId()}, kept in insertion order.
+ * <p>
+ * Tickets are appended to dense arrays; a removal only nulls its slot, and the arrays
+ * are compacted once more than half of the slots are empty, so iteration stays in
+ * booking order and costs O(size). The id lookup is an open-addressing table of
+ * {@code int}s (linear probing, backward-shift deletion, no tombstones) holding
+ * {@code position + 1}, so add, remove and contains are O(1) expected with no boxing.
+ * Nothing is allocated until the first ticket is added: every flight and customer has a
+ * manifest, and most flights in a freshly loaded schedule have no tickets yet.
+ * </p>
+ * Not thread-safe; owners synchronize around it.
+ */
+final class TicketManifest {
+    private static final int MIN_TABLE = 16;
+    private static final Ticket[] NO_ENTRIES = new Ticket[0];
+    private static final int[] NO_INTS = new int[0];
+
+    private Ticket[] entries = NO_ENTRIES;
+    private int[] ids = NO_INTS;
+    private int end;       // next free position in entries/ids
+    private int size;
+    private int[] table = NO_INTS;   // position + 1, 0 = empty
+
+    int size() { return size; }
+
+    boolean isEmpty() { return size == 0; }
+
+    boolean contains(int ticketId) { return find(ticketId) >= 0; }
+
+    Ticket get(int ticketId) {
+        int slot = find(ticketId);
+        return slot < 0 ? null : entries[table[slot] - 1];
+    }
+
+    /** @return false if a ticket with the same id is already present */
+    boolean add(Ticket ticket) {
+        int id = ticket.getTicketId();
+        if (find(id) >= 0) return false;
+        if ((size + 1) * 2 > table.length) rehash(Math.max(MIN_TABLE, table.length * 2));
+        if (end == entries.length) grow();
+        entries[end] = ticket;
+        ids[end] = id;
+        end++;
+        size++;
+        insert(id, end);
+        return true;
+    }
+
+    /** @return the removed ticket, or null if none had that id */
+    Ticket remove(int ticketId) {
+        int slot = find(ticketId);
+        if (slot < 0) return null;
+        int pos = table[slot] - 1;
+        Ticket removed = entries[pos];
+        entries[pos] = null;
+        size--;
+        deleteSlot(slot);
+        if (end > 8 && size * 2 < end) compact();
+        return removed;
+    }
+
+    /** Insertion-ordered snapshot. */
+    List<Ticket> toList() {
+        List<Ticket> out = new ArrayList<>(size);
+        for (int i = 0; i < end; i++) {
+            if (entries[i] != null) out.add(entries[i]);
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    // ---- Helpers ----
+
+    private int find(int id) {
+        if (size == 0) return -1;
+        int mask = table.length - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            int ref = table[slot];
+            if (ref == 0) return -1;
+            if (ids[ref - 1] == id) return slot;
+        }
+    }
+
+    private void insert(int id, int ref) {
+        int mask = table.length - 1;
+        int slot = hash(id) & mask;
+        while (table[slot] != 0) slot = (slot + 1) & mask;
+        table[slot] = ref;
+    }
+
+    // Shift later entries of the probe run back so lookups never need tombstones
+    private void deleteSlot(int slot) {
+        int mask = table.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int home = hash(ids[table[next] - 1]) & mask;
+            // move it if its home is not cyclically within (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private void grow() {
+        int cap = Math.max(8, entries.length * 2);
+        entries = Arrays.copyOf(entries, cap);
+        ids = Arrays.copyOf(ids, cap);
+    }
+
+    // Squeeze out removed slots; positions change, so the table is rebuilt
+    private void compact() {
+        int w = 0;
+        for (int r = 0; r < end; r++) {
+            if (entries[r] != null) {
+                entries[w] = entries[r];
+                ids[w] = ids[r];
+                w++;
+            }
+        }
+        Arrays.fill(entries, w, end, null);
+        end = w;
+        int cap = MIN_TABLE;
+        while (cap < size * 2) cap <<= 1;
+        rehash(cap);
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int i = 0; i < end; i++) {
+            if (entries[i] != null) insert(ids[i], i + 1);
+        }
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
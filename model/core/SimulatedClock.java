@@ -0,0 +1,47 @@
+package model.core;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Objects;
+
+/**
+ * A {@link Clock} that only moves when told to.
+ * Inject it wherever a component reads time (e.g. Airport, SeatHolds) to replay a
+ * day of operations faster than real time, or to make time-based behavior deterministic.
+ * Time never moves backwards.
+ */
+public final class SimulatedClock extends Clock {
+    private final ZoneId zone;
+    private volatile Instant now;
+
+    public SimulatedClock(Instant start) {
+        this(start, ZoneOffset.UTC);
+    }
+
+    public SimulatedClock(Instant start, ZoneId zone) {
+        this.now = Objects.requireNonNull(start, "start");
+        this.zone = Objects.requireNonNull(zone, "zone");
+    }
+
+    /** Move time forward by {@code amount} (must not be negative). */
+    public synchronized void advance(Duration amount) {
+        if (amount.isNegative()) throw new IllegalArgumentException("Cannot move time backwards: " + amount);
+        now = now.plus(amount);
+    }
+
+    /** Move time forward to {@code instant}; earlier instants are ignored. */
+    public synchronized void advanceTo(Instant instant) {
+        if (instant.isAfter(now)) now = instant;
+    }
+
+    @Override public Instant instant() { return now; }
+    @Override public ZoneId getZone() { return zone; }
+
+    // The returned clock shares nothing with this one; it is frozen at the current instant.
+    @Override public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new SimulatedClock(now, zone);
+    }
+}
@@ -0,0 +1,159 @@
+package model.core;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for large numbers of timeouts.
+ * <p>
+ * <b>Structure:</b> {@value #LEVELS} levels of {@value #SLOTS} slots each. Level 0 holds
+ * timeouts due within the next 64 ticks, level 1 within 64², and so on; a timeout further
+ * out than the top level is parked in the top level's farthest slot and re-filed when it
+ * is reached. Each slot is a doubly linked list, so scheduling and canceling are O(1).
+ * When the level-0 index wraps, one slot of the next level is cascaded down, so every
+ * timeout is moved at most once per level before it fires: O(1) amortized per timeout,
+ * and never a scan over all outstanding timeouts.
+ * </p>
+ * Time is supplied by the caller (epoch millis) via {@link #advanceTo(long, Consumer)};
+ * the wheel owns no thread and is not thread-safe, so callers synchronize around it.
+ *
+ * @param <T> the payload carried by each timeout
+ */
+public final class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long startMillis;
+    private final long tickMillis;
+    private final Timeout<T>[][] wheel;
+    private long currentTick;
+    private int size;
+
+    /** A scheduled entry; keep it to cancel the timeout later. */
+    public static final class Timeout<T> {
+        private final T item;
+        private long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getItem() { return item; }
+
+        /** @return true while scheduled (not yet fired or canceled) */
+        public boolean isPending() { return prev != null; }
+    }
+
+    /**
+     * @param startMillis epoch millis of tick 0 (normally "now")
+     * @param tickMillis  resolution; timeouts fire on the first tick at or after their deadline
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long startMillis, long tickMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        this.startMillis = startMillis;
+        this.tickMillis = tickMillis;
+        this.wheel = new Timeout[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timeout<T> head = new Timeout<>(null, -1);
+                head.prev = head;
+                head.next = head;
+                wheel[level][slot] = head;
+            }
+        }
+    }
+
+    public int size() { return size; }
+
+    /** Schedule {@code item} to expire at {@code deadlineMillis} (epoch millis). */
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        // round up so nothing fires early
+        long offset = Math.max(0, deadlineMillis - startMillis);
+        long tick = (offset + tickMillis - 1) / tickMillis;
+        Timeout<T> t = new Timeout<>(item, Math.max(tick, currentTick + 1));
+        file(t);
+        size++;
+        return t;
+    }
+
+    /** @return true if the timeout was still pending and is now removed */
+    public boolean cancel(Timeout<T> t) {
+        if (t == null || !t.isPending()) return false;
+        unlink(t);
+        size--;
+        return true;
+    }
+
+    /**
+     * Move time forward, handing every timeout that became due to {@code onExpire},
+     * in deadline-tick order.
+     *
+     * @return number of timeouts that expired
+     */
+    public int advanceTo(long nowMillis, Consumer<? super T> onExpire) {
+        long target = Math.max(0, nowMillis - startMillis) / tickMillis;
+        int expired = 0;
+        while (currentTick < target) {
+            if (size == 0) {
+                // nothing scheduled: jump straight to the target
+                currentTick = target;
+                break;
+            }
+            currentTick++;
+            cascade();
+            Timeout<T> head = wheel[0][(int) (currentTick & SLOT_MASK)];
+            while (head.next != head) {
+                Timeout<T> t = head.next;
+                unlink(t);
+                size--;
+                expired++;
+                onExpire.accept(t.item);
+            }
+        }
+        return expired;
+    }
+
+    // When a lower level wraps, re-file the matching slot of the level above.
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (level * SLOT_BITS)) - 1)) != 0) return;
+            Timeout<T> head = wheel[level][(int) ((currentTick >>> (level * SLOT_BITS)) & SLOT_MASK)];
+            Timeout<T> t = head.next;
+            head.next = head;
+            head.prev = head;
+            while (t != head) {
+                Timeout<T> next = t.next;
+                file(t);
+                t = next;
+            }
+        }
+    }
+
+    private void file(Timeout<T> t) {
+        long delta = t.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << ((level + 1) * SLOT_BITS))) level++;
+        long tick = t.deadlineTick;
+        if (delta >= (1L << (LEVELS * SLOT_BITS))) {
+            // beyond the top level: park in its farthest slot, re-filed when cascaded
+            tick = currentTick + (1L << (LEVELS * SLOT_BITS)) - 1;
+        }
+        Timeout<T> head = wheel[level][(int) ((tick >>> (level * SLOT_BITS)) & SLOT_MASK)];
+        t.prev = head.prev;
+        t.next = head;
+        head.prev.next = t;
+        head.prev = t;
+    }
+
+    private void unlink(Timeout<T> t) {
+        t.prev.next = t.next;
+        t.next.prev = t.prev;
+        t.prev = null;
+        t.next = null;
+    }
+}
@@ -0,0 +1,65 @@
+package model.enums;
+
+/**
+ * Cabin / fare classes, declared front to back.
+ * <p>
+ * The ordinal doubles as the cabin index: per-class seat counters, prices and
+ * seat ranges on a {@link model.Plane} are plain arrays indexed by {@code ordinal()},
+ * so the booking path never compares strings. Parse user input once with
+ * {@link #fromLabel(String)} at the edge of the system.
+ * </p>
+ */
+public enum FareClass {
+    FIRST("First"),
+    BUSINESS("Business"),
+    PREMIUM_ECONOMY("Premium Economy"),
+    ECONOMY("Economy");
+
+    private static final FareClass[] VALUES = values();
+
+    private final String label;
+
+    FareClass(String label) {
+        this.label = label;
+    }
+
+    /** @return display label, e.g. "Premium Economy" */
+    public String getLabel() {
+        return label;
+    }
+
+    /** Cached values() array; avoids a clone per call on hot paths. */
+    public static FareClass byIndex(int index) {
+        return VALUES[index];
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+
+    /**
+     * Parse a case-insensitive label like "first", "Business", "premium economy" or "PREMIUM_ECONOMY".
+     * Throws IllegalArgumentException if unknown.
+     */
+    public static FareClass fromLabel(String label) {
+        FareClass fc = tryParse(label);
+        if (fc == null) throw new IllegalArgumentException("Unknown fare class: " + label);
+        return fc;
+    }
+
+    /** Like {@link #fromLabel(String)} but returns null for unknown or null labels. */
+    public static FareClass tryParse(String label) {
+        if (label == null) return null;
+        String s = label.trim().replace('_', ' ').replace('-', ' ');
+        for (FareClass fc : VALUES) {
+            if (fc.label.equalsIgnoreCase(s)) return fc;
+        }
+        if (s.equalsIgnoreCase("premium")) return PREMIUM_ECONOMY;
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -78,6 +78,20 @@ public enum PlaneType {
         return defaultSeatLetters;
     }
 
+    /**
+     * Default share of seats for a fare class when a plane is configured by prices only.
+     * Economy is not listed: it takes whatever seats the other cabins leave.
+     * Narrow-bodies fly first/business/economy, wide-bodies add premium economy.
+     */
+    public double getDefaultCabinShare(FareClass fareClass) {
+        switch (fareClass) {
+            case FIRST: return widebody ? 0.04 : 0.08;
+            case BUSINESS: return widebody ? 0.14 : 0.12;
+            case PREMIUM_ECONOMY: return widebody ? 0.12 : 0.0;
+            default: return 0.0;
+        }
+    }
+
     /**
      * Parse a case-insensitive code like "a320" or "B777".
      * Falls back to valueOf semantics (throws IllegalArgumentException if unknown).